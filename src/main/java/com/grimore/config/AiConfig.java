@@ -1,9 +1,34 @@
 package com.grimore.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * Cliente do LLM e o transporte HTTP dele.
+ *
+ * As chamadas síncronas ({@code RestClient}) e as em streaming ({@code WebClient}) do Spring AI
+ * usam o mesmo {@link HttpClient} do Reactor Netty, então compartilham um único pool de conexões
+ * ({@code ai.http.*}): HTTP/2 negociado por ALPN (uma conexão multiplexada atende as chamadas
+ * simultâneas) com fallback para HTTP/1.1 com keep-alive, timeouts de conexão e de leitura e
+ * métricas do pool em {@code reactor.netty.connection.provider.*}.
+ *
+ * Os customizers valem para todo {@code RestClient.Builder}/{@code WebClient.Builder} do Spring Boot;
+ * hoje o LLM é o único destino HTTP de saída da aplicação.
+ */
 @Configuration
 public class AiConfig {
 
@@ -11,4 +36,64 @@ public class AiConfig {
     public ChatClient chatClient(ChatClient.Builder builder) {
         return builder.build();
     }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiConnectionProvider(
+            @Value("${ai.http.max-connections}") int maxConnections,
+            @Value("${ai.http.max-concurrent-streams}") long maxConcurrentStreams,
+            @Value("${ai.http.pending-acquire-timeout-ms}") long pendingAcquireTimeoutMs,
+            @Value("${ai.http.max-idle-ms}") long maxIdleMs,
+            @Value("${ai.http.max-life-ms}") long maxLifeMs) {
+        return ConnectionProvider.builder("ai")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                // fecha antes do servidor (ou de um proxy no caminho) derrubar a conexão ociosa
+                .maxIdleTime(Duration.ofMillis(maxIdleMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeMs))
+                .evictInBackground(Duration.ofSeconds(30))
+                // com HTTP/2, só abre outra conexão quando a atual esgota os streams simultâneos
+                .allocationStrategy(Http2AllocationStrategy.builder()
+                        .minConnections(1)
+                        .maxConnections(maxConnections)
+                        .maxConcurrentStreams(maxConcurrentStreams)
+                        .build())
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public HttpClient aiHttpClient(
+            ConnectionProvider aiConnectionProvider,
+            @Value("${ai.http.http2}") boolean http2,
+            @Value("${ai.http.connect-timeout-ms}") int connectTimeoutMs,
+            @Value("${ai.http.read-timeout-ms}") long readTimeoutMs) {
+        HttpClient client = HttpClient.create(aiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                // tempo máximo sem receber bytes: vale também entre os eventos de uma resposta em streaming
+                .responseTimeout(Duration.ofMillis(readTimeoutMs))
+                // tempos de DNS, conexão e handshake TLS, por caminho (sem query string)
+                .metrics(true, uri -> uri.contains("?") ? uri.substring(0, uri.indexOf('?')) : uri);
+
+        if (http2) {
+            // h2 quando o servidor aceita via ALPN; URLs http:// (ex: um servidor local de testes) seguem em HTTP/1.1
+            client = client
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure(spec -> spec.sslContext(Http2SslContextSpec.forClient()));
+        }
+
+        // carrega event loops, resolvedor de DNS e classes do TLS agora, não na primeira importação
+        client.warmup().block();
+        return client;
+    }
+
+    @Bean
+    public RestClientCustomizer aiRestClientCustomizer(HttpClient aiHttpClient) {
+        return builder -> builder.requestFactory(new ReactorClientHttpRequestFactory(aiHttpClient));
+    }
+
+    @Bean
+    public WebClientCustomizer aiWebClientCustomizer(HttpClient aiHttpClient) {
+        return builder -> builder.clientConnector(new ReactorClientHttpConnector(aiHttpClient));
+    }
 }
@@ -0,0 +1,145 @@
+package com.grimore.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Auditoria de pinning de virtual threads ({@code threads.pinning-audit.enabled}).
+ *
+ * No Java 21 uma virtual thread que bloqueia dentro de {@code synchronized} (ou de um frame nativo)
+ * fica presa à thread carregadora: com poucas carregadoras (uma por núcleo), alguns bloqueios
+ * longos param o servidor inteiro. Este componente assina o evento {@code jdk.VirtualThreadPinned}
+ * do JFR em processo e, para cada ocorrência acima de {@code threads.pinning-audit.threshold-ms}:
+ * - registra a duração em {@code grimore.threads.pinned}, com a origem (nosso código, PDFBox,
+ *   driver JDBC, Hikari, Hibernate ou outra) tirada do frame mais próximo do topo da pilha
+ * - loga a pilha uma única vez por ponto de pinning
+ *
+ * Vale tanto com {@code spring.threads.virtual.enabled} quanto sem ele: os executores de importação
+ * já rodam em virtual threads.
+ */
+@Slf4j
+@Component
+public class VirtualThreadPinningAudit {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int SITE_FRAMES = 6;
+    private static final int MAX_REPORTED_SITES = 200;
+
+    // prefixo de pacote -> origem; vale o frame mais próximo do topo que casar com algum deles
+    private static final Map<String, String> ORIGINS = Map.of(
+            "com.grimore.", "application",
+            "org.apache.pdfbox.", "pdfbox",
+            "org.apache.fontbox.", "pdfbox",
+            "org.postgresql.", "jdbc",
+            "com.zaxxer.hikari.", "hikari",
+            "org.hibernate.", "hibernate"
+    );
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningAudit(
+            MeterRegistry meterRegistry,
+            @Value("${threads.pinning-audit.enabled}") boolean enabled,
+            @Value("${threads.pinning-audit.threshold-ms}") long thresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.threshold = Duration.ofMillis(thresholdMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning audit started (threshold {} ms)", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String origin = origin(frames);
+
+        Timer.builder("grimore.threads.pinned")
+                .description("Virtual threads pinned to their carrier longer than the audit threshold")
+                .tag("origin", origin)
+                .register(meterRegistry)
+                .record(event.getDuration());
+
+        // a pilha só é útil na primeira vez; depois o contador basta
+        String site = frames.stream()
+                .filter(frame -> frame.isJavaFrame() && !isJdk(frame))
+                .limit(SITE_FRAMES)
+                .map(VirtualThreadPinningAudit::format)
+                .collect(Collectors.joining(" <- "));
+        if (reportedSites.size() < MAX_REPORTED_SITES && reportedSites.add(site)) {
+            log.warn("Virtual thread pinned for {} ms (origin: {}), thread {}:\n{}",
+                    event.getDuration().toMillis(),
+                    origin,
+                    threadName(event),
+                    frames.stream().map(frame -> "\tat " + format(frame)).collect(Collectors.joining("\n")));
+        }
+    }
+
+    private static String origin(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            for (Map.Entry<String, String> entry : ORIGINS.entrySet()) {
+                if (type.startsWith(entry.getKey())) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return "other";
+    }
+
+    private static String threadName(RecordedEvent event) {
+        if (event.getThread() == null) {
+            return "?";
+        }
+        String name = event.getThread().getJavaName();
+        // virtual threads sem nome (ex: newVirtualThreadPerTaskExecutor)
+        return name == null || name.isEmpty() ? "#" + event.getThread().getJavaThreadId() : name;
+    }
+
+    private static boolean isJdk(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return type.startsWith("java.") || type.startsWith("jdk.") || type.startsWith("sun.");
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -1,20 +1,35 @@
 package com.grimore.controller;
 
+import com.grimore.dto.response.AiUsageDTO;
 import com.grimore.dto.response.DisciplineDTO;
+import com.grimore.dto.response.ImportJobDTO;
+import com.grimore.dto.response.PdfBlobDTO;
+import com.grimore.dto.response.PdfBlobReextractionDTO;
 import com.grimore.dto.response.StudentDTO;
 import com.grimore.dto.response.TaskDTO;
+import com.grimore.service.DisciplinePdfImportService;
 import com.grimore.service.DisciplineService;
 import com.grimore.service.StudentService;
 import com.grimore.service.TaskService;
+import com.grimore.service.ai.AiUsageLedger;
+import com.grimore.service.imports.BulkImportService;
+import com.grimore.service.imports.ImportJobService;
+import com.grimore.service.imports.ImportMode;
+import com.grimore.service.pdf.PdfBlobStore;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/admin")
@@ -25,6 +40,11 @@ public class AdminController {
     private final StudentService studentService;
     private final DisciplineService disciplineService;
     private final TaskService taskService;
+    private final BulkImportService bulkImportService;
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final PdfBlobStore pdfBlobStore;
+    private final ImportJobService importJobService;
+    private final AiUsageLedger aiUsageLedger;
 
     // ===== STUDENT ENDPOINTS =====
 
@@ -82,6 +102,54 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping(
+            value = "/imports/enrollment-pdfs",
+            consumes = {"application/zip", MediaType.APPLICATION_OCTET_STREAM_VALUE},
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public SseEmitter bulkImportEnrollmentPdfs(
+            InputStream zip,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+            @RequestParam(defaultValue = "CREATE") ImportMode mode
+    ) {
+        return bulkImportService.importZip(zip, contentLength != null ? contentLength : -1, mode);
+    }
+
+    @GetMapping("/students/{studentId}/pdf-blobs")
+    public ResponseEntity<List<@NonNull PdfBlobDTO>> getStudentPdfBlobs(
+            @PathVariable Integer studentId,
+            @RequestParam(defaultValue = "50") int limit) {
+        List<PdfBlobDTO> blobs = pdfBlobStore.findUploads(studentId, limit);
+        return ResponseEntity.ok(blobs);
+    }
+
+    @PostMapping("/pdf-blobs/{sha256}/reextract")
+    public ResponseEntity<@NonNull PdfBlobReextractionDTO> reextractPdfBlob(@PathVariable String sha256) {
+        PdfBlobReextractionDTO result = disciplinePdfImportService.reextractStoredPdf(sha256);
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/students/{studentId}/ai-usage")
+    public ResponseEntity<@NonNull AiUsageDTO> getStudentAiUsage(
+            @PathVariable Integer studentId,
+            @RequestParam(defaultValue = "31") int days) {
+        AiUsageDTO usage = aiUsageLedger.findUsage(studentId, days);
+        return ResponseEntity.ok(usage);
+    }
+
+    @GetMapping("/imports/dead-letters")
+    public ResponseEntity<List<@NonNull ImportJobDTO>> getDeadLetterImports(
+            @RequestParam(defaultValue = "50") int limit) {
+        List<ImportJobDTO> jobs = importJobService.findDeadLetters(limit);
+        return ResponseEntity.ok(jobs);
+    }
+
+    @PostMapping("/imports/{id}/retry")
+    public ResponseEntity<Void> retryDeadLetterImport(@PathVariable UUID id) {
+        importJobService.retryDeadLetter(id);
+        return ResponseEntity.accepted().build();
+    }
+
     // ===== TASK ENDPOINTS =====
 
     @GetMapping("/tasks")
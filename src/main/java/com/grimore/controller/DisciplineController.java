@@ -6,6 +6,7 @@ import com.grimore.dto.response.DisciplineSummaryDTO;
 import com.grimore.dto.response.ImportDisciplinesResultDTO;
 import com.grimore.service.DisciplinePdfImportService;
 import com.grimore.service.DisciplineService;
+import com.grimore.service.imports.ImportMode;
 import jakarta.validation.Valid;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -33,9 +34,10 @@ public class DisciplineController {
 
     @PostMapping(value = "/import/enrollment-pdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ImportDisciplinesResultDTO> importFromEnrollmentPdf(
-            @RequestPart("file") MultipartFile file
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(defaultValue = "CREATE") ImportMode mode
     ) {
-        ImportDisciplinesResultDTO result = disciplinePdfImportService.importEnrollmentPdf(file);
+        ImportDisciplinesResultDTO result = disciplinePdfImportService.importEnrollmentPdf(file, mode);
         return ResponseEntity.ok(result);
     }
 
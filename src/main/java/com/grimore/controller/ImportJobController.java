@@ -0,0 +1,130 @@
+package com.grimore.controller;
+
+import com.grimore.dto.request.CommitImportPreviewDTO;
+import com.grimore.dto.request.InitiateUploadDTO;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.ImportJobDTO;
+import com.grimore.dto.response.ImportPreviewDTO;
+import com.grimore.dto.response.ResumableUploadDTO;
+import com.grimore.service.imports.ImportJobService;
+import com.grimore.service.imports.ImportMode;
+import com.grimore.service.imports.ImportPreviewService;
+import com.grimore.service.imports.ImportStreamService;
+import com.grimore.service.imports.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/imports")
+@RequiredArgsConstructor
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+    private final ImportStreamService importStreamService;
+    private final ImportPreviewService importPreviewService;
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping(value = "/enrollment-pdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<@NonNull ImportJobDTO> submitEnrollmentPdf(
+            @RequestPart("file") MultipartFile file,
+            @RequestParam(defaultValue = "CREATE") ImportMode mode
+    ) {
+        ImportJobDTO job = importJobService.submitEnrollmentPdf(file, mode);
+        return ResponseEntity.accepted()
+                .location(URI.create("/imports/" + job.id()))
+                .body(job);
+    }
+
+    @PostMapping(
+            value = "/enrollment-pdf/stream",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public SseEmitter streamEnrollmentPdf(@RequestPart("file") MultipartFile file) {
+        return importStreamService.streamEnrollmentPdf(file);
+    }
+
+    @PostMapping(value = "/enrollment-pdf/preview", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<@NonNull ImportPreviewDTO> previewEnrollmentPdf(
+            @RequestPart("file") MultipartFile file
+    ) {
+        ImportPreviewDTO preview = importPreviewService.preview(file);
+        return ResponseEntity.ok(preview);
+    }
+
+    @PostMapping("/previews/{token}/commit")
+    public ResponseEntity<@NonNull ImportDisciplinesResultDTO> commitPreview(
+            @PathVariable UUID token,
+            @Valid @RequestBody(required = false) CommitImportPreviewDTO request
+    ) {
+        ImportDisciplinesResultDTO result = importPreviewService.commit(token, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(result);
+    }
+
+    @DeleteMapping("/previews/{token}")
+    public ResponseEntity<Void> discardPreview(@PathVariable UUID token) {
+        importPreviewService.discard(token);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/uploads")
+    public ResponseEntity<@NonNull ResumableUploadDTO> initiateUpload(
+            @Valid @RequestBody InitiateUploadDTO request
+    ) {
+        ResumableUploadDTO upload = resumableUploadService.initiate(request);
+        return ResponseEntity.created(URI.create("/imports/uploads/" + upload.id()))
+                .body(upload);
+    }
+
+    @PutMapping(value = "/uploads/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<@NonNull ResumableUploadDTO> uploadChunk(
+            @PathVariable UUID id,
+            @RequestParam long offset,
+            HttpServletRequest request
+    ) throws IOException {
+        ResumableUploadDTO upload = resumableUploadService.writeChunk(
+                id, offset, request.getContentLengthLong(), request.getInputStream());
+        return ResponseEntity.ok(upload);
+    }
+
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<@NonNull ResumableUploadDTO> uploadStatus(@PathVariable UUID id) {
+        ResumableUploadDTO upload = resumableUploadService.status(id);
+        return ResponseEntity.ok(upload);
+    }
+
+    @PostMapping("/uploads/{id}/complete")
+    public ResponseEntity<@NonNull ImportJobDTO> completeUpload(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "CREATE") ImportMode mode
+    ) {
+        ImportJobDTO job = resumableUploadService.complete(id, mode);
+        return ResponseEntity.accepted()
+                .location(URI.create("/imports/" + job.id()))
+                .body(job);
+    }
+
+    @DeleteMapping("/uploads/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable UUID id) {
+        resumableUploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<@NonNull ImportJobDTO> findById(@PathVariable UUID id) {
+        ImportJobDTO job = importJobService.findCurrentStudentJob(id);
+        return ResponseEntity.ok(job);
+    }
+}
@@ -0,0 +1,12 @@
+package com.grimore.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+import java.util.List;
+
+/**
+ * Códigos das disciplinas da pré-visualização a importar; vazio ou ausente importa todas.
+ */
+public record CommitImportPreviewDTO(
+        List<@NotBlank(message = "Código da disciplina não pode ser vazio") String> codes
+) {}
@@ -0,0 +1,18 @@
+package com.grimore.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Início de um upload retomável: tamanho total do PDF e, opcionalmente, o SHA-256
+ * conferido na finalização.
+ */
+public record InitiateUploadDTO(
+        @NotNull(message = "Tamanho do arquivo é obrigatório")
+        @Positive(message = "Tamanho do arquivo deve ser positivo")
+        Long sizeBytes,
+
+        @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "SHA-256 deve ter 64 caracteres hexadecimais")
+        String sha256
+) {}
@@ -0,0 +1,24 @@
+package com.grimore.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Uso do LLM pelo estudante na visão deste nó (inclui o que ainda não foi gravado no banco)
+ * e os limites vigentes; limites desligados vêm nulos. {@code days} vem do banco.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AiUsageDTO(
+        Integer studentId,
+        long todayTokens,
+        long monthTokens,
+        BigDecimal todayCostUsd,
+        BigDecimal monthCostUsd,
+        Long dailyTokenLimit,
+        Long monthlyTokenLimit,
+        BigDecimal dailyCostLimitUsd,
+        BigDecimal monthlyCostLimitUsd,
+        List<AiUsageDayDTO> days
+) {}
@@ -0,0 +1,12 @@
+package com.grimore.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record AiUsageDayDTO(
+        LocalDate day,
+        long promptTokens,
+        long completionTokens,
+        BigDecimal costUsd,
+        int calls
+) {}
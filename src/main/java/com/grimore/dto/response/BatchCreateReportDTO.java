@@ -3,7 +3,15 @@ package com.grimore.dto.response;
 import com.grimore.dto.response.DisciplineDTO;
 import java.util.List;
 
+/**
+ * {@code unchangedCount}: linhas que já estavam gravadas com o mesmo conteúdo (só na nova tentativa de um job).
+ */
 public record BatchCreateReportDTO(
         List<DisciplineDTO> created,
+        int unchangedCount,
         List<String> errors
-) {}
+) {
+    public BatchCreateReportDTO(List<DisciplineDTO> created, List<String> errors) {
+        this(created, 0, errors);
+    }
+}
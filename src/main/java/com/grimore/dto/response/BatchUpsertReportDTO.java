@@ -0,0 +1,10 @@
+package com.grimore.dto.response;
+
+import java.util.List;
+
+public record BatchUpsertReportDTO(
+        List<DisciplineDTO> created,
+        int updatedCount,
+        int unchangedCount,
+        List<String> errors
+) {}
@@ -0,0 +1,18 @@
+package com.grimore.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkImportFileResultDTO(
+        String fileName,
+        Integer studentId,
+        boolean success,
+        Integer extractedCount,
+        Integer createdCount,
+        Integer updatedCount,
+        Integer unchangedCount,
+        List<String> errors,
+        String error
+) {}
@@ -0,0 +1,9 @@
+package com.grimore.dto.response;
+
+public record BulkImportSummaryDTO(
+        int totalFiles,
+        int succeeded,
+        int failed,
+        int disciplinesCreated,
+        long elapsedMs
+) {}
@@ -1,10 +1,24 @@
 package com.grimore.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+/**
+ * {@code updatedCount} e {@code unchangedCount} só vêm preenchidos na importação em modo upsert;
+ * {@code unchangedCount} também na nova tentativa de um job da fila em modo create.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public record ImportDisciplinesResultDTO(
         int extractedCount,
         int createdCount,
+        Integer updatedCount,
+        Integer unchangedCount,
         List<DisciplineDTO> created,
         List<String> errors
-) {}
+) {
+    public ImportDisciplinesResultDTO(int extractedCount, int createdCount,
+                                      List<DisciplineDTO> created, List<String> errors) {
+        this(extractedCount, createdCount, null, null, created, errors);
+    }
+}
@@ -0,0 +1,21 @@
+package com.grimore.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.grimore.service.imports.ImportJobStatus;
+import com.grimore.service.imports.ImportStage;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportJobDTO(
+        UUID id,
+        ImportJobStatus status,
+        ImportStage stage,
+        Integer progress,
+        Integer attempts,
+        ImportDisciplinesResultDTO result,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {}
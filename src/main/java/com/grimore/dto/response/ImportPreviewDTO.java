@@ -0,0 +1,15 @@
+package com.grimore.dto.response;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record ImportPreviewDTO(
+        UUID token,
+        int extractedCount,
+        List<ExtractedDisciplineDTO> disciplines,
+        List<ImportRejectionDTO> rejected,
+        LocalDateTime expiresAt
+) {}
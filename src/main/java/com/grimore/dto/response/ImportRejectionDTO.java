@@ -0,0 +1,7 @@
+package com.grimore.dto.response;
+
+public record ImportRejectionDTO(
+        int index,
+        String code,
+        String error
+) {}
@@ -0,0 +1,8 @@
+package com.grimore.dto.response;
+
+import com.grimore.service.imports.ImportStage;
+
+public record ImportStageEventDTO(
+        ImportStage stage,
+        Integer progress
+) {}
@@ -0,0 +1,10 @@
+package com.grimore.dto.response;
+
+import java.time.LocalDateTime;
+
+public record PdfBlobDTO(
+        String sha256,
+        long sizeBytes,
+        long storedBytes,
+        LocalDateTime uploadedAt
+) {}
@@ -0,0 +1,11 @@
+package com.grimore.dto.response;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+
+import java.util.List;
+
+public record PdfBlobReextractionDTO(
+        String sha256,
+        int extractedCount,
+        List<ExtractedDisciplineDTO> disciplines
+) {}
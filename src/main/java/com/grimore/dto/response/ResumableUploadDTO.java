@@ -0,0 +1,14 @@
+package com.grimore.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public record ResumableUploadDTO(
+        UUID id,
+        long sizeBytes,
+        int chunkSizeBytes,
+        long receivedBytes,
+        List<Long> missingOffsets,
+        LocalDateTime expiresAt
+) {}
@@ -0,0 +1,11 @@
+package com.grimore.exception.ratelimit;
+
+/**
+ * Cota diária ou mensal de uso do LLM do estudante esgotada. Diferente de uma fila cheia,
+ * tentar de novo em instantes não adianta: só quando a janela da cota virar.
+ */
+public class AiQuotaExceededException extends RateLimitExceededException {
+    public AiQuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package com.grimore.exception.server;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+
+    public ServiceUnavailableException() {
+        super("Serviço temporariamente indisponível. Por favor tente novamente mais tarde.");
+    }
+
+    public ServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
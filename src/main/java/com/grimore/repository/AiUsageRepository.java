@@ -0,0 +1,91 @@
+package com.grimore.repository;
+
+import com.grimore.dto.response.AiUsageDayDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Livro de uso do LLM por estudante ({@code ai_usage}), uma linha por estudante e dia.
+ * As gravações são incrementos em lote vindos dos contadores em memória do {@code AiUsageLedger}.
+ */
+@Repository
+public class AiUsageRepository {
+
+    private static final String ADD_SQL = """
+            INSERT INTO ai_usage (student_id, day, prompt_tokens, completion_tokens, cost_micros, calls)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (student_id, day) DO UPDATE SET
+                prompt_tokens = ai_usage.prompt_tokens + EXCLUDED.prompt_tokens,
+                completion_tokens = ai_usage.completion_tokens + EXCLUDED.completion_tokens,
+                cost_micros = ai_usage.cost_micros + EXCLUDED.cost_micros,
+                calls = ai_usage.calls + EXCLUDED.calls,
+                updated_at = CURRENT_TIMESTAMP
+            """;
+
+    private static final String TOTALS_SQL = """
+            SELECT student_id,
+                   COALESCE(sum(prompt_tokens + completion_tokens) FILTER (WHERE day = ?), 0) AS day_tokens,
+                   COALESCE(sum(cost_micros) FILTER (WHERE day = ?), 0) AS day_cost_micros,
+                   sum(prompt_tokens + completion_tokens) AS month_tokens,
+                   sum(cost_micros) AS month_cost_micros
+            FROM ai_usage
+            WHERE day >= ? AND day <= ?
+            GROUP BY student_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AiUsageRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record UsageDelta(Integer studentId, LocalDate day, long promptTokens, long completionTokens,
+                             long costMicros, int calls) {}
+
+    public record UsageTotals(Integer studentId, long dayTokens, long dayCostMicros,
+                              long monthTokens, long monthCostMicros) {}
+
+    public void addAll(List<UsageDelta> deltas) {
+        jdbcTemplate.batchUpdate(ADD_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setInt(1, delta.studentId());
+            ps.setDate(2, Date.valueOf(delta.day()));
+            ps.setLong(3, delta.promptTokens());
+            ps.setLong(4, delta.completionTokens());
+            ps.setLong(5, delta.costMicros());
+            ps.setInt(6, delta.calls());
+        });
+    }
+
+    /** Totais do dia {@code today} e do mês até ele, de todos os estudantes com uso no mês. */
+    public List<UsageTotals> findTotals(LocalDate today) {
+        Date day = Date.valueOf(today);
+        return jdbcTemplate.query(TOTALS_SQL, (rs, row) -> new UsageTotals(
+                rs.getInt("student_id"),
+                rs.getLong("day_tokens"),
+                rs.getLong("day_cost_micros"),
+                rs.getLong("month_tokens"),
+                rs.getLong("month_cost_micros")
+        ), day, day, Date.valueOf(today.withDayOfMonth(1)), day);
+    }
+
+    public List<AiUsageDayDTO> findByStudent(Integer studentId, LocalDate from) {
+        return jdbcTemplate.query("""
+                        SELECT day, prompt_tokens, completion_tokens, cost_micros, calls
+                        FROM ai_usage
+                        WHERE student_id = ? AND day >= ?
+                        ORDER BY day DESC
+                        """,
+                (rs, row) -> new AiUsageDayDTO(
+                        rs.getDate("day").toLocalDate(),
+                        rs.getLong("prompt_tokens"),
+                        rs.getLong("completion_tokens"),
+                        BigDecimal.valueOf(rs.getLong("cost_micros"), 6),
+                        rs.getInt("calls")
+                ), studentId, Date.valueOf(from));
+    }
+}
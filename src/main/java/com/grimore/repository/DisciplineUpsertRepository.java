@@ -0,0 +1,122 @@
+package com.grimore.repository;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Gravação das disciplinas importadas sobre o índice parcial {@code uq_disciplines_student_code_active}.
+ *
+ * Upsert em lote em um único comando:
+ *
+ * As linhas vão como arrays paralelos ({@code unnest}), então o SQL é o mesmo para qualquer
+ * quantidade de disciplinas. O conflito é resolvido pelo índice parcial
+ * {@code uq_disciplines_student_code_active}; linhas idênticas às já gravadas não são tocadas
+ * (o {@code WHERE ... IS DISTINCT FROM} evita a escrita e não as retorna).
+ * {@code xmax = 0} identifica as linhas inseridas (versão nova, sem transação que a tenha atualizado).
+ */
+@Repository
+public class DisciplineUpsertRepository {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO disciplines (student_id, name, code, schedule_code, location, workload_hours)
+            SELECT ?, t.name, t.code, t.schedule_code, t.location, t.workload_hours
+            FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+                AS t(name, code, schedule_code, location, workload_hours)
+            ON CONFLICT (student_id, code) WHERE active
+            DO UPDATE SET
+                name = EXCLUDED.name,
+                schedule_code = EXCLUDED.schedule_code,
+                location = EXCLUDED.location,
+                workload_hours = EXCLUDED.workload_hours,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE (disciplines.name, disciplines.schedule_code, disciplines.location, disciplines.workload_hours)
+                IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.schedule_code, EXCLUDED.location, EXCLUDED.workload_hours)
+            RETURNING id, (xmax = 0) AS inserted
+            """;
+
+    private static final String INSERT_IF_ABSENT_SQL = """
+            INSERT INTO disciplines (student_id, name, code, schedule_code, location, workload_hours)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (student_id, code) WHERE active DO NOTHING
+            RETURNING id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DisciplineUpsertRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record UpsertResult(List<Integer> insertedIds, List<Integer> updatedIds) {}
+
+    /**
+     * As disciplinas já devem estar normalizadas, com carga horária definida e sem códigos repetidos
+     * (o Postgres recusa atualizar a mesma linha duas vezes no mesmo comando).
+     */
+    public UpsertResult upsert(Integer studentId, Collection<ExtractedDisciplineDTO> disciplines) {
+        List<Integer> inserted = new ArrayList<>();
+        List<Integer> updated = new ArrayList<>();
+
+        jdbcTemplate.query(connection -> prepare(connection, studentId, disciplines), (ResultSet rs) -> {
+            int id = rs.getInt("id");
+            (rs.getBoolean("inserted") ? inserted : updated).add(id);
+        });
+
+        return new UpsertResult(inserted, updated);
+    }
+
+    /**
+     * Inserção de uma disciplina nova (modo CREATE). Se outra importação do mesmo estudante já
+     * gravou o código, devolve vazio em vez de violar o índice único: uma violação abortaria a
+     * transação inteira no Postgres, e as linhas seguintes do lote falhariam junto.
+     */
+    public Optional<Integer> insertIfAbsent(Integer studentId, ExtractedDisciplineDTO dto) {
+        List<Integer> ids = jdbcTemplate.queryForList(INSERT_IF_ABSENT_SQL, Integer.class,
+                studentId, dto.name(), dto.code(), dto.scheduleCode(), dto.location(), dto.workloadHours().name());
+        return ids.stream().findFirst();
+    }
+
+    private static PreparedStatement prepare(Connection connection, Integer studentId,
+                                             Collection<ExtractedDisciplineDTO> disciplines) throws SQLException {
+        int size = disciplines.size();
+        String[] names = new String[size];
+        String[] codes = new String[size];
+        String[] schedules = new String[size];
+        String[] locations = new String[size];
+        String[] workloads = new String[size];
+
+        int i = 0;
+        for (ExtractedDisciplineDTO dto : disciplines) {
+            names[i] = dto.name();
+            codes[i] = dto.code();
+            schedules[i] = dto.scheduleCode();
+            locations[i] = dto.location();
+            workloads[i] = dto.workloadHours().name();
+            i++;
+        }
+
+        PreparedStatement ps = connection.prepareStatement(UPSERT_SQL);
+        ps.setInt(1, studentId);
+        ps.setArray(2, textArray(connection, names));
+        ps.setArray(3, textArray(connection, codes));
+        ps.setArray(4, textArray(connection, schedules));
+        ps.setArray(5, textArray(connection, locations));
+        ps.setArray(6, textArray(connection, workloads));
+        return ps;
+    }
+
+    private static Array textArray(Connection connection, String[] values) throws SQLException {
+        return connection.createArrayOf("text", values);
+    }
+}
@@ -0,0 +1,290 @@
+package com.grimore.repository;
+
+import com.grimore.service.imports.ImportJobStatus;
+import com.grimore.service.imports.ImportMode;
+import com.grimore.service.imports.ImportStage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Fila durável de importações ({@code import_jobs}).
+ *
+ * Os workers de todos os nós reservam jobs com {@code FOR UPDATE SKIP LOCKED}: cada linha é
+ * entregue a um único worker sem bloquear os demais. Toda escrita de um worker é condicionada
+ * ao {@code lease_owner}, então um worker que perdeu o lease (expirado e reservado por outro nó)
+ * não sobrescreve o estado do job.
+ */
+@Repository
+public class ImportJobRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO import_jobs (id, student_id, mode, max_attempts, pdf)
+            SELECT ?, ?, ?, ?, ?
+            WHERE (SELECT count(*) FROM import_jobs WHERE status = 'QUEUED') < ?
+            """;
+
+    private static final String CLAIM_SQL = """
+            UPDATE import_jobs j
+            SET status = 'RUNNING',
+                attempts = j.attempts + 1,
+                lease_owner = ?,
+                lease_expires_at = now() + ? * INTERVAL '1 millisecond',
+                updated_at = now()
+            FROM (
+                SELECT id FROM import_jobs
+                WHERE status = 'QUEUED' AND available_at <= now()
+                ORDER BY available_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ) next
+            WHERE j.id = next.id
+            RETURNING j.id, j.student_id, j.mode, j.attempts, j.max_attempts, j.persist_started
+            """;
+
+    // sem tentativas restantes vai para DEAD; senão volta para a fila após o backoff
+    private static final String RETRY_OR_BURY_SQL = """
+            UPDATE import_jobs
+            SET status = CASE WHEN attempts >= max_attempts THEN 'DEAD' ELSE 'QUEUED' END,
+                stage = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END,
+                error = ?,
+                available_at = now() + ? * INTERVAL '1 millisecond',
+                lease_owner = NULL,
+                lease_expires_at = NULL,
+                updated_at = now()
+            WHERE id = ? AND lease_owner = ?
+            RETURNING status
+            """;
+
+    private static final String REQUEUE_EXPIRED_SQL = """
+            UPDATE import_jobs
+            SET status = CASE WHEN attempts >= max_attempts THEN 'DEAD' ELSE 'QUEUED' END,
+                stage = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END,
+                error = ?,
+                available_at = now() + ? * INTERVAL '1 millisecond',
+                lease_owner = NULL,
+                lease_expires_at = NULL,
+                updated_at = now()
+            WHERE id IN (
+                SELECT id FROM import_jobs
+                WHERE status = 'RUNNING' AND lease_expires_at < now()
+                FOR UPDATE SKIP LOCKED
+            )
+            """;
+
+    private static final String STATS_SQL = """
+            SELECT count(*) FILTER (WHERE status = 'QUEUED') AS queued,
+                   count(*) FILTER (WHERE status = 'RUNNING') AS running,
+                   count(*) FILTER (WHERE status = 'DEAD') AS dead,
+                   COALESCE(EXTRACT(EPOCH FROM now() - min(created_at) FILTER (WHERE status = 'QUEUED')), 0)
+                       AS oldest_queued_seconds
+            FROM import_jobs
+            WHERE status IN ('QUEUED', 'RUNNING', 'DEAD')
+            """;
+
+    private static final String JOB_COLUMNS =
+            "id, student_id, mode, status, stage, attempts, result, error, created_at, updated_at";
+
+    private static final RowMapper<ImportJobRecord> JOB_MAPPER = (rs, row) -> new ImportJobRecord(
+            rs.getObject("id", UUID.class),
+            rs.getInt("student_id"),
+            ImportMode.valueOf(rs.getString("mode")),
+            ImportJobStatus.valueOf(rs.getString("status")),
+            ImportStage.valueOf(rs.getString("stage")),
+            rs.getInt("attempts"),
+            rs.getString("result"),
+            rs.getString("error"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime()
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ImportJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public record ImportJobRecord(
+            UUID id,
+            Integer studentId,
+            ImportMode mode,
+            ImportJobStatus status,
+            ImportStage stage,
+            int attempts,
+            String result,
+            String error,
+            LocalDateTime createdAt,
+            LocalDateTime updatedAt
+    ) {}
+
+    /** {@code persistStarted}: uma tentativa anterior chegou à etapa {@code PERSISTING}. */
+    public record ClaimedJob(UUID id, Integer studentId, ImportMode mode, int attempt, int maxAttempts,
+                             boolean persistStarted) {}
+
+    public record QueueStats(long queued, long running, long dead, double oldestQueuedSeconds) {}
+
+    /**
+     * Enfileira o job copiando o PDF para a linha. Devolve {@code false} (nada gravado) se já houver
+     * {@code maxDepth} jobs aguardando.
+     */
+    public boolean insert(UUID id, Integer studentId, ImportMode mode, int maxAttempts, Path pdf, int maxDepth) {
+        try (InputStream in = Files.newInputStream(pdf)) {
+            long size = Files.size(pdf);
+            int inserted = jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+                ps.setObject(1, id);
+                ps.setInt(2, studentId);
+                ps.setString(3, mode.name());
+                ps.setInt(4, maxAttempts);
+                ps.setBinaryStream(5, in, size);
+                ps.setInt(6, maxDepth);
+                return ps;
+            });
+            return inserted > 0;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public List<ClaimedJob> claim(String owner, int limit, long leaseMs) {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, row) -> new ClaimedJob(
+                rs.getObject("id", UUID.class),
+                rs.getInt("student_id"),
+                ImportMode.valueOf(rs.getString("mode")),
+                rs.getInt("attempts"),
+                rs.getInt("max_attempts"),
+                rs.getBoolean("persist_started")
+        ), owner, leaseMs, limit);
+    }
+
+    /** Entrega o PDF do job como stream (ex: para gravar em um arquivo temporário). */
+    public <T> Optional<T> readPdf(UUID id, Function<InputStream, T> reader) {
+        List<T> result = jdbcTemplate.query("SELECT pdf FROM import_jobs WHERE id = ? AND pdf IS NOT NULL",
+                (rs, row) -> {
+                    try (InputStream in = rs.getBinaryStream("pdf")) {
+                        return reader.apply(in);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                }, id);
+        return result.stream().findFirst();
+    }
+
+    public int renewLeases(String owner, Collection<UUID> ids, long leaseMs) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update("""
+                        UPDATE import_jobs
+                        SET lease_expires_at = now() + ? * INTERVAL '1 millisecond'
+                        WHERE id = ANY (?) AND lease_owner = ? AND status = 'RUNNING'
+                        """,
+                ps -> {
+                    ps.setLong(1, leaseMs);
+                    ps.setArray(2, ps.getConnection().createArrayOf("uuid", ids.toArray()));
+                    ps.setString(3, owner);
+                });
+    }
+
+    /** Chegar a {@code PERSISTING} marca {@code persist_started}, que sobrevive às novas tentativas. */
+    public boolean updateStage(UUID id, String owner, ImportStage stage) {
+        return jdbcTemplate.update("""
+                        UPDATE import_jobs
+                        SET stage = ?, persist_started = persist_started OR ? = 'PERSISTING', updated_at = now()
+                        WHERE id = ? AND lease_owner = ?
+                        """,
+                stage.name(), stage.name(), id, owner) > 0;
+    }
+
+    public boolean complete(UUID id, String owner, String result) {
+        return finish(id, owner, ImportJobStatus.COMPLETED, ImportStage.COMPLETED, result, null);
+    }
+
+    public boolean fail(UUID id, String owner, String error) {
+        return finish(id, owner, ImportJobStatus.FAILED, ImportStage.FAILED, null, error);
+    }
+
+    /** Devolve o novo estado ({@code QUEUED} ou {@code DEAD}), ou vazio se o lease já não era deste worker. */
+    public Optional<ImportJobStatus> retryOrBury(UUID id, String owner, String error, long backoffMs) {
+        List<ImportJobStatus> status = jdbcTemplate.query(RETRY_OR_BURY_SQL,
+                (rs, row) -> ImportJobStatus.valueOf(rs.getString("status")), error, backoffMs, id, owner);
+        return status.stream().findFirst();
+    }
+
+    /** Devolve à fila um job reservado que não chegou a rodar, sem contar a tentativa. */
+    public void release(UUID id, String owner) {
+        jdbcTemplate.update("""
+                UPDATE import_jobs
+                SET status = 'QUEUED', attempts = attempts - 1, lease_owner = NULL, lease_expires_at = NULL,
+                    updated_at = now()
+                WHERE id = ? AND lease_owner = ?
+                """, id, owner);
+    }
+
+    public int requeueExpiredLeases(String error, long backoffMs) {
+        return jdbcTemplate.update(REQUEUE_EXPIRED_SQL, error, backoffMs);
+    }
+
+    public Optional<ImportJobRecord> findByIdAndStudent(UUID id, Integer studentId) {
+        return jdbcTemplate.query("SELECT " + JOB_COLUMNS + " FROM import_jobs WHERE id = ? AND student_id = ?",
+                JOB_MAPPER, id, studentId).stream().findFirst();
+    }
+
+    public List<ImportJobRecord> findDead(int limit) {
+        return jdbcTemplate.query("SELECT " + JOB_COLUMNS
+                        + " FROM import_jobs WHERE status = 'DEAD' ORDER BY updated_at DESC LIMIT ?",
+                JOB_MAPPER, limit);
+    }
+
+    /** Recoloca um job {@code DEAD} na fila com as tentativas zeradas. */
+    public boolean retryDead(UUID id) {
+        return jdbcTemplate.update("""
+                UPDATE import_jobs
+                SET status = 'QUEUED', stage = 'QUEUED', attempts = 0, error = NULL,
+                    available_at = now(), updated_at = now()
+                WHERE id = ? AND status = 'DEAD' AND pdf IS NOT NULL
+                """, id) > 0;
+    }
+
+    /** Apaga jobs finalizados (e os {@code DEAD}, com prazo próprio) sem atualização há mais que o prazo. */
+    public int deleteFinished(long finishedTtlMinutes, long deadRetentionMinutes) {
+        return jdbcTemplate.update("""
+                DELETE FROM import_jobs
+                WHERE (status IN ('COMPLETED', 'FAILED') AND updated_at < now() - ? * INTERVAL '1 minute')
+                   OR (status = 'DEAD' AND updated_at < now() - ? * INTERVAL '1 minute')
+                """, finishedTtlMinutes, deadRetentionMinutes);
+    }
+
+    public QueueStats stats() {
+        return jdbcTemplate.queryForObject(STATS_SQL, (rs, row) -> new QueueStats(
+                rs.getLong("queued"),
+                rs.getLong("running"),
+                rs.getLong("dead"),
+                rs.getDouble("oldest_queued_seconds")
+        ));
+    }
+
+    private boolean finish(UUID id, String owner, ImportJobStatus status, ImportStage stage,
+                           String result, String error) {
+        return jdbcTemplate.update("""
+                        UPDATE import_jobs
+                        SET status = ?, stage = ?, result = ?, error = ?, pdf = NULL,
+                            lease_owner = NULL, lease_expires_at = NULL, updated_at = now()
+                        WHERE id = ? AND lease_owner = ?
+                        """,
+                status.name(), stage.name(), result, error, id, owner) > 0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.grimore.repository;
+
+import com.grimore.dto.response.PdfBlobDTO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Índice do blob store de PDFs ({@code pdf_blobs}) e dos envios de cada estudante
+ * ({@code pdf_blob_uploads}). Os bytes ficam no disco, aqui só o hash e os tamanhos.
+ */
+@Repository
+public class PdfBlobRepository {
+
+    // um único comando: registra o blob (ou conta mais um envio) e o envio do estudante
+    private static final String RECORD_UPLOAD_SQL = """
+            WITH blob AS (
+                INSERT INTO pdf_blobs (sha256, size_bytes, stored_bytes)
+                VALUES (?, ?, ?)
+                ON CONFLICT (sha256) DO UPDATE SET
+                    upload_count = pdf_blobs.upload_count + 1,
+                    last_uploaded_at = CURRENT_TIMESTAMP
+                RETURNING sha256
+            )
+            INSERT INTO pdf_blob_uploads (sha256, student_id)
+            SELECT sha256, ? FROM blob
+            """;
+
+    private static final String FIND_BY_STUDENT_SQL = """
+            SELECT b.sha256, b.size_bytes, b.stored_bytes, u.uploaded_at
+            FROM pdf_blob_uploads u
+            JOIN pdf_blobs b ON b.sha256 = u.sha256
+            WHERE u.student_id = ?
+            ORDER BY u.uploaded_at DESC
+            LIMIT ?
+            """;
+
+    // vencidos (sem envio desde o corte) ou órfãos (os envios sumiram junto com o estudante)
+    private static final String DELETE_EXPIRED_SQL = """
+            DELETE FROM pdf_blobs
+            WHERE sha256 IN (
+                SELECT b.sha256 FROM pdf_blobs b
+                WHERE b.last_uploaded_at < ?
+                   OR NOT EXISTS (SELECT 1 FROM pdf_blob_uploads u WHERE u.sha256 = b.sha256)
+                LIMIT ?
+            )
+            RETURNING sha256
+            """;
+
+    private static final String FIND_EXISTING_SQL = """
+            SELECT b.sha256
+            FROM unnest(?::text[]) AS t(sha256)
+            JOIN pdf_blobs b ON b.sha256 = t.sha256::char(64)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PdfBlobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordUpload(String sha256, long sizeBytes, long storedBytes, Integer studentId) {
+        jdbcTemplate.update(RECORD_UPLOAD_SQL, sha256, sizeBytes, storedBytes, studentId);
+    }
+
+    public boolean exists(String sha256) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pdf_blobs WHERE sha256 = ?)", Boolean.class, sha256);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    /** Remove até {@code limit} blobs vencidos ou órfãos (os envios caem em cascata) e devolve os hashes. */
+    public List<String> deleteExpired(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(DELETE_EXPIRED_SQL, String.class, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /** Quais dos hashes informados ainda estão no índice. */
+    public Set<String> findExisting(Collection<String> sha256s) {
+        if (sha256s.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(FIND_EXISTING_SQL);
+                    ps.setArray(1, connection.createArrayOf("text", sha256s.toArray()));
+                    return ps;
+                },
+                (rs, row) -> rs.getString("sha256")));
+    }
+
+    public List<PdfBlobDTO> findByStudent(Integer studentId, int limit) {
+        return jdbcTemplate.query(FIND_BY_STUDENT_SQL, (rs, row) -> new PdfBlobDTO(
+                rs.getString("sha256"),
+                rs.getLong("size_bytes"),
+                rs.getLong("stored_bytes"),
+                rs.getTimestamp("uploaded_at").toLocalDateTime()
+        ), studentId, limit);
+    }
+}
@@ -2,27 +2,365 @@ package com.grimore.service;
 
 import com.grimore.dto.request.ExtractedDisciplineDTO;
 import com.grimore.dto.response.BatchCreateReportDTO;
+import com.grimore.dto.response.BatchUpsertReportDTO;
 import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.PdfBlobReextractionDTO;
+import com.grimore.exception.server.ServiceUnavailableException;
 import com.grimore.exception.validation.BadRequestException;
+import com.grimore.security.SecurityUtils;
 import com.grimore.service.ai.EnrollmentPdfAiExtractor;
+import com.grimore.service.cache.ExtractionCacheService;
+import com.grimore.service.imports.ImportMetrics;
+import com.grimore.service.imports.ImportMode;
+import com.grimore.service.imports.ImportProgressListener;
+import com.grimore.service.imports.ImportStage;
+import com.grimore.service.pdf.EnrollmentPdfRuleExtractor;
+import com.grimore.service.pdf.PdfBlobStore;
 import com.grimore.service.pdf.PdfTextExtractor;
+import com.grimore.service.pdf.PdfUploadStorage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DisciplinePdfImportService {
 
     private final PdfTextExtractor pdfTextExtractor;
+    private final EnrollmentPdfRuleExtractor enrollmentPdfRuleExtractor;
     private final EnrollmentPdfAiExtractor enrollmentPdfAiExtractor;
     private final DisciplineService disciplineService;
+    private final ExtractionCacheService extractionCacheService;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final PdfBlobStore pdfBlobStore;
+    private final ImportMetrics importMetrics;
 
-    public ImportDisciplinesResultDTO importEnrollmentPdf(MultipartFile file) {
+    @Value("${imports.pdf.max-size-mb}")
+    private long maxPdfSizeMb;
+
+    public ImportDisciplinesResultDTO importEnrollmentPdf(MultipartFile file, ImportMode mode) {
+        validateUpload(file);
+
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+        Path pdf = pdfUploadStorage.spool(file);
+
+        try {
+            return importEnrollmentPdf(pdf, studentId, ImportProgressListener.NOOP, mode);
+        } finally {
+            pdfUploadStorage.discard(pdf);
+        }
+    }
+
+    /**
+     * Variante usada fora da thread da requisição (jobs assíncronos):
+     * o PDF já está em disco e o estudante é informado explicitamente.
+     */
+    public ImportDisciplinesResultDTO importEnrollmentPdf(Path pdf, Integer studentId, ImportProgressListener listener) {
+        return importEnrollmentPdf(pdf, studentId, listener, ImportMode.CREATE);
+    }
+
+    public ImportDisciplinesResultDTO importEnrollmentPdf(Path pdf, Integer studentId, ImportProgressListener listener,
+                                                          ImportMode mode) {
+        return importEnrollmentPdf(pdf, studentId, listener, mode, false);
+    }
+
+    /**
+     * {@code redelivered}: nova tentativa de um job da fila. Em {@link ImportMode#CREATE}, disciplinas
+     * já ativas com o mesmo conteúdo contam como inalteradas em vez de duplicidade.
+     */
+    public ImportDisciplinesResultDTO importEnrollmentPdf(Path pdf, Integer studentId, ImportProgressListener listener,
+                                                          ImportMode mode, boolean redelivered) {
+        long start = System.nanoTime();
+        String result = ImportMetrics.FAILURE;
+
+        try {
+            // um único hash dos bytes serve ao blob store e ao cache de extrações
+            String sha256 = extractionCacheService.pdfHash(pdf);
+            pdfBlobStore.storeInBackground(pdf, sha256, studentId);
+            List<ExtractedDisciplineDTO> extracted = validate(extractDisciplines(pdf, sha256, studentId, listener));
+
+            listener.onStage(ImportStage.PERSISTING);
+            ImportDisciplinesResultDTO imported = importMetrics.time(ImportMetrics.Stage.PERSISTENCE,
+                    () -> persist(studentId, extracted, mode, redelivered));
+
+            result = ImportMetrics.SUCCESS;
+            return imported;
+        } finally {
+            importMetrics.recordImport(mode, result, System.nanoTime() - start);
+        }
+    }
+
+    private ImportDisciplinesResultDTO persist(Integer studentId, List<ExtractedDisciplineDTO> extracted, ImportMode mode,
+                                               boolean redelivered) {
+        if (mode == ImportMode.UPSERT) {
+            BatchUpsertReportDTO report = disciplineService.upsertBatchFromExtracted(studentId, extracted);
+            return new ImportDisciplinesResultDTO(
+                    extracted.size(),
+                    report.created().size(),
+                    report.updatedCount(),
+                    report.unchangedCount(),
+                    report.created(),
+                    report.errors()
+            );
+        }
+
+        BatchCreateReportDTO report = disciplineService.createBatchFromExtractedWithReport(studentId, extracted, redelivered);
+        if (redelivered) {
+            return new ImportDisciplinesResultDTO(
+                    extracted.size(),
+                    report.created().size(),
+                    null,
+                    report.unchangedCount(),
+                    report.created(),
+                    report.errors()
+            );
+        }
+        return toResult(extracted, report);
+    }
+
+    /**
+     * Normaliza as linhas válidas antes da persistência. As inválidas seguem como vieram,
+     * para o relatório manter a numeração e o motivo do erro.
+     */
+    private List<ExtractedDisciplineDTO> validate(List<ExtractedDisciplineDTO> extracted) {
+        return importMetrics.time(ImportMetrics.Stage.VALIDATION, () -> {
+            List<ExtractedDisciplineDTO> rows = new ArrayList<>(extracted.size());
+            int valid = 0;
+            for (ExtractedDisciplineDTO dto : extracted) {
+                try {
+                    rows.add(disciplineService.normalizeExtracted(dto));
+                    valid++;
+                } catch (BadRequestException ex) {
+                    rows.add(dto);
+                }
+            }
+            importMetrics.recordRows(valid, extracted.size() - valid);
+            return rows;
+        });
+    }
+
+    /**
+     * PDF -> texto -> disciplinas, consultando o cache por hash dos bytes e depois
+     * por hash do texto antes de pagar pelo parse e pela chamada ao LLM.
+     * O parser determinístico é tentado primeiro; o LLM só entra com baixa confiança.
+     */
+    public List<ExtractedDisciplineDTO> extractDisciplines(Path pdf, Integer studentId, ImportProgressListener listener) {
+        return extractDisciplines(pdf, extractionCacheService.pdfHash(pdf), studentId, listener);
+    }
+
+    /** Variante para quem já calculou o hash do PDF ({@link ExtractionCacheService#pdfHash}). */
+    public List<ExtractedDisciplineDTO> extractDisciplines(Path pdf, String sha256, Integer studentId,
+                                                           ImportProgressListener listener) {
+        String pdfKey = extractionCacheService.pdfKey(sha256);
+        AtomicBoolean extractedNow = new AtomicBoolean();
+
+        try {
+            List<ExtractedDisciplineDTO> extracted = extractionCacheService.getOrCompute(pdfKey, () -> {
+                listener.onStage(ImportStage.PARSING);
+                String text = pdfTextExtractor.extractText(pdf);
+
+                listener.onStage(ImportStage.EXTRACTING);
+                String textKey = extractionCacheService.textKey(text);
+                return extractionCacheService.getOrCompute(textKey, () -> {
+                    extractedNow.set(true);
+                    return extractFromText(text, studentId);
+                });
+            });
+
+            if (!extractedNow.get()) {
+                importMetrics.recordOutcome(ImportMetrics.Outcome.CACHE_HIT);
+            }
+            return extracted;
+        } catch (DegradedExtraction degraded) {
+            return degraded.disciplines;
+        } catch (RuntimeException ex) {
+            importMetrics.recordOutcome(ImportMetrics.Outcome.FAILED);
+            throw ex;
+        }
+    }
+
+    /**
+     * Mesma ordem de {@link #extractDisciplines}, mas entregando cada disciplina assim que
+     * ela fica disponível. Acertos de cache e o parser determinístico entregam tudo de uma vez;
+     * o LLM entrega conforme o stream avança. Como em {@link #importEnrollmentPdf}, o PDF vai
+     * para o {@link PdfBlobStore} e cada linha é validada antes da entrega: as normalizadas
+     * seguem para {@code onDiscipline}, as inválidas para {@code onInvalid} com o motivo.
+     */
+    public List<ExtractedDisciplineDTO> extractDisciplinesStreaming(
+            Path pdf, Integer studentId, ImportProgressListener listener,
+            Consumer<ExtractedDisciplineDTO> onDiscipline, BiConsumer<ExtractedDisciplineDTO, String> onInvalid) {
+        String sha256 = extractionCacheService.pdfHash(pdf);
+        pdfBlobStore.storeInBackground(pdf, sha256, studentId);
+
+        StreamedRowValidator validator = new StreamedRowValidator(onDiscipline, onInvalid);
+        try {
+            return extractDisciplinesStreaming(pdf, sha256, studentId, listener, validator);
+        } finally {
+            validator.record();
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> extractDisciplinesStreaming(
+            Path pdf, String sha256, Integer studentId, ImportProgressListener listener,
+            Consumer<ExtractedDisciplineDTO> onDiscipline) {
+        String pdfKey = extractionCacheService.pdfKey(sha256);
+
+        Optional<List<ExtractedDisciplineDTO>> cached = extractionCacheService.get(pdfKey);
+        if (cached.isPresent()) {
+            importMetrics.recordOutcome(ImportMetrics.Outcome.CACHE_HIT);
+            cached.get().forEach(onDiscipline);
+            return cached.get();
+        }
+
+        try {
+            listener.onStage(ImportStage.PARSING);
+            String text = pdfTextExtractor.extractText(pdf);
+
+            listener.onStage(ImportStage.EXTRACTING);
+            String textKey = extractionCacheService.textKey(text);
+
+            List<ExtractedDisciplineDTO> extracted;
+            Optional<List<ExtractedDisciplineDTO>> cachedText = extractionCacheService.get(textKey);
+            if (cachedText.isPresent()) {
+                importMetrics.recordOutcome(ImportMetrics.Outcome.CACHE_HIT);
+                extracted = cachedText.get();
+                extracted.forEach(onDiscipline);
+            } else {
+                try {
+                    extracted = extractFromTextStreaming(text, studentId, onDiscipline);
+                } catch (DegradedExtraction degraded) {
+                    return degraded.disciplines;
+                }
+                extractionCacheService.put(textKey, extracted);
+            }
+
+            extractionCacheService.put(pdfKey, extracted);
+            return extracted;
+        } catch (RuntimeException ex) {
+            importMetrics.recordOutcome(ImportMetrics.Outcome.FAILED);
+            throw ex;
+        }
+    }
+
+    /**
+     * Reprocessa um PDF guardado no {@link PdfBlobStore} (ex: após uma melhoria no parser),
+     * ignorando o cache de extrações e substituindo as entradas dele pelo resultado novo.
+     * Nada é persistido nas disciplinas do estudante.
+     */
+    public PdfBlobReextractionDTO reextractStoredPdf(String sha256) {
+        Path pdf = pdfBlobStore.restore(sha256);
+        try {
+            String text = pdfTextExtractor.extractText(pdf);
+
+            List<ExtractedDisciplineDTO> extracted;
+            try {
+                // reprocessamento do admin: não conta na cota de nenhum estudante
+                extracted = extractFromText(text, null);
+                extractionCacheService.put(extractionCacheService.pdfKey(pdf), extracted);
+                extractionCacheService.put(extractionCacheService.textKey(text), extracted);
+            } catch (DegradedExtraction degraded) {
+                extracted = degraded.disciplines;
+            }
+
+            log.info("Stored PDF {} re-extracted: {} disciplines", sha256, extracted.size());
+            return new PdfBlobReextractionDTO(sha256, extracted.size(), extracted);
+        } finally {
+            pdfUploadStorage.discard(pdf);
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> extractFromTextStreaming(String text, Integer studentId,
+                                                                  Consumer<ExtractedDisciplineDTO> onDiscipline) {
+        EnrollmentPdfRuleExtractor.RuleExtraction rules = extractWithRules(text);
+        if (rules.confident()) {
+            log.info("Enrollment PDF parsed locally: {} disciplines", rules.disciplines().size());
+            importMetrics.recordOutcome(ImportMetrics.Outcome.RULES);
+            rules.disciplines().forEach(onDiscipline);
+            return rules.disciplines();
+        }
+
+        log.info("Rule extraction confidence {} below threshold, streaming from AI extractor", rules.confidence());
+
+        // o stream pode cair no meio; o fallback só entrega o que o modelo ainda não entregou
+        Set<String> emitted = new HashSet<>();
+        try {
+            List<ExtractedDisciplineDTO> extracted = importMetrics.time(ImportMetrics.Stage.LLM,
+                    () -> enrollmentPdfAiExtractor.extractStreaming(text, studentId, dto -> {
+                        emitted.add(normalizeCode(dto));
+                        onDiscipline.accept(dto);
+                    }));
+            importMetrics.recordOutcome(ImportMetrics.Outcome.LLM);
+            return extracted;
+        } catch (ServiceUnavailableException ex) {
+            List<ExtractedDisciplineDTO> fallback = fallbackToRules(rules, ex);
+            fallback.stream()
+                    .filter(dto -> !emitted.contains(normalizeCode(dto)))
+                    .forEach(onDiscipline);
+            importMetrics.recordOutcome(ImportMetrics.Outcome.DEGRADED);
+            throw new DegradedExtraction(fallback);
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> extractFromText(String text, Integer studentId) {
+        EnrollmentPdfRuleExtractor.RuleExtraction rules = extractWithRules(text);
+        if (rules.confident()) {
+            log.info("Enrollment PDF parsed locally: {} disciplines", rules.disciplines().size());
+            importMetrics.recordOutcome(ImportMetrics.Outcome.RULES);
+            return rules.disciplines();
+        }
+
+        log.info("Rule extraction confidence {} below threshold, falling back to AI extractor", rules.confidence());
+        try {
+            List<ExtractedDisciplineDTO> extracted = importMetrics.time(ImportMetrics.Stage.LLM,
+                    () -> enrollmentPdfAiExtractor.extract(text, studentId));
+            importMetrics.recordOutcome(ImportMetrics.Outcome.LLM);
+            return extracted;
+        } catch (ServiceUnavailableException ex) {
+            List<ExtractedDisciplineDTO> fallback = fallbackToRules(rules, ex);
+            importMetrics.recordOutcome(ImportMetrics.Outcome.DEGRADED);
+            throw new DegradedExtraction(fallback);
+        }
+    }
+
+    private EnrollmentPdfRuleExtractor.RuleExtraction extractWithRules(String text) {
+        return importMetrics.time(ImportMetrics.Stage.RULES, () -> enrollmentPdfRuleExtractor.extract(text));
+    }
+
+    /**
+     * Com o LLM indisponível (breaker aberto, fila cheia, prazo estourado), usa o que o
+     * parser determinístico conseguiu extrair, mesmo abaixo da confiança mínima.
+     */
+    private List<ExtractedDisciplineDTO> fallbackToRules(EnrollmentPdfRuleExtractor.RuleExtraction rules,
+                                                         ServiceUnavailableException ex) {
+        if (rules.disciplines().isEmpty()) {
+            throw ex;
+        }
+
+        log.warn("AI extractor unavailable ({}), using {} locally parsed disciplines",
+                ex.getMessage(), rules.disciplines().size());
+        return rules.disciplines();
+    }
+
+    private static String normalizeCode(ExtractedDisciplineDTO dto) {
+        return dto.code() != null ? dto.code().replaceAll("\\s+", "").toUpperCase() : "";
+    }
+
+    public void validateUpload(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new BadRequestException("Arquivo PDF é obrigatório");
         }
@@ -33,11 +371,71 @@ public class DisciplinePdfImportService {
             throw new BadRequestException("Arquivo inválido. Envie um PDF.");
         }
 
-        String text = pdfTextExtractor.extractText(file);
-        List<ExtractedDisciplineDTO> extracted = enrollmentPdfAiExtractor.extract(text);
+        // o limite do multipart é global (acomoda o zip da importação em lote)
+        if (file.getSize() > maxPdfSizeMb * 1024 * 1024) {
+            throw new BadRequestException("Arquivo excede o tamanho máximo de " + maxPdfSizeMb + "MB");
+        }
+    }
+
+    /**
+     * Validação de {@link #validate} aplicada linha a linha no streaming; as contagens e o tempo
+     * gasto entram nas mesmas métricas quando a extração termina.
+     */
+    private final class StreamedRowValidator implements Consumer<ExtractedDisciplineDTO> {
+
+        private final Consumer<ExtractedDisciplineDTO> onValid;
+        private final BiConsumer<ExtractedDisciplineDTO, String> onInvalid;
+        private int valid;
+        private int invalid;
+        private long nanos;
+
+        private StreamedRowValidator(Consumer<ExtractedDisciplineDTO> onValid,
+                                     BiConsumer<ExtractedDisciplineDTO, String> onInvalid) {
+            this.onValid = onValid;
+            this.onInvalid = onInvalid;
+        }
+
+        @Override
+        public void accept(ExtractedDisciplineDTO dto) {
+            long start = System.nanoTime();
+            ExtractedDisciplineDTO normalized;
+            try {
+                normalized = disciplineService.normalizeExtracted(dto);
+            } catch (BadRequestException ex) {
+                nanos += System.nanoTime() - start;
+                invalid++;
+                onInvalid.accept(dto, ex.getMessage());
+                return;
+            }
+            nanos += System.nanoTime() - start;
+            valid++;
+            onValid.accept(normalized);
+        }
+
+        private void record() {
+            if (valid + invalid == 0) {
+                return;
+            }
+            importMetrics.recordStage(ImportMetrics.Stage.VALIDATION, ImportMetrics.SUCCESS, nanos);
+            importMetrics.recordRows(valid, invalid);
+        }
+    }
+
+    /**
+     * Resultado obtido pelo fallback local. Propaga como exceção para atravessar o
+     * {@link ExtractionCacheService#getOrCompute} sem ser gravado no cache.
+     */
+    private static final class DegradedExtraction extends RuntimeException {
+
+        private final transient List<ExtractedDisciplineDTO> disciplines;
 
-        BatchCreateReportDTO report = disciplineService.createBatchFromExtractedWithReport(extracted);
+        private DegradedExtraction(List<ExtractedDisciplineDTO> disciplines) {
+            super(null, null, false, false);
+            this.disciplines = disciplines;
+        }
+    }
 
+    private ImportDisciplinesResultDTO toResult(List<ExtractedDisciplineDTO> extracted, BatchCreateReportDTO report) {
         return new ImportDisciplinesResultDTO(
                 extracted.size(),
                 report.created().size(),
@@ -3,6 +3,7 @@ package com.grimore.service;
 import com.grimore.dto.request.CreateDisciplineDTO;
 import com.grimore.dto.request.ExtractedDisciplineDTO;
 import com.grimore.dto.response.BatchCreateReportDTO;
+import com.grimore.dto.response.BatchUpsertReportDTO;
 import com.grimore.dto.response.DisciplineDTO;
 import com.grimore.dto.response.DisciplineSummaryDTO;
 import com.grimore.enums.WorkloadHours;
@@ -13,6 +14,7 @@ import com.grimore.mapper.DisciplineMapper;
 import com.grimore.model.Discipline;
 import com.grimore.model.Student;
 import com.grimore.repository.DisciplineRepository;
+import com.grimore.repository.DisciplineUpsertRepository;
 import com.grimore.repository.StudentRepository;
 import com.grimore.security.SecurityUtils;
 import com.grimore.util.ScheduleCodeParser;
@@ -24,13 +26,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DisciplineService {
     private final DisciplineRepository disciplineRepository;
+    private final DisciplineUpsertRepository disciplineUpsertRepository;
     private final StudentRepository studentRepository;
     private final DisciplineMapper mapper;
 
@@ -40,51 +47,66 @@ public class DisciplineService {
             throw new BadRequestException("Lista de disciplinas não pode ser vazia");
         }
 
-        Integer currentStudentId = SecurityUtils.getCurrentStudentId();
-        Student student = findStudentById(currentStudentId);
+        return createBatchFromExtractedWithReport(SecurityUtils.getCurrentStudentId(), dtos);
+    }
 
-        List<DisciplineDTO> createdDisciplines = new ArrayList<>();
+    /**
+     * Variante com estudante explícito, para execuções fora da thread da requisição
+     * (ex: importações assíncronas), onde não há SecurityContext.
+     */
+    @Transactional
+    public BatchCreateReportDTO createBatchFromExtractedWithReport(Integer currentStudentId, List<ExtractedDisciplineDTO> dtos) {
+        return createBatchFromExtractedWithReport(currentStudentId, dtos, false);
+    }
+
+    /**
+     * {@code skipIdentical}: disciplinas já ativas com o mesmo nome, horário, local e carga horária
+     * contam como inalteradas em vez de duplicidade. Usado na nova tentativa de um job da fila, que
+     * pode encontrar o que uma tentativa anterior gravou antes de perder o lease.
+     */
+    @Transactional
+    public BatchCreateReportDTO createBatchFromExtractedWithReport(Integer currentStudentId, List<ExtractedDisciplineDTO> dtos,
+                                                                   boolean skipIdentical) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new BadRequestException("Lista de disciplinas não pode ser vazia");
+        }
+
+        findStudentById(currentStudentId);
+
+        Map<String, Discipline> existing = new LinkedHashMap<>();
+        if (skipIdentical) {
+            disciplineRepository.findByStudentIdAndActiveTrue(currentStudentId)
+                    .forEach(discipline -> existing.put(discipline.getCode(), discipline));
+        }
+
+        List<Integer> createdIds = new ArrayList<>();
         List<String> errors = new ArrayList<>();
+        int unchanged = 0;
 
         for (int i = 0; i < dtos.size(); i++) {
             ExtractedDisciplineDTO dto = dtos.get(i);
             try {
-                validateExtractedDTO(dto);
-
-                String code = dto.code().trim().toUpperCase();
-                String schedule = normalizeScheduleCode(dto.scheduleCode());
-                String name = dto.name().trim();
-                String location = dto.location() != null ? dto.location().trim() : null;
-
-                ExtractedDisciplineDTO normalized = new ExtractedDisciplineDTO(
-                        name, code, schedule, location, dto.workloadHours()
-                );
-
-                validateDuplicateCode(currentStudentId, normalized.code());
-                validateScheduleCode(normalized.scheduleCode());
-                verifyScheduleConflict(currentStudentId, normalized.scheduleCode(), null);
+                ExtractedDisciplineDTO normalized = normalizeExtracted(dto);
 
                 WorkloadHours workload = normalized.workloadHours() != null
                         ? normalized.workloadHours()
                         : ScheduleCodeParser.inferWorkloadFromScheduleCode(normalized.scheduleCode());
 
-                CreateDisciplineDTO createDTO = new CreateDisciplineDTO(
-                        normalized.name(),
-                        normalized.code(),
-                        normalized.scheduleCode(),
-                        normalized.location(),
-                        "#6366F1",
-                        workload
-                );
-
-                Discipline discipline = mapper.toEntity(createDTO);
-                discipline.setStudent(student);
+                if (isIdentical(existing.get(normalized.code()), normalized, workload)) {
+                    unchanged++;
+                    continue;
+                }
 
-                discipline.setCode(normalized.code());
-                discipline.setScheduleCode(normalized.scheduleCode());
+                validateDuplicateCode(currentStudentId, normalized.code());
+                verifyScheduleConflict(currentStudentId, normalized.scheduleCode(), null);
 
-                Discipline saved = disciplineRepository.save(discipline);
-                createdDisciplines.add(mapper.toDTO(saved));
+                // ON CONFLICT DO NOTHING: uma importação concorrente que gravou o mesmo código vira
+                // erro desta linha, sem abortar a transação e perder as demais
+                Integer id = disciplineUpsertRepository.insertIfAbsent(currentStudentId, new ExtractedDisciplineDTO(
+                                normalized.name(), normalized.code(), normalized.scheduleCode(), normalized.location(), workload))
+                        .orElseThrow(() -> new ConflictException(
+                                "Disciplina ativa com código '" + normalized.code() + "' já existe para este estudante"));
+                createdIds.add(id);
 
             } catch (Exception ex) {
                 String error = String.format("Disciplina %d (%s): %s",
@@ -96,11 +118,122 @@ public class DisciplineService {
             }
         }
 
-        if (createdDisciplines.isEmpty()) {
+        // ids seriais: a ordem crescente é a ordem do lote
+        List<DisciplineDTO> createdDisciplines = disciplineRepository.findAllById(createdIds).stream()
+                .sorted(Comparator.comparing(Discipline::getId))
+                .map(mapper::toDTO)
+                .toList();
+
+        if (createdDisciplines.isEmpty() && unchanged == 0) {
             throw new BadRequestException("Nenhuma disciplina pôde ser criada. Erros: " + String.join("; ", errors));
         }
 
-        return new BatchCreateReportDTO(createdDisciplines, errors);
+        return new BatchCreateReportDTO(createdDisciplines, unchanged, errors);
+    }
+
+    private boolean isIdentical(Discipline existing, ExtractedDisciplineDTO normalized, WorkloadHours workload) {
+        return existing != null
+                && Objects.equals(existing.getName(), normalized.name())
+                && Objects.equals(normalizeScheduleCode(existing.getScheduleCode()), normalized.scheduleCode())
+                && Objects.equals(existing.getLocation(), normalized.location())
+                && existing.getWorkloadHours() == workload;
+    }
+
+    /**
+     * Reimportação idempotente: cria as disciplinas novas e atualiza as já ativas (pelo código)
+     * em um único INSERT ... ON CONFLICT, em vez de uma falha de duplicidade por linha.
+     *
+     * Conflitos de horário são verificados em memória contra as disciplinas ativas do estudante
+     * (uma consulta); a disciplina que será substituída pelo mesmo código não conta como conflito.
+     */
+    @Transactional
+    public BatchUpsertReportDTO upsertBatchFromExtracted(Integer currentStudentId, List<ExtractedDisciplineDTO> dtos) {
+        if (dtos == null || dtos.isEmpty()) {
+            throw new BadRequestException("Lista de disciplinas não pode ser vazia");
+        }
+
+        findStudentById(currentStudentId);
+
+        // horário vigente por código, já considerando as linhas aceitas deste lote
+        Map<String, String> schedules = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (Discipline existing : disciplineRepository.findByStudentIdAndActiveTrue(currentStudentId)) {
+            schedules.put(existing.getCode(), normalizeScheduleCode(existing.getScheduleCode()));
+            names.put(existing.getCode(), existing.getName());
+        }
+
+        Map<String, ExtractedDisciplineDTO> accepted = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+
+        for (int i = 0; i < dtos.size(); i++) {
+            ExtractedDisciplineDTO dto = dtos.get(i);
+            try {
+                ExtractedDisciplineDTO normalized = normalizeExtracted(dto);
+
+                WorkloadHours workload = normalized.workloadHours() != null
+                        ? normalized.workloadHours()
+                        : ScheduleCodeParser.inferWorkloadFromScheduleCode(normalized.scheduleCode());
+
+                for (Map.Entry<String, String> other : schedules.entrySet()) {
+                    if (!other.getKey().equals(normalized.code())
+                            && other.getValue() != null && !other.getValue().isBlank()
+                            && ScheduleCodeParser.hasConflict(normalized.scheduleCode(), other.getValue())) {
+                        throw new ConflictException(String.format(
+                                "Conflito de horário detectado com a disciplina '%s' (%s). Novo horário: %s. Horário existente: %s.",
+                                names.get(other.getKey()), other.getKey(), normalized.scheduleCode(), other.getValue()));
+                    }
+                }
+
+                accepted.put(normalized.code(), new ExtractedDisciplineDTO(
+                        normalized.name(), normalized.code(), normalized.scheduleCode(), normalized.location(), workload));
+                schedules.put(normalized.code(), normalized.scheduleCode());
+                names.put(normalized.code(), normalized.name());
+
+            } catch (Exception ex) {
+                errors.add(String.format("Disciplina %d (%s): %s",
+                        i + 1,
+                        dto.code() != null ? dto.code() : "sem código",
+                        ex.getMessage()
+                ));
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            throw new BadRequestException("Nenhuma disciplina pôde ser importada. Erros: " + String.join("; ", errors));
+        }
+
+        DisciplineUpsertRepository.UpsertResult result =
+                disciplineUpsertRepository.upsert(currentStudentId, accepted.values());
+
+        List<DisciplineDTO> created = disciplineRepository.findAllById(result.insertedIds()).stream()
+                .map(mapper::toDTO)
+                .toList();
+        int updated = result.updatedIds().size();
+        int unchanged = accepted.size() - created.size() - updated;
+
+        log.info("Upserted disciplines for student {}: {} created, {} updated, {} unchanged, {} errors",
+                currentStudentId, created.size(), updated, unchanged, errors.size());
+
+        return new BatchUpsertReportDTO(created, updated, unchanged, errors);
+    }
+
+    /**
+     * Valida e normaliza uma disciplina extraída sem consultar o banco
+     * (código, nome e horário). Duplicidade e conflito de horário ficam para a persistência.
+     */
+    public ExtractedDisciplineDTO normalizeExtracted(ExtractedDisciplineDTO dto) {
+        validateExtractedDTO(dto);
+
+        ExtractedDisciplineDTO normalized = new ExtractedDisciplineDTO(
+                dto.name().trim(),
+                dto.code().trim().toUpperCase(),
+                normalizeScheduleCode(dto.scheduleCode()),
+                dto.location() != null ? dto.location().trim() : null,
+                dto.workloadHours()
+        );
+
+        validateScheduleCode(normalized.scheduleCode());
+        return normalized;
     }
 
     // ==================== Métodos para Estudante Autenticado ====================
@@ -161,7 +294,16 @@ public class DisciplineService {
     @Transactional
     public DisciplineDTO createFromExtracted(ExtractedDisciplineDTO dto) {
         validateExtractedDTO(dto);
-        Integer currentStudentId = SecurityUtils.getCurrentStudentId();
+        return createFromExtracted(SecurityUtils.getCurrentStudentId(), dto);
+    }
+
+    /**
+     * Variante com estudante explícito, usada pela importação em streaming
+     * para persistir cada disciplina assim que ela é extraída.
+     */
+    @Transactional
+    public DisciplineDTO createFromExtracted(Integer currentStudentId, ExtractedDisciplineDTO dto) {
+        validateExtractedDTO(dto);
         Student student = findStudentById(currentStudentId);
 
         String normalizedCode = dto.code().trim().toUpperCase();
@@ -224,19 +366,9 @@ public class DisciplineService {
         for (int i = 0; i < dtos.size(); i++) {
             ExtractedDisciplineDTO dto = dtos.get(i);
             try {
-                validateExtractedDTO(dto);
-
-                String code = dto.code().trim().toUpperCase();
-                String schedule = normalizeScheduleCode(dto.scheduleCode());
-                String name = dto.name().trim();
-                String location = dto.location() != null ? dto.location().trim() : null;
-
-                ExtractedDisciplineDTO normalized = new ExtractedDisciplineDTO(
-                        name, code, schedule, location, dto.workloadHours()
-                );
+                ExtractedDisciplineDTO normalized = normalizeExtracted(dto);
 
                 validateDuplicateCode(currentStudentId, normalized.code());
-                validateScheduleCode(normalized.scheduleCode());
                 verifyScheduleConflict(currentStudentId, normalized.scheduleCode(), null);
 
                 WorkloadHours workload = normalized.workloadHours() != null
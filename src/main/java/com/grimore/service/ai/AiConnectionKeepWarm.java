@@ -0,0 +1,85 @@
+package com.grimore.service.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * Mantém aquecida a conexão com a API do LLM ({@code ai.http.keep-warm.enabled}).
+ *
+ * Faz um {@code GET} barato (lista de modelos, sem consumo de tokens) pelo mesmo pool usado nas
+ * extrações, na subida e a cada {@code ai.http.keep-warm.interval-ms}. Assim a primeira importação
+ * depois de um período ocioso encontra a conexão TLS pronta em vez de pagar DNS, TCP e handshake.
+ * O intervalo deve ser menor que {@code ai.http.max-idle-ms}. Com HTTP/1.1 só uma das conexões do
+ * pool é mantida; com HTTP/2 ela atende todas as chamadas.
+ */
+@Slf4j
+@Component
+public class AiConnectionKeepWarm {
+
+    private final HttpClient aiHttpClient;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String url;
+    private final String apiKey;
+    private final Duration timeout;
+
+    public AiConnectionKeepWarm(
+            HttpClient aiHttpClient,
+            MeterRegistry meterRegistry,
+            @Value("${ai.http.keep-warm.enabled}") boolean enabled,
+            @Value("${spring.ai.openai.base-url:https://api.openai.com}") String baseUrl,
+            @Value("${spring.ai.openai.api-key}") String apiKey,
+            @Value("${ai.http.keep-warm.path}") String path,
+            @Value("${ai.http.connect-timeout-ms}") long connectTimeoutMs,
+            @Value("${ai.http.read-timeout-ms}") long readTimeoutMs) {
+        this.aiHttpClient = aiHttpClient;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.url = baseUrl.replaceAll("/+$", "") + path;
+        this.apiKey = apiKey;
+        this.timeout = Duration.ofMillis(connectTimeoutMs + readTimeoutMs);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.http.keep-warm.interval-ms}")
+    public void ping() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        String result = "failure";
+        try {
+            Integer status = aiHttpClient
+                    .headers(headers -> headers.set(HttpHeaderNames.AUTHORIZATION, "Bearer " + apiKey))
+                    .get()
+                    .uri(url)
+                    // descarta o corpo: só interessa manter a conexão
+                    .response((response, body) -> body.then(Mono.just(response.status().code())))
+                    .single()
+                    .block(timeout);
+
+            // qualquer resposta HTTP (mesmo um 401) significa que a conexão está de pé
+            result = "success";
+            if (status != null && status >= 400) {
+                log.warn("AI keep-warm ping to {} answered {}", url, status);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("AI keep-warm ping to {} failed: {}", url, ex.getMessage());
+        } finally {
+            Timer.builder("grimore.ai.http.keepwarm")
+                    .description("Keep-warm requests to the LLM API")
+                    .tag("result", result)
+                    .register(meterRegistry)
+                    .record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
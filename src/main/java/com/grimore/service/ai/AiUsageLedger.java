@@ -0,0 +1,334 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.response.AiUsageDTO;
+import com.grimore.dto.response.AiUsageDayDTO;
+import com.grimore.exception.ratelimit.AiQuotaExceededException;
+import com.grimore.repository.AiUsageRepository;
+import com.grimore.repository.AiUsageRepository.UsageDelta;
+import com.grimore.repository.AiUsageRepository.UsageTotals;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tokens e custo do LLM por estudante, com cotas diária e mensal ({@code ai.quota.*}, 0 desliga).
+ *
+ * A conferência da cota e o registro do uso só tocam contadores atômicos em memória: nenhuma
+ * ida ao banco no caminho da importação. A cada {@code ai.usage.flush-interval-ms} os incrementos
+ * pendentes vão para {@code ai_usage} em um único lote e os totais do mês são relidos do banco,
+ * o que traz o uso registrado pelos outros nós.
+ *
+ * As cotas são aproximadas: entre dois flushes um nó não vê o consumo dos outros, e a conferência
+ * acontece antes da chamada, então o documento que cruza o limite ainda é processado.
+ * O custo é estimado a partir dos preços por milhão de tokens de cada modelo ({@code ai.usage.*-usd-per-mtok}).
+ */
+@Slf4j
+@Component
+public class AiUsageLedger {
+
+    private static final int MAX_DAYS_LISTED = 366;
+
+    private final AiUsageRepository aiUsageRepository;
+    private final Clock clock;
+    private final Map<EnrollmentPdfAiExtractor.ModelTier, double[]> pricesPerToken;
+    private final long dailyTokens;
+    private final long monthlyTokens;
+    private final long dailyCostMicros;
+    private final long monthlyCostMicros;
+    private final Counter dailyRejections;
+    private final Counter monthlyRejections;
+
+    private final Map<Integer, AtomicReference<Totals>> totals = new ConcurrentHashMap<>();
+    private final Map<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AiUsageLedger(
+            AiUsageRepository aiUsageRepository,
+            MeterRegistry meterRegistry,
+            @Value("${ai.quota.daily-tokens}") long dailyTokens,
+            @Value("${ai.quota.monthly-tokens}") long monthlyTokens,
+            @Value("${ai.quota.daily-cost-usd}") double dailyCostUsd,
+            @Value("${ai.quota.monthly-cost-usd}") double monthlyCostUsd,
+            @Value("${ai.usage.fast-prompt-usd-per-mtok}") double fastPromptPrice,
+            @Value("${ai.usage.fast-completion-usd-per-mtok}") double fastCompletionPrice,
+            @Value("${ai.usage.strong-prompt-usd-per-mtok}") double strongPromptPrice,
+            @Value("${ai.usage.strong-completion-usd-per-mtok}") double strongCompletionPrice) {
+        this(aiUsageRepository, meterRegistry, Clock.systemDefaultZone(), dailyTokens, monthlyTokens,
+                dailyCostUsd, monthlyCostUsd, fastPromptPrice, fastCompletionPrice, strongPromptPrice, strongCompletionPrice);
+    }
+
+    /** Com relógio próprio, para testar as viradas de dia e de mês. */
+    AiUsageLedger(AiUsageRepository aiUsageRepository, MeterRegistry meterRegistry, Clock clock,
+                  long dailyTokens, long monthlyTokens, double dailyCostUsd, double monthlyCostUsd,
+                  double fastPromptPrice, double fastCompletionPrice,
+                  double strongPromptPrice, double strongCompletionPrice) {
+        this.aiUsageRepository = aiUsageRepository;
+        this.clock = clock;
+        this.dailyTokens = dailyTokens;
+        this.monthlyTokens = monthlyTokens;
+        this.dailyCostMicros = toMicros(dailyCostUsd);
+        this.monthlyCostMicros = toMicros(monthlyCostUsd);
+
+        // US$ por milhão de tokens é o mesmo número que micro-dólares por token
+        this.pricesPerToken = Map.of(
+                EnrollmentPdfAiExtractor.ModelTier.FAST, new double[]{fastPromptPrice, fastCompletionPrice},
+                EnrollmentPdfAiExtractor.ModelTier.STRONG, new double[]{strongPromptPrice, strongCompletionPrice});
+
+        this.dailyRejections = rejections(meterRegistry, "daily");
+        this.monthlyRejections = rejections(meterRegistry, "monthly");
+    }
+
+    /**
+     * Recusa com 429 se o estudante já esgotou a cota do dia ou do mês.
+     * {@code studentId} nulo (ex: reprocessamento pelo admin) não tem cota.
+     */
+    public void checkQuota(Integer studentId) {
+        if (studentId == null) {
+            return;
+        }
+
+        AtomicReference<Totals> ref = totals.get(studentId);
+        if (ref == null) {
+            return;
+        }
+
+        Totals current = ref.get().rollTo(LocalDate.now(clock));
+        if (exceeds(current.dayTokens(), dailyTokens) || exceeds(current.dayCostMicros(), dailyCostMicros)) {
+            dailyRejections.increment();
+            throw new AiQuotaExceededException(
+                    "Limite diário de uso da extração automática atingido. Tente novamente amanhã.");
+        }
+        if (exceeds(current.monthTokens(), monthlyTokens) || exceeds(current.monthCostMicros(), monthlyCostMicros)) {
+            monthlyRejections.increment();
+            throw new AiQuotaExceededException(
+                    "Limite mensal de uso da extração automática atingido. Tente novamente no próximo mês.");
+        }
+    }
+
+    /** Soma o uso de uma chamada ao modelo. Chamado de qualquer thread, sem bloqueio. */
+    void record(Integer studentId, EnrollmentPdfAiExtractor.ModelTier tier, long promptTokens, long completionTokens) {
+        if (studentId == null) {
+            return;
+        }
+
+        double[] prices = pricesPerToken.get(tier);
+        long costMicros = Math.round(promptTokens * prices[0] + completionTokens * prices[1]);
+        long tokens = promptTokens + completionTokens;
+        LocalDate today = LocalDate.now(clock);
+
+        totals.computeIfAbsent(studentId, id -> new AtomicReference<>(Totals.empty(today)))
+                .updateAndGet(current -> current.rollTo(today).plus(tokens, costMicros));
+
+        Pending delta = pending.computeIfAbsent(new PendingKey(studentId, today), key -> new Pending());
+        delta.promptTokens.addAndGet(promptTokens);
+        delta.completionTokens.addAndGet(completionTokens);
+        delta.costMicros.addAndGet(costMicros);
+        delta.calls.incrementAndGet();
+    }
+
+    /**
+     * Grava os incrementos pendentes em lote e atualiza os totais com os do banco
+     * (que incluem o uso dos outros nós). Se a gravação falhar, os incrementos voltam a ficar pendentes.
+     */
+    @Scheduled(fixedDelayString = "${ai.usage.flush-interval-ms}")
+    public void flush() {
+        List<UsageDelta> deltas = drain();
+
+        if (!deltas.isEmpty()) {
+            try {
+                aiUsageRepository.addAll(deltas);
+            } catch (DataAccessException ex) {
+                log.warn("Could not flush {} AI usage entries, keeping them for the next flush: {}",
+                        deltas.size(), ex.getMessage());
+                deltas.forEach(this::restore);
+                return;
+            }
+        }
+
+        reconcile();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<UsageDelta> deltas = drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            aiUsageRepository.addAll(deltas);
+        } catch (DataAccessException ex) {
+            log.warn("Lost {} AI usage entries on shutdown: {}", deltas.size(), ex.getMessage());
+        }
+    }
+
+    public AiUsageDTO findUsage(Integer studentId, int days) {
+        LocalDate today = LocalDate.now(clock);
+        AtomicReference<Totals> ref = totals.get(studentId);
+        Totals current = ref != null ? ref.get().rollTo(today) : Totals.empty(today);
+        List<AiUsageDayDTO> history = aiUsageRepository.findByStudent(
+                studentId, today.minusDays(Math.clamp(days, 1, MAX_DAYS_LISTED) - 1L));
+
+        return new AiUsageDTO(
+                studentId,
+                current.dayTokens(),
+                current.monthTokens(),
+                toUsd(current.dayCostMicros()),
+                toUsd(current.monthCostMicros()),
+                dailyTokens > 0 ? dailyTokens : null,
+                monthlyTokens > 0 ? monthlyTokens : null,
+                dailyCostMicros > 0 ? toUsd(dailyCostMicros) : null,
+                monthlyCostMicros > 0 ? toUsd(monthlyCostMicros) : null,
+                history
+        );
+    }
+
+    /**
+     * O banco já tem tudo que este nó gravou; somando o que ainda está pendente, os totais só
+     * sobem ({@code max}), então um incremento concorrente com a releitura nunca se perde.
+     */
+    private void reconcile() {
+        LocalDate today = LocalDate.now(clock);
+        List<UsageTotals> stored;
+        try {
+            stored = aiUsageRepository.findTotals(today);
+        } catch (DataAccessException ex) {
+            log.warn("Could not reload AI usage totals: {}", ex.getMessage());
+            return;
+        }
+
+        Map<Integer, Totals> unflushed = new HashMap<>();
+        pending.forEach((key, delta) -> {
+            if (key.day().getMonth() == today.getMonth() && key.day().getYear() == today.getYear()) {
+                unflushed.merge(key.studentId(), delta.toTotals(key.day(), today), Totals::add);
+            }
+        });
+
+        for (UsageTotals row : stored) {
+            Totals fromDb = new Totals(today, row.dayTokens(), row.dayCostMicros(), row.monthTokens(), row.monthCostMicros());
+            Totals merged = fromDb.add(unflushed.getOrDefault(row.studentId(), Totals.empty(today)));
+            totals.computeIfAbsent(row.studentId(), id -> new AtomicReference<>(Totals.empty(today)))
+                    .updateAndGet(current -> current.rollTo(today).max(merged));
+        }
+
+        // estudantes sem uso no mês não precisam de contador
+        totals.entrySet().removeIf(entry -> entry.getValue().get().rollTo(today).monthTokens() == 0);
+    }
+
+    private List<UsageDelta> drain() {
+        LocalDate today = LocalDate.now(clock);
+        List<UsageDelta> deltas = new ArrayList<>();
+
+        pending.forEach((key, delta) -> {
+            UsageDelta taken = new UsageDelta(
+                    key.studentId(),
+                    key.day(),
+                    delta.promptTokens.getAndSet(0),
+                    delta.completionTokens.getAndSet(0),
+                    delta.costMicros.getAndSet(0),
+                    (int) delta.calls.getAndSet(0));
+            if (taken.calls() > 0) {
+                deltas.add(taken);
+            } else if (key.day().isBefore(today)) {
+                pending.remove(key, delta);
+            }
+        });
+        return deltas;
+    }
+
+    private void restore(UsageDelta delta) {
+        Pending target = pending.computeIfAbsent(new PendingKey(delta.studentId(), delta.day()), key -> new Pending());
+        target.promptTokens.addAndGet(delta.promptTokens());
+        target.completionTokens.addAndGet(delta.completionTokens());
+        target.costMicros.addAndGet(delta.costMicros());
+        target.calls.addAndGet(delta.calls());
+    }
+
+    private static boolean exceeds(long used, long limit) {
+        return limit > 0 && used >= limit;
+    }
+
+    private static long toMicros(double usd) {
+        return Math.round(usd * 1_000_000);
+    }
+
+    private static BigDecimal toUsd(long micros) {
+        return BigDecimal.valueOf(micros, 6);
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String window) {
+        return Counter.builder("grimore.ai.quota.rejections")
+                .description("AI extractions refused because the student's quota was exhausted")
+                .tag("window", window)
+                .register(meterRegistry);
+    }
+
+    /** Uso acumulado do estudante no dia {@code day} e no mês dele. */
+    private record Totals(LocalDate day, long dayTokens, long dayCostMicros, long monthTokens, long monthCostMicros) {
+
+        static Totals empty(LocalDate day) {
+            return new Totals(day, 0, 0, 0, 0);
+        }
+
+        /** Zera o dia (e o mês, se ele também virou) quando {@code today} é posterior a {@code day}. */
+        Totals rollTo(LocalDate today) {
+            if (!today.isAfter(day)) {
+                return this;
+            }
+            boolean sameMonth = today.getYear() == day.getYear() && today.getMonth() == day.getMonth();
+            return sameMonth
+                    ? new Totals(today, 0, 0, monthTokens, monthCostMicros)
+                    : empty(today);
+        }
+
+        Totals plus(long tokens, long costMicros) {
+            return new Totals(day, dayTokens + tokens, dayCostMicros + costMicros,
+                    monthTokens + tokens, monthCostMicros + costMicros);
+        }
+
+        Totals add(Totals other) {
+            return new Totals(day, dayTokens + other.dayTokens, dayCostMicros + other.dayCostMicros,
+                    monthTokens + other.monthTokens, monthCostMicros + other.monthCostMicros);
+        }
+
+        Totals max(Totals other) {
+            return new Totals(day, Math.max(dayTokens, other.dayTokens), Math.max(dayCostMicros, other.dayCostMicros),
+                    Math.max(monthTokens, other.monthTokens), Math.max(monthCostMicros, other.monthCostMicros));
+        }
+    }
+
+    private record PendingKey(Integer studentId, LocalDate day) {}
+
+    /** Incrementos ainda não gravados de um estudante em um dia. */
+    private static final class Pending {
+
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+        private final AtomicLong costMicros = new AtomicLong();
+        private final AtomicLong calls = new AtomicLong();
+
+        Totals toTotals(LocalDate pendingDay, LocalDate today) {
+            long tokens = promptTokens.get() + completionTokens.get();
+            long cost = costMicros.get();
+            return pendingDay.equals(today)
+                    ? new Totals(today, tokens, cost, tokens, cost)
+                    : new Totals(today, 0, 0, tokens, cost);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.grimore.service.ai;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.Consumer;
+
+/**
+ * Parser incremental da resposta do modelo no formato {@code {"disciplines": [ {...}, {...} ]}}.
+ *
+ * Recebe os fragmentos de texto na ordem em que chegam do stream e entrega cada objeto
+ * do array assim que a chave de fechamento dele é lida, sem esperar o JSON completo.
+ * Texto fora do objeto raiz (ex: cercas de markdown) é ignorado.
+ */
+@Slf4j
+class DisciplineJsonStreamParser {
+
+    /** Profundidade dos objetos do array: raiz (1) -> array (2) -> item (3). */
+    private static final int ITEM_DEPTH = 3;
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<ExtractedDisciplineDTO> onDiscipline;
+
+    private final StringBuilder item = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    DisciplineJsonStreamParser(ObjectMapper objectMapper, Consumer<ExtractedDisciplineDTO> onDiscipline) {
+        // "null" como string ou valores fora do enum viram null e a carga horária é inferida depois
+        this.objectMapper = objectMapper.copy()
+                .configure(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL, true)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.onDiscipline = onDiscipline;
+    }
+
+    void feed(String fragment) {
+        if (fragment == null) {
+            return;
+        }
+
+        for (int i = 0; i < fragment.length(); i++) {
+            char c = fragment.charAt(i);
+
+            if (depth >= ITEM_DEPTH) {
+                item.append(c);
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    if (depth > 0) {
+                        inString = true;
+                    }
+                }
+                case '{', '[' -> {
+                    depth++;
+                    if (depth == ITEM_DEPTH && c == '{') {
+                        item.setLength(0);
+                        item.append(c);
+                    }
+                }
+                case '}', ']' -> {
+                    if (depth == ITEM_DEPTH && c == '}') {
+                        emit(item.toString());
+                        item.setLength(0);
+                    }
+                    if (depth > 0) {
+                        depth--;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void emit(String json) {
+        ExtractedDisciplineDTO dto;
+        try {
+            dto = objectMapper.readValue(json, ExtractedDisciplineDTO.class);
+        } catch (Exception ex) {
+            // um item malformado não invalida os demais
+            log.warn("Skipping malformed discipline in model stream: {}", ex.getMessage());
+            return;
+        }
+
+        if (dto != null) {
+            onDiscipline.accept(dto);
+        }
+    }
+}
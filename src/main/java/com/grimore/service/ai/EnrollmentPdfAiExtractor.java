@@ -1,70 +1,533 @@
 package com.grimore.service.ai;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.grimore.dto.request.ExtractedDisciplineDTO;
 import com.grimore.dto.response.ExtractedDisciplinesResponse;
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.server.ServiceUnavailableException;
 import com.grimore.exception.validation.BadRequestException;
-import lombok.RequiredArgsConstructor;
+import com.grimore.service.imports.ImportMetrics;
+import com.grimore.util.ScheduleCodeParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.ResponseEntity;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Extração das disciplinas via LLM em cascata: o modelo rápido ({@code ai.cascade.fast-model})
+ * processa o texto e só as linhas que falham na validação, ou códigos que ficaram de fora,
+ * são reenviados ao modelo forte ({@code ai.cascade.strong-model}).
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class EnrollmentPdfAiExtractor {
 
+    enum ModelTier { FAST, STRONG }
+
+    private static final String SYSTEM_PROMPT = """
+            Você é um extrator de dados do comprovante de matrícula da UFRN.
+            Sua tarefa: identificar TODAS as disciplinas e retornar SOMENTE JSON válido.
+            
+            Regras do JSON:
+            {
+              "disciplines": [
+                {
+                  "name": "string",
+                  "code": "AAA0000",
+                  "scheduleCode": "ex: 246N12 ou 35T12 ou '35M56'",
+                  "location": "string",
+                  "workloadHours": "H30|H45|H60|H75|H90|H120|null"
+                }
+              ]
+            }
+            
+            Regras:
+            - code sempre 3 letras + 4 números (ex: IMD1012)
+            - scheduleCode: usar M/T/N (não use V). Preserve múltiplos segmentos se existirem (separar por espaço).
+            - workloadHours pode ser null (a API irá inferir pelo scheduleCode)
+            - Retorne APENAS o JSON. Sem texto extra.
+            """;
+
+    /** Linhas mantidas após cada menção no texto enviado ao re-pedido. */
+    private static final int CONTEXT_LINES_AFTER = 3;
+
+    /** Marca o fim da fila de linhas do stream (comparada por identidade). */
+    private static final ExtractedDisciplineDTO END_OF_STREAM = new ExtractedDisciplineDTO(null, null, null, null, null);
+
     private final ChatClient chatClient;
+    private final EnrollmentPromptReducer promptReducer;
+    private final LlmCallGuard llmCallGuard;
+    private final EnrollmentRowRepairer rowRepairer;
+    private final ImportMetrics importMetrics;
+    private final AiUsageLedger aiUsageLedger;
+    private final ObjectMapper objectMapper;
+    private final int chunkMaxChars;
+    private final int chunkOverlapRows;
+
+    /**
+     * Limita só o fan-out de documentos divididos em blocos: somando todos os documentos, no máximo
+     * {@code ai.extraction.max-concurrent-chunks} blocos em chamada ao mesmo tempo. Documentos de um
+     * único bloco não passam por aqui; o limite geral de chamadas ao modelo é o do {@link LlmCallGuard}.
+     */
+    private final Semaphore chunkPermits;
+
+    /** Threads que esperam a chamada em streaming enquanto o chamador consome a fila de linhas. */
+    private final ExecutorService streamExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-stream-", 0).factory());
+
+    private final Map<ModelTier, OpenAiChatOptions> tierOptions = new EnumMap<>(ModelTier.class);
+    private final Map<ModelTier, Timer> tierLatency = new EnumMap<>(ModelTier.class);
+    private final Counter cascadeRequests;
+    private final Counter escalations;
+    private final Counter escalatedRows;
+
+    public EnrollmentPdfAiExtractor(
+            ChatClient chatClient,
+            EnrollmentPromptReducer promptReducer,
+            LlmCallGuard llmCallGuard,
+            EnrollmentRowRepairer rowRepairer,
+            ImportMetrics importMetrics,
+            AiUsageLedger aiUsageLedger,
+            ObjectMapper objectMapper,
+            @Value("${ai.extraction.chunk-max-chars}") int chunkMaxChars,
+            @Value("${ai.extraction.chunk-overlap-rows}") int chunkOverlapRows,
+            @Value("${ai.extraction.max-concurrent-chunks}") int maxConcurrentChunks,
+            @Value("${ai.cascade.fast-model}") String fastModel,
+            @Value("${ai.cascade.fast-temperature}") double fastTemperature,
+            @Value("${ai.cascade.strong-model}") String strongModel,
+            @Value("${ai.cascade.strong-temperature}") double strongTemperature,
+            MeterRegistry meterRegistry) {
+        this.chatClient = chatClient;
+        this.promptReducer = promptReducer;
+        this.llmCallGuard = llmCallGuard;
+        this.rowRepairer = rowRepairer;
+        this.importMetrics = importMetrics;
+        this.aiUsageLedger = aiUsageLedger;
+        this.objectMapper = objectMapper;
+        this.chunkMaxChars = chunkMaxChars;
+        this.chunkOverlapRows = chunkOverlapRows;
+        this.chunkPermits = new Semaphore(maxConcurrentChunks);
+
+        tierOptions.put(ModelTier.FAST, OpenAiChatOptions.builder().model(fastModel).temperature(fastTemperature).build());
+        tierOptions.put(ModelTier.STRONG, OpenAiChatOptions.builder().model(strongModel).temperature(strongTemperature).build());
+
+        for (ModelTier tier : ModelTier.values()) {
+            tierLatency.put(tier, Timer.builder("grimore.ai.model.latency")
+                    .description("LLM call latency per cascade tier")
+                    .tag("tier", tier.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+
+        this.cascadeRequests = Counter.builder("grimore.ai.cascade.requests")
+                .description("Text blocks sent to the fast model")
+                .register(meterRegistry);
+        this.escalations = Counter.builder("grimore.ai.cascade.escalations")
+                .description("Text blocks that needed a re-ask to the strong model")
+                .register(meterRegistry);
+        this.escalatedRows = Counter.builder("grimore.ai.cascade.escalated.rows")
+                .description("Rows re-asked to the strong model")
+                .register(meterRegistry);
+    }
 
-    public List<ExtractedDisciplineDTO> extract(String pdfText) {
+    /**
+     * Extrai as disciplinas do texto, contabilizando o uso do modelo para {@code studentId}
+     * (nulo quando não há estudante a cobrar, ex: reprocessamento pelo admin).
+     */
+    public List<ExtractedDisciplineDTO> extract(String pdfText, Integer studentId) {
         if (pdfText == null || pdfText.isBlank()) {
             throw new BadRequestException("Texto do PDF vazio");
         }
+        aiUsageLedger.checkQuota(studentId);
 
-        // evita mandar documento enorme
-        String clipped = pdfText.length() > 45_000 ? pdfText.substring(0, 45_000) : pdfText;
+        // envia só a tabela de turmas, sem cabeçalhos, rodapés e dados pessoais
+        String reduced = promptReducer.reduce(pdfText);
 
-        String systemPrompt = """
-                Você é um extrator de dados do comprovante de matrícula da UFRN.
-                Sua tarefa: identificar TODAS as disciplinas e retornar SOMENTE JSON válido.
-                
-                Regras do JSON:
-                {
-                  "disciplines": [
-                    {
-                      "name": "string",
-                      "code": "AAA0000",
-                      "scheduleCode": "ex: 246N12 ou 35T12 ou '35M56'",
-                      "location": "string",
-                      "workloadHours": "H30|H45|H60|H75|H90|H120|null"
+        // documentos longos são divididos em blocos em vez de truncados
+        List<String> chunks = EnrollmentTextChunker.split(reduced, chunkMaxChars, chunkOverlapRows);
+
+        List<ExtractedDisciplineDTO> extracted = chunks.size() == 1
+                ? extractChunk(chunks.getFirst(), studentId)
+                : extractChunksConcurrently(chunks, studentId);
+
+        return requireDisciplines(mergeByCode(extracted));
+    }
+
+    /**
+     * Variante em streaming: cada disciplina é entregue a {@code onDiscipline} assim que
+     * o objeto correspondente termina de chegar do modelo, antes do fim da resposta.
+     * Textos que precisam ser divididos em blocos usam a extração em lote e as
+     * disciplinas são entregues ao final.
+     */
+    public List<ExtractedDisciplineDTO> extractStreaming(String pdfText, Integer studentId,
+                                                         Consumer<ExtractedDisciplineDTO> onDiscipline) {
+        if (pdfText == null || pdfText.isBlank()) {
+            throw new BadRequestException("Texto do PDF vazio");
+        }
+        aiUsageLedger.checkQuota(studentId);
+
+        String reduced = promptReducer.reduce(pdfText);
+        List<String> chunks = EnrollmentTextChunker.split(reduced, chunkMaxChars, chunkOverlapRows);
+
+        if (chunks.size() > 1) {
+            List<ExtractedDisciplineDTO> merged = requireDisciplines(mergeByCode(extractChunksConcurrently(chunks, studentId)));
+            merged.forEach(onDiscipline);
+            return merged;
+        }
+
+        String chunk = chunks.getFirst();
+
+        // a thread da chamada protegida só lê e interpreta o stream: cada linha passa por esta fila
+        // e é entregue a onDiscipline na thread de quem chamou. Assim a gravação no banco e o envio
+        // do SSE não contam no prazo do LlmCallGuard nem sofrem a interrupção dele ao estourar.
+        BlockingQueue<ExtractedDisciplineDTO> rows = new LinkedBlockingQueue<>();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        DisciplineJsonStreamParser parser = new DisciplineJsonStreamParser(objectMapper, rows::add);
+
+        // pede o uso de tokens no último evento do stream
+        OpenAiChatOptions options = tierOptions.get(ModelTier.FAST).copy();
+        options.setStreamUsage(true);
+
+        Flux<ChatResponse> responses = chatClient
+                .prompt()
+                .options(options)
+                .system(SYSTEM_PROMPT)
+                .user(userPrompt(chunk))
+                .stream()
+                .chatResponse();
+
+        // o stream é consumido com toStream() na thread da chamada, e não em threads do Reactor;
+        // fechar o stream (fim, erro, prazo estourado ou abandono pelo chamador) cancela a resposta
+        cascadeRequests.increment();
+        CompletableFuture<ChatResponse> call = CompletableFuture.supplyAsync(() -> llmCallGuard.call(
+                () -> tierLatency.get(ModelTier.FAST).record(() -> {
+                    ChatResponse withUsage = null;
+                    try (Stream<ChatResponse> events = responses.toStream()) {
+                        for (Iterator<ChatResponse> it = events.iterator(); it.hasNext(); ) {
+                            if (abandoned.get()) {
+                                throw new CancellationException("Stream abandoned by the caller");
+                            }
+                            ChatResponse response = it.next();
+                            String text = textOf(response);
+                            if (text != null) {
+                                parser.feed(text);
+                            }
+                            if (hasUsage(response)) {
+                                withUsage = response;
+                            }
+                        }
                     }
-                  ]
+                    return withUsage;
+                })), streamExecutor);
+        call.whenComplete((response, ex) -> rows.add(END_OF_STREAM));
+
+        // linhas válidas seguem na hora, uma vez por código normalizado (o modelo pode repetir uma
+        // disciplina e cada linha entregue já é persistida); as demais esperam a revisão do modelo forte
+        List<ExtractedDisciplineDTO> streamed = new ArrayList<>();
+        Set<String> forwarded = new HashSet<>();
+        try {
+            for (ExtractedDisciplineDTO raw = take(rows); raw != END_OF_STREAM; raw = take(rows)) {
+                ExtractedDisciplineDTO dto = rowRepairer.repair(raw);
+                streamed.add(dto);
+                if (EnrollmentRowValidator.isValid(dto) && forwarded.add(EnrollmentRowValidator.normalizeCode(dto.code()))) {
+                    onDiscipline.accept(dto);
                 }
-                
-                Regras:
-                - code sempre 3 letras + 4 números (ex: IMD1012)
-                - scheduleCode: usar M/T/N (não use V). Preserve múltiplos segmentos se existirem (separar por espaço).
-                - workloadHours pode ser null (a API irá inferir pelo scheduleCode)
-                - Retorne APENAS o JSON. Sem texto extra.
-                """;
-
-        String userPrompt = """
+            }
+        } catch (RuntimeException ex) {
+            abandoned.set(true);
+            throw ex;
+        }
+        recordUsage(ModelTier.FAST, join(call), studentId);
+
+        List<ExtractedDisciplineDTO> cascaded = mergeByCode(escalate(chunk, List.copyOf(streamed), studentId));
+        cascaded.stream()
+                .filter(dto -> forwarded.add(EnrollmentRowValidator.normalizeCode(dto.code())))
+                .forEach(onDiscipline);
+
+        return requireDisciplines(cascaded);
+    }
+
+    private static ExtractedDisciplineDTO take(BlockingQueue<ExtractedDisciplineDTO> rows) {
+        try {
+            return rows.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Extração do comprovante interrompida", ex);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> call) {
+        try {
+            return call.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InternalServerErrorException("Falha na extração do comprovante", ex.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    private List<ExtractedDisciplineDTO> requireDisciplines(List<ExtractedDisciplineDTO> disciplines) {
+        if (disciplines.isEmpty()) {
+            throw new BadRequestException("Não foi possível identificar disciplinas no comprovante");
+        }
+        return disciplines;
+    }
+
+    private List<ExtractedDisciplineDTO> extractChunksConcurrently(List<String> chunks, Integer studentId) {
+        log.info("Enrollment text split into {} chunks for AI extraction", chunks.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<ExtractedDisciplineDTO>>> futures = chunks.stream()
+                    .map(chunk -> executor.submit(() -> callModelWithPermit(chunk, studentId)))
+                    .toList();
+
+            List<ExtractedDisciplineDTO> all = new ArrayList<>();
+            for (Future<List<ExtractedDisciplineDTO>> future : futures) {
+                all.addAll(future.get());
+            }
+            return all;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InternalServerErrorException("Falha na extração do comprovante", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Extração do comprovante interrompida", ex);
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> callModelWithPermit(String chunk, Integer studentId) throws InterruptedException {
+        chunkPermits.acquire();
+        try {
+            return extractChunk(chunk, studentId);
+        } finally {
+            chunkPermits.release();
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> extractChunk(String chunk, Integer studentId) {
+        cascadeRequests.increment();
+        return escalate(chunk, callModel(userPrompt(chunk), ModelTier.FAST, studentId), studentId);
+    }
+
+    /**
+     * Revisa a saída do modelo rápido. Linhas inválidas passam antes pelo
+     * {@link EnrollmentRowRepairer}; as que continuam inválidas e os códigos que abrem uma
+     * linha de disciplina no texto e não vieram na resposta são reenviados ao modelo forte
+     * em um único pedido, só com eles e as linhas do texto ao redor.
+     * Retorna as linhas aceitas, as revisadas e, por último, as originais suspeitas
+     * (o {@link #mergeByCode} prefere a versão com horário válido).
+     */
+    private List<ExtractedDisciplineDTO> escalate(String chunk, List<ExtractedDisciplineDTO> rows, Integer studentId) {
+        List<ExtractedDisciplineDTO> accepted = new ArrayList<>();
+        List<ExtractedDisciplineDTO> suspicious = new ArrayList<>();
+        for (ExtractedDisciplineDTO raw : rows) {
+            ExtractedDisciplineDTO dto = rowRepairer.repair(raw);
+            if (dto == null) {
+                continue;
+            }
+            (EnrollmentRowValidator.isValid(dto) ? accepted : suspicious).add(dto);
+        }
+
+        Set<String> targets = new LinkedHashSet<>(EnrollmentRowValidator.rowCodesIn(chunk));
+        for (ExtractedDisciplineDTO dto : suspicious) {
+            targets.add(EnrollmentRowValidator.isValidCode(dto.code())
+                    ? EnrollmentRowValidator.normalizeCode(dto.code())
+                    : "\"" + dto.name() + "\"");
+        }
+        accepted.forEach(dto -> targets.remove(EnrollmentRowValidator.normalizeCode(dto.code())));
+
+        if (targets.isEmpty() && !accepted.isEmpty()) {
+            return accepted;
+        }
+
+        escalations.increment();
+        escalatedRows.increment(Math.max(targets.size(), 1));
+        log.info("Escalating {} rows to the strong model", targets.isEmpty() ? "all" : targets.size());
+
+        try {
+            String prompt = targets.isEmpty() ? userPrompt(chunk) : reaskPrompt(surroundingText(chunk, targets), targets);
+
+            List<ExtractedDisciplineDTO> result = new ArrayList<>(accepted);
+            callModel(prompt, ModelTier.STRONG, studentId).stream()
+                    .map(rowRepairer::repair)
+                    .forEach(result::add);
+            result.addAll(suspicious);
+            return result;
+        } catch (ServiceUnavailableException ex) {
+            if (accepted.isEmpty() && suspicious.isEmpty()) {
+                throw ex;
+            }
+            // sem o modelo forte, fica com o que o rápido entregou
+            log.warn("Strong model unavailable during escalation: {}", ex.getMessage());
+            List<ExtractedDisciplineDTO> result = new ArrayList<>(accepted);
+            result.addAll(suspicious);
+            return result;
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> callModel(String userPrompt, ModelTier tier, Integer studentId) {
+        ResponseEntity<ChatResponse, ExtractedDisciplinesResponse> result =
+                llmCallGuard.call(() -> tierLatency.get(tier).record(() -> chatClient
+                        .prompt()
+                        .options(tierOptions.get(tier).copy())
+                        .system(SYSTEM_PROMPT)
+                        .user(userPrompt)
+                        .call()
+                        .responseEntity(ExtractedDisciplinesResponse.class)));
+
+        recordUsage(tier, result.response(), studentId);
+
+        ExtractedDisciplinesResponse response = result.entity();
+        if (response == null || response.getDisciplines() == null) {
+            return List.of();
+        }
+
+        return response.getDisciplines();
+    }
+
+    private void recordUsage(ModelTier tier, ChatResponse response, Integer studentId) {
+        if (!hasUsage(response)) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        importMetrics.recordTokens(tier.name().toLowerCase(), usage.getPromptTokens(), usage.getCompletionTokens());
+
+        int completion = usage.getCompletionTokens() != null ? usage.getCompletionTokens() : 0;
+        aiUsageLedger.record(studentId, tier, usage.getPromptTokens(), completion);
+    }
+
+    private static boolean hasUsage(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return false;
+        }
+        Integer prompt = response.getMetadata().getUsage().getPromptTokens();
+        return prompt != null && prompt > 0;
+    }
+
+    private static String textOf(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+
+    private String userPrompt(String text) {
+        return """
                 TEXTO EXTRAÍDO DO PDF:
                 ---
                 %s
                 ---
-                """.formatted(clipped);
+                """.formatted(text);
+    }
 
-        ExtractedDisciplinesResponse response = chatClient
-                .prompt()
-                .system(systemPrompt)
-                .user(userPrompt)
-                .call()
-                .entity(ExtractedDisciplinesResponse.class);
+    /**
+     * Linhas do bloco que mencionam os alvos do re-pedido, com uma linha antes e as
+     * seguintes da mesma turma (horário e local costumam vir logo abaixo do código).
+     * Sem nenhuma menção encontrada, devolve o bloco inteiro.
+     */
+    private static String surroundingText(String chunk, Set<String> targets) {
+        String[] lines = chunk.split("\n");
+        boolean[] keep = new boolean[lines.length];
+        boolean found = false;
 
-        if (response == null || response.getDisciplines() == null || response.getDisciplines().isEmpty()) {
-            throw new BadRequestException("Não foi possível identificar disciplinas no comprovante");
+        List<String> needles = targets.stream()
+                .map(t -> t.replace("\"", "").toUpperCase())
+                .filter(t -> !t.isBlank())
+                .toList();
+
+        for (int i = 0; i < lines.length; i++) {
+            String upper = lines[i].toUpperCase();
+            if (needles.stream().anyMatch(upper::contains)) {
+                found = true;
+                for (int j = Math.max(0, i - 1); j <= Math.min(lines.length - 1, i + CONTEXT_LINES_AFTER); j++) {
+                    keep[j] = true;
+                }
+            }
         }
 
-        return response.getDisciplines();
+        if (!found) {
+            return chunk;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lines.length; i++) {
+            if (keep[i]) {
+                sb.append(lines[i]).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    private String reaskPrompt(String text, Set<String> targets) {
+        return userPrompt(text) + """
+                
+                Retorne SOMENTE as disciplinas abaixo (por código ou nome), conferindo com atenção
+                o código e o horário de cada uma no texto:
+                %s
+                """.formatted(String.join("\n", targets.stream().map(t -> "- " + t).toList()));
+    }
+
+    /**
+     * Remove duplicatas (sobreposição entre blocos) pelo código normalizado,
+     * preferindo a ocorrência com horário válido.
+     */
+    private List<ExtractedDisciplineDTO> mergeByCode(List<ExtractedDisciplineDTO> disciplines) {
+        Map<String, ExtractedDisciplineDTO> byCode = new LinkedHashMap<>();
+
+        for (ExtractedDisciplineDTO dto : disciplines) {
+            if (dto == null || dto.code() == null || dto.code().isBlank()) {
+                continue;
+            }
+
+            String code = dto.code().replaceAll("\\s+", "").toUpperCase();
+            ExtractedDisciplineDTO existing = byCode.get(code);
+
+            if (existing == null
+                    || (!ScheduleCodeParser.isValidScheduleCode(existing.scheduleCode())
+                    && ScheduleCodeParser.isValidScheduleCode(dto.scheduleCode()))) {
+                byCode.put(code, dto);
+            }
+        }
+
+        return new ArrayList<>(byCode.values());
     }
 }
@@ -0,0 +1,148 @@
+package com.grimore.service.ai;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reduz o texto do comprovante antes de enviá-lo ao LLM.
+ *
+ * - mantém apenas a região da tabela de turmas (da primeira à última linha com código)
+ * - remove, dentro da tabela, as repetições do cabeçalho de página (linhas que já apareceram
+ *   antes da primeira disciplina); linhas repetidas entre disciplinas (situação, docente,
+ *   horário) são mantidas
+ * - remove linhas de dados pessoais e textos institucionais
+ *
+ * Se a redução perder qualquer código de disciplina presente no original,
+ * o texto original é usado.
+ */
+@Slf4j
+@Component
+public class EnrollmentPromptReducer {
+
+    private static final Pattern CODE = Pattern.compile("\\b([A-Z]{3})\\s?(\\d{4})\\b");
+
+    private static final Pattern IRRELEVANT_LINE = Pattern.compile(
+            "(?i)^\\s*(?:p[aá]gina\\s+\\d+\\s*(?:de|/)\\s*\\d+" +
+                    "|.*\\b(?:cpf|rg|e-?mail|matr[ií]cula\\s*:|aluno\\s*:|nome\\s*:|curso\\s*:|" +
+                    "emitid[oa]\\s+em|c[oó]digo\\s+de\\s+verifica[cç][aã]o|autenticidade|" +
+                    "copyright|sigaa|universidade federal|aten[cç][aã]o)\\b.*" +
+                    "|\\d{2}/\\d{2}/\\d{4}(?:\\s+\\d{2}:\\d{2}(?::\\d{2})?)?)\\s*$");
+
+    private static final Pattern LOCATION = Pattern.compile("(?i)^\\s*local\\s*:.*");
+
+    /** Linhas logo após a última disciplina que ainda pertencem a ela (ex: "Local: ..."). */
+    private static final int TRAILING_LINES = 2;
+
+    private final DistributionSummary rawTokens;
+    private final DistributionSummary reducedTokens;
+
+    public EnrollmentPromptReducer(MeterRegistry meterRegistry) {
+        this.rawTokens = DistributionSummary.builder("grimore.ai.prompt.tokens")
+                .description("Estimated prompt tokens for enrollment PDF extraction")
+                .tag("stage", "raw")
+                .register(meterRegistry);
+        this.reducedTokens = DistributionSummary.builder("grimore.ai.prompt.tokens")
+                .description("Estimated prompt tokens for enrollment PDF extraction")
+                .tag("stage", "reduced")
+                .register(meterRegistry);
+    }
+
+    public String reduce(String text) {
+        if (text == null || text.isBlank()) {
+            return text;
+        }
+
+        String reduced = reduceLines(text);
+        Set<String> originalCodes = codesIn(text);
+
+        if (reduced.isBlank() || !codesIn(reduced).containsAll(originalCodes)) {
+            log.debug("Prompt reduction would drop disciplines, using original text");
+            reduced = text;
+        }
+
+        int before = estimateTokens(text);
+        int after = estimateTokens(reduced);
+        rawTokens.record(before);
+        reducedTokens.record(after);
+
+        log.debug("Prompt reduced from ~{} to ~{} tokens", before, after);
+        return reduced;
+    }
+
+    /**
+     * Estimativa grosseira (~4 caracteres por token), suficiente para métricas e limites.
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    private String reduceLines(String text) {
+        String[] lines = text.split("\\R");
+
+        int first = -1;
+        int last = -1;
+        // linhas antes da primeira disciplina: cabeçalho da página, que se repete nas páginas seguintes
+        Set<String> pageHeader = new HashSet<>();
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (CODE.matcher(line).find()) {
+                if (first < 0) first = i;
+                last = i;
+            } else if (first < 0 && !line.isEmpty()) {
+                pageHeader.add(line);
+            }
+        }
+
+        if (first < 0) {
+            return text;
+        }
+
+        // o cabeçalho da tabela (linha anterior à primeira disciplina) ajuda o modelo a entender as colunas
+        int start = Math.max(0, first - 1);
+        int end = Math.min(lines.length - 1, last + TRAILING_LINES);
+
+        List<String> kept = new ArrayList<>();
+        for (int i = start; i <= end; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            boolean hasCode = CODE.matcher(line).find();
+            if (hasCode || LOCATION.matcher(line).matches()) {
+                kept.add(line);
+                continue;
+            }
+
+            // só o cabeçalho de página repetido sai; a primeira ocorrência (cabeçalho da tabela) fica
+            boolean pageHeaderRepeat = i > start && pageHeader.contains(line);
+            boolean irrelevant = IRRELEVANT_LINE.matcher(line).matches();
+
+            if (!pageHeaderRepeat && !irrelevant) {
+                kept.add(line);
+            }
+        }
+
+        return String.join("\n", kept);
+    }
+
+    private Set<String> codesIn(String text) {
+        Set<String> codes = new LinkedHashSet<>();
+        Matcher matcher = CODE.matcher(text);
+        while (matcher.find()) {
+            codes.add(matcher.group(1) + matcher.group(2));
+        }
+        return codes;
+    }
+}
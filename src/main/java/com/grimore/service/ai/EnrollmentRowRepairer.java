@@ -0,0 +1,131 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Correções determinísticas para linhas extraídas pelo modelo que falham na validação,
+ * antes de gastar uma nova chamada ao LLM:
+ * - código: remove espaços/hífens e troca confusões típicas de OCR (O/0, I/1, S/5, B/8, Z/2)
+ *   conforme a posição (3 letras + 4 dígitos)
+ * - horário: remove faixas de hora entre parênteses, separadores soltos e espaços dentro do
+ *   segmento ("24 M 12"), V -> T e troca I/l/S/Z por dígitos
+ *
+ * Linhas já válidas são devolvidas sem alteração.
+ */
+@Component
+public class EnrollmentRowRepairer {
+
+    private static final Pattern PARENTHESES = Pattern.compile("\\([^)]*\\)");
+    private static final Pattern SEPARATORS = Pattern.compile("[,;|/+\\-]+");
+    private static final Pattern SPACE_BEFORE_SHIFT = Pattern.compile("([0-9])\\s+([MTNV])");
+    private static final Pattern SPACE_AFTER_SHIFT = Pattern.compile("([MTNV])\\s+([0-9])");
+    private static final Pattern NON_CODE_CHARS = Pattern.compile("[\\s\\-_.]+");
+
+    private final Counter attempted;
+    private final Counter repaired;
+
+    public EnrollmentRowRepairer(MeterRegistry meterRegistry) {
+        this.attempted = Counter.builder("grimore.ai.rows.repair")
+                .description("Invalid LLM rows submitted to deterministic repair")
+                .tag("outcome", "attempted")
+                .register(meterRegistry);
+        this.repaired = Counter.builder("grimore.ai.rows.repair")
+                .description("Invalid LLM rows submitted to deterministic repair")
+                .tag("outcome", "repaired")
+                .register(meterRegistry);
+    }
+
+    public ExtractedDisciplineDTO repair(ExtractedDisciplineDTO dto) {
+        if (dto == null || EnrollmentRowValidator.isValid(dto)) {
+            return dto;
+        }
+
+        attempted.increment();
+
+        ExtractedDisciplineDTO fixed = new ExtractedDisciplineDTO(
+                dto.name() != null ? dto.name().trim().replaceAll("\\s+", " ") : null,
+                repairCode(dto.code()),
+                repairScheduleCode(dto.scheduleCode()),
+                dto.location() != null ? dto.location().trim() : null,
+                dto.workloadHours()
+        );
+
+        if (EnrollmentRowValidator.isValid(fixed)) {
+            repaired.increment();
+        }
+
+        return fixed;
+    }
+
+    static String repairCode(String code) {
+        if (code == null) {
+            return null;
+        }
+
+        String s = NON_CODE_CHARS.matcher(code.trim().toUpperCase()).replaceAll("");
+        if (s.length() != 7) {
+            return s;
+        }
+
+        StringBuilder sb = new StringBuilder(7);
+        for (int i = 0; i < 7; i++) {
+            char c = s.charAt(i);
+            sb.append(i < 3 ? toLetter(c) : toDigit(c));
+        }
+        return sb.toString();
+    }
+
+    static String repairScheduleCode(String scheduleCode) {
+        if (scheduleCode == null) {
+            return null;
+        }
+
+        String s = scheduleCode.toUpperCase().replace('\u00A0', ' ');
+        s = PARENTHESES.matcher(s).replaceAll(" ");
+        s = SEPARATORS.matcher(s).replaceAll(" ");
+
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            sb.append(switch (c) {
+                case 'V' -> 'T';
+                case 'I', 'L' -> '1';
+                case 'Z' -> '2';
+                case 'S' -> '5';
+                default -> c;
+            });
+        }
+
+        s = SPACE_BEFORE_SHIFT.matcher(sb).replaceAll("$1$2");
+        s = SPACE_AFTER_SHIFT.matcher(s).replaceAll("$1$2");
+        return s.trim().replaceAll("\\s+", " ");
+    }
+
+    private static char toLetter(char c) {
+        return switch (c) {
+            case '0' -> 'O';
+            case '1' -> 'I';
+            case '2' -> 'Z';
+            case '5' -> 'S';
+            case '8' -> 'B';
+            default -> c;
+        };
+    }
+
+    private static char toDigit(char c) {
+        return switch (c) {
+            case 'O', 'Q', 'D' -> '0';
+            case 'I', 'L', '|' -> '1';
+            case 'Z' -> '2';
+            case 'S' -> '5';
+            case 'G' -> '6';
+            case 'B' -> '8';
+            default -> c;
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.util.ScheduleCodeParser;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Regras mínimas para aceitar uma linha extraída pelo modelo sem revisão:
+ * nome preenchido, código no formato UFRN e horário válido.
+ */
+final class EnrollmentRowValidator {
+
+    private static final Pattern CODE = Pattern.compile("^[A-Z]{3}\\d{4}$");
+    private static final Pattern CODE_IN_TEXT = Pattern.compile("\\b([A-Z]{3}\\d{4})\\b");
+    // mesmo formato de início de linha do EnrollmentTextChunker: número opcional da linha + código
+    private static final Pattern ROW_CODE = Pattern.compile("^\\s*(?:\\d{1,2}\\s+)?([A-Z]{3})\\s?(\\d{4})\\b");
+
+    private EnrollmentRowValidator() {}
+
+    static boolean isValid(ExtractedDisciplineDTO dto) {
+        return dto != null
+                && dto.name() != null && !dto.name().isBlank()
+                && isValidCode(dto.code())
+                && dto.scheduleCode() != null
+                && ScheduleCodeParser.isValidScheduleCode(dto.scheduleCode().trim().toUpperCase());
+    }
+
+    static boolean isValidCode(String code) {
+        return code != null && CODE.matcher(normalizeCode(code)).matches();
+    }
+
+    static String normalizeCode(String code) {
+        return code == null ? "" : code.replaceAll("\\s+", "").toUpperCase();
+    }
+
+    /**
+     * Códigos de disciplina presentes no texto enviado ao modelo, na ordem em que aparecem.
+     */
+    static Set<String> codesIn(String text) {
+        Set<String> codes = new LinkedHashSet<>();
+        Matcher matcher = CODE_IN_TEXT.matcher(text);
+        while (matcher.find()) {
+            codes.add(matcher.group(1));
+        }
+        return codes;
+    }
+
+    /**
+     * Códigos que abrem uma linha de disciplina do comprovante, na ordem em que aparecem.
+     * Menções no meio da linha (pré-requisitos, equivalências, observações) ficam de fora.
+     */
+    static Set<String> rowCodesIn(String text) {
+        Set<String> codes = new LinkedHashSet<>();
+        text.lines().forEach(line -> {
+            Matcher matcher = ROW_CODE.matcher(line);
+            if (matcher.find()) {
+                codes.add(matcher.group(1) + matcher.group(2));
+            }
+        });
+        return codes;
+    }
+}
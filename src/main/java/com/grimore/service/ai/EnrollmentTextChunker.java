@@ -0,0 +1,75 @@
+package com.grimore.service.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Divide o texto do comprovante em blocos para envio ao LLM sem cortar disciplinas.
+ *
+ * Os cortes acontecem apenas em fronteiras de linha da tabela (linhas que começam
+ * com código de disciplina), e cada bloco repete as últimas linhas do anterior
+ * para que uma disciplina quebrada entre páginas apareça inteira em algum bloco.
+ */
+public final class EnrollmentTextChunker {
+
+    private static final Pattern ROW_START = Pattern.compile("^\\s*(?:\\d{1,2}\\s+)?[A-Z]{3}\\s?\\d{4}\\b.*");
+
+    private EnrollmentTextChunker() {}
+
+    public static List<String> split(String text, int maxChars, int overlapRows) {
+        if (text == null || text.length() <= maxChars) {
+            return List.of(text == null ? "" : text);
+        }
+
+        List<String> rows = toRows(text);
+        List<String> chunks = new ArrayList<>();
+
+        int start = 0;
+        while (start < rows.size()) {
+            int end = start;
+            int size = 0;
+
+            // sempre inclui ao menos uma linha, mesmo que ela sozinha passe do limite
+            while (end < rows.size() && (end == start || size + rows.get(end).length() + 1 <= maxChars)) {
+                size += rows.get(end).length() + 1;
+                end++;
+            }
+
+            chunks.add(String.join("\n", rows.subList(start, end)));
+
+            if (end >= rows.size()) {
+                break;
+            }
+            start = Math.max(start + 1, end - overlapRows);
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Agrupa as linhas em registros: a linha com código e as linhas seguintes
+     * (continuação do nome, "Local: ...") até o próximo código.
+     */
+    private static List<String> toRows(String text) {
+        List<String> rows = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        for (String line : text.split("\\R")) {
+            if (ROW_START.matcher(line).matches() && !current.isEmpty()) {
+                rows.add(current.toString());
+                current.setLength(0);
+            }
+            if (!current.isEmpty()) {
+                current.append('\n');
+            }
+            current.append(line);
+        }
+
+        if (!current.isEmpty()) {
+            rows.add(current.toString());
+        }
+
+        return rows;
+    }
+}
@@ -0,0 +1,329 @@
+package com.grimore.service.ai;
+
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.server.ServiceUnavailableException;
+import com.grimore.exception.validation.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Isolamento de falhas das chamadas ao LLM.
+ *
+ * - bulkhead: no máximo {@code ai.guard.max-concurrent-calls} chamadas simultâneas e uma fila
+ *   de espera limitada; excedentes são rejeitados em vez de segurar threads e conexões
+ * - prazo por chamada ({@code ai.guard.call-timeout-ms}); a chamada atrasada é interrompida, mas
+ *   segura a vaga do bulkhead até terminar de fato: uma troca HTTP que ignora a interrupção ainda
+ *   conta em {@code max-concurrent-calls}, que limita as chamadas reais ao provedor
+ * - circuit breaker: após {@code ai.guard.breaker.failure-threshold} falhas seguidas, as chamadas
+ *   falham imediatamente por {@code ai.guard.breaker.open-duration-ms}; depois uma única chamada
+ *   de teste decide se o circuito fecha ou reabre
+ *
+ * Toda falha do modelo chega ao chamador como {@link ServiceUnavailableException}, para que
+ * o pipeline possa recorrer ao extrator local.
+ */
+@Slf4j
+@Component
+public class LlmCallGuard {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final Semaphore permits;
+    private final int queueCapacity;
+    private final long queueTimeoutMs;
+    private final long callTimeoutMs;
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("llm-call-", 0).factory());
+
+    private final Object breakerLock = new Object();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+
+    private final Counter bulkheadRejections;
+    private final Counter breakerRejections;
+    private final Counter timeouts;
+    private final Counter failures;
+
+    public LlmCallGuard(
+            MeterRegistry meterRegistry,
+            @Value("${ai.guard.max-concurrent-calls}") int maxConcurrentCalls,
+            @Value("${ai.guard.queue-capacity}") int queueCapacity,
+            @Value("${ai.guard.queue-timeout-ms}") long queueTimeoutMs,
+            @Value("${ai.guard.call-timeout-ms}") long callTimeoutMs,
+            @Value("${ai.guard.breaker.failure-threshold}") int failureThreshold,
+            @Value("${ai.guard.breaker.open-duration-ms}") long openDurationMs) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.queueCapacity = queueCapacity;
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.callTimeoutMs = callTimeoutMs;
+        this.failureThreshold = failureThreshold;
+        this.openDurationMs = openDurationMs;
+
+        Gauge.builder("grimore.ai.calls.in_flight", inFlight, AtomicInteger::get)
+                .description("LLM calls currently running")
+                .register(meterRegistry);
+        Gauge.builder("grimore.ai.calls.queued", waiting, AtomicInteger::get)
+                .description("LLM calls waiting for a bulkhead permit")
+                .register(meterRegistry);
+        Gauge.builder("grimore.ai.breaker.state", this, guard -> guard.getState().ordinal())
+                .description("LLM circuit breaker state (0=closed, 1=open, 2=half-open)")
+                .register(meterRegistry);
+
+        this.bulkheadRejections = rejectionCounter(meterRegistry, "bulkhead");
+        this.breakerRejections = rejectionCounter(meterRegistry, "breaker");
+        this.timeouts = Counter.builder("grimore.ai.calls.timeouts")
+                .description("LLM calls that exceeded the per-call deadline")
+                .register(meterRegistry);
+        this.failures = Counter.builder("grimore.ai.calls.failures")
+                .description("LLM calls that failed (including timeouts)")
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> call) {
+        boolean trial = admit();
+
+        try {
+            acquirePermit();
+        } catch (RuntimeException ex) {
+            abandonTrial(trial);
+            throw ex;
+        }
+
+        try {
+            T result = runWithDeadline(call);
+            onSuccess();
+            return result;
+        } catch (BadRequestException ex) {
+            // o modelo respondeu; conteúdo inútil não é falha do serviço
+            onSuccess();
+            throw ex;
+        } catch (ServiceUnavailableException ex) {
+            onFailure();
+            throw ex;
+        } catch (RuntimeException ex) {
+            onFailure();
+            log.warn("LLM call failed: {}", ex.getMessage());
+            throw new ServiceUnavailableException("Serviço de extração indisponível no momento", ex);
+        }
+    }
+
+    public State getState() {
+        synchronized (breakerLock) {
+            if (state == State.OPEN && openElapsed()) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return waiting.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== Bulkhead ====================
+
+    private void acquirePermit() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            bulkheadRejections.increment();
+            throw new ServiceUnavailableException("Muitas extrações em andamento. Por favor tente novamente em alguns instantes.");
+        }
+
+        try {
+            if (!permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                bulkheadRejections.increment();
+                throw new ServiceUnavailableException("Muitas extrações em andamento. Por favor tente novamente em alguns instantes.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Extração do comprovante interrompida", ex);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // ==================== Deadline ====================
+
+    /**
+     * Roda a chamada em uma thread própria e espera até o prazo. A vaga do bulkhead (já adquirida)
+     * é devolvida pela própria tarefa ao terminar, e não quando o chamador desiste de esperar.
+     */
+    private <T> T runWithDeadline(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                runner.set(Thread.currentThread());
+                T value = null;
+                Throwable failure = null;
+                try {
+                    // o chamador já desistiu antes de a tarefa começar
+                    if (!result.isDone()) {
+                        value = call.get();
+                    }
+                } catch (Throwable ex) {
+                    failure = ex;
+                } finally {
+                    // libera antes de entregar o resultado: quem o recebe já pode fazer a próxima chamada
+                    inFlight.decrementAndGet();
+                    permits.release();
+                }
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.decrementAndGet();
+            permits.release();
+            throw new ServiceUnavailableException("Serviço de extração indisponível no momento", ex);
+        }
+
+        try {
+            return result.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            abandon(result, runner, ex);
+            timeouts.increment();
+            log.warn("LLM call exceeded deadline of {} ms", callTimeoutMs);
+            throw new ServiceUnavailableException("O serviço de extração demorou demais para responder", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new InternalServerErrorException("Falha na extração do comprovante", ex.getCause());
+        } catch (InterruptedException ex) {
+            abandon(result, runner, ex);
+            Thread.currentThread().interrupt();
+            throw new InternalServerErrorException("Extração do comprovante interrompida", ex);
+        }
+    }
+
+    /**
+     * Marca a chamada como abandonada antes de ler a thread: ou a tarefa já registrou a thread e é
+     * interrompida, ou ainda não começou e vê o resultado concluído.
+     */
+    private static void abandon(CompletableFuture<?> result, AtomicReference<Thread> runner, Exception cause) {
+        result.completeExceptionally(cause);
+        Thread thread = runner.get();
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // ==================== Circuit breaker ====================
+
+    /**
+     * Libera a chamada ou falha imediatamente. Retorna true se ela é a chamada de teste do meio-aberto.
+     */
+    private boolean admit() {
+        synchronized (breakerLock) {
+            switch (state) {
+                case CLOSED -> {
+                    return false;
+                }
+                case OPEN -> {
+                    if (!openElapsed()) {
+                        breakerRejections.increment();
+                        throw new ServiceUnavailableException("Serviço de extração indisponível no momento");
+                    }
+                    state = State.HALF_OPEN;
+                    log.info("LLM circuit breaker half-open, allowing a trial call");
+                }
+                case HALF_OPEN -> {
+                    if (trialInFlight) {
+                        breakerRejections.increment();
+                        throw new ServiceUnavailableException("Serviço de extração indisponível no momento");
+                    }
+                }
+            }
+            trialInFlight = true;
+            return true;
+        }
+    }
+
+    private void abandonTrial(boolean trial) {
+        if (!trial) {
+            return;
+        }
+        synchronized (breakerLock) {
+            trialInFlight = false;
+        }
+    }
+
+    private void onSuccess() {
+        synchronized (breakerLock) {
+            if (state != State.CLOSED) {
+                log.info("LLM circuit breaker closed");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+    }
+
+    private void onFailure() {
+        failures.increment();
+        synchronized (breakerLock) {
+            consecutiveFailures++;
+            trialInFlight = false;
+
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != State.OPEN) {
+                    log.warn("LLM circuit breaker opened after {} consecutive failures", consecutiveFailures);
+                }
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+            }
+        }
+    }
+
+    private boolean openElapsed() {
+        return System.nanoTime() - openedAtNanos >= TimeUnit.MILLISECONDS.toNanos(openDurationMs);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("grimore.ai.calls.rejected")
+                .description("LLM calls rejected before reaching the model")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
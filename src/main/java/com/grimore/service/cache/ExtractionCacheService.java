@@ -0,0 +1,241 @@
+package com.grimore.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.model.ExtractionCacheEntry;
+import com.grimore.repository.ExtractionCacheRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache de resultados de extração do comprovante, endereçado por conteúdo.
+ *
+ * Dois níveis de chave:
+ * - {@code pdf:<sha256>} dos bytes do arquivo (evita até o parse do PDF)
+ * - {@code text:<sha256>} do texto normalizado (PDFs diferentes com o mesmo conteúdo)
+ *
+ * Toda chave começa pela versão do pipeline ({@code <versão>:pdf:...}): um resumo de
+ * {@link #PIPELINE_VERSION} e dos modelos da cascata. Trocar um modelo ou subir a versão faz
+ * as entradas antigas deixarem de ser encontradas; elas somem ao expirar.
+ *
+ * Um near-cache local (Caffeine) fica na frente da tabela {@code extraction_cache},
+ * e chamadas concorrentes para a mesma chave são coalescidas em uma única extração.
+ */
+@Slf4j
+@Service
+public class ExtractionCacheService {
+
+    /**
+     * Versão da extração (redução do prompt, cascata, reparo de linhas, parser local). Subir a cada
+     * mudança que altere o resultado extraído de um mesmo PDF.
+     */
+    static final int PIPELINE_VERSION = 4;
+
+    private static final String PDF_PREFIX = "pdf:";
+    private static final String TEXT_PREFIX = "text:";
+    private static final TypeReference<List<ExtractedDisciplineDTO>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final ExtractionCacheRepository extractionCacheRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, List<ExtractedDisciplineDTO>> nearCache;
+    private final ConcurrentMap<String, CompletableFuture<List<ExtractedDisciplineDTO>>> inFlight = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final String pipelinePrefix;
+
+    public ExtractionCacheService(
+            ExtractionCacheRepository extractionCacheRepository,
+            ObjectMapper objectMapper,
+            @Value("${ai.cascade.fast-model}") String fastModel,
+            @Value("${ai.cascade.strong-model}") String strongModel,
+            @Value("${extraction.cache.ttl-hours}") long ttlHours,
+            @Value("${extraction.cache.near-max-entries}") long nearMaxEntries,
+            @Value("${extraction.cache.near-ttl-minutes}") long nearTtlMinutes) {
+        this.extractionCacheRepository = extractionCacheRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaxEntries)
+                .expireAfterWrite(Duration.ofMinutes(nearTtlMinutes))
+                .build();
+        this.pipelinePrefix = pipelinePrefix(fastModel, strongModel);
+        log.info("Extraction cache pipeline version {} ({}, {})", pipelinePrefix, fastModel, strongModel);
+    }
+
+    // ==================== Chaves ====================
+
+    public String pdfKey(Path pdf) {
+        return pdfKey(pdfHash(pdf));
+    }
+
+    /** Chave de um PDF cujo hash já foi calculado com {@link #pdfHash}. */
+    public String pdfKey(String sha256) {
+        return pipelinePrefix + PDF_PREFIX + sha256;
+    }
+
+    /** SHA-256 (hex) dos bytes do PDF, o mesmo endereço usado pelo blob store. */
+    public String pdfHash(Path pdf) {
+        try (InputStream in = Files.newInputStream(pdf)) {
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Falha ao calcular hash do PDF", ex);
+        }
+    }
+
+    public String textKey(String text) {
+        // colapsa qualquer whitespace para que diferenças de quebra de linha não gerem chaves novas
+        String normalized = text.strip().replaceAll("\\s+", " ");
+        byte[] hash = sha256().digest(normalized.getBytes(StandardCharsets.UTF_8));
+        return pipelinePrefix + TEXT_PREFIX + HexFormat.of().formatHex(hash);
+    }
+
+    /** 8 caracteres hex: a chave mais longa ({@code text:} + 64) ainda cabe no {@code VARCHAR(80)}. */
+    static String pipelinePrefix(String fastModel, String strongModel) {
+        String version = PIPELINE_VERSION + "|" + fastModel + "|" + strongModel;
+        byte[] hash = sha256().digest(version.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash, 0, 4) + ":";
+    }
+
+    // ==================== Leitura / escrita ====================
+
+    /**
+     * Retorna o valor em cache ou executa {@code loader} uma única vez por chave,
+     * mesmo com várias requisições idênticas simultâneas.
+     */
+    public List<ExtractedDisciplineDTO> getOrCompute(String key, Supplier<List<ExtractedDisciplineDTO>> loader) {
+        Optional<List<ExtractedDisciplineDTO>> cached = get(key);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        CompletableFuture<List<ExtractedDisciplineDTO>> mine = new CompletableFuture<>();
+        CompletableFuture<List<ExtractedDisciplineDTO>> existing = inFlight.putIfAbsent(key, mine);
+
+        if (existing != null) {
+            log.debug("Coalescing extraction for key {}", key);
+            return await(existing);
+        }
+
+        try {
+            // outra thread pode ter terminado entre o get() e o putIfAbsent()
+            List<ExtractedDisciplineDTO> result = get(key).orElseGet(() -> {
+                List<ExtractedDisciplineDTO> computed = loader.get();
+                put(key, computed);
+                return computed;
+            });
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public Optional<List<ExtractedDisciplineDTO>> get(String key) {
+        List<ExtractedDisciplineDTO> near = nearCache.getIfPresent(key);
+        if (near != null) {
+            return Optional.of(near);
+        }
+
+        Optional<List<ExtractedDisciplineDTO>> stored = extractionCacheRepository
+                .findByCacheKeyAndExpiresAtAfter(key, LocalDateTime.now())
+                .flatMap(entry -> deserialize(key, entry.getPayload()));
+
+        stored.ifPresent(value -> nearCache.put(key, value));
+        return stored;
+    }
+
+    public void put(String key, List<ExtractedDisciplineDTO> disciplines) {
+        if (disciplines == null || disciplines.isEmpty()) {
+            return;
+        }
+
+        List<ExtractedDisciplineDTO> value = List.copyOf(disciplines);
+        nearCache.put(key, value);
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            extractionCacheRepository.save(ExtractionCacheEntry.builder()
+                    .cacheKey(key)
+                    .payload(objectMapper.writeValueAsString(value))
+                    .createdAt(now)
+                    .expiresAt(now.plus(ttl))
+                    .build());
+        } catch (Exception ex) {
+            // o cache é otimização: falha ao persistir não pode derrubar a importação
+            log.warn("Could not persist extraction cache entry {}: {}", key, ex.getMessage());
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${extraction.cache.cleanup-interval-ms}")
+    public void evictExpired() {
+        int removed = extractionCacheRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            log.info("Removed {} expired extraction cache entries", removed);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private Optional<List<ExtractedDisciplineDTO>> deserialize(String key, String payload) {
+        try {
+            return Optional.of(List.copyOf(objectMapper.readValue(payload, PAYLOAD_TYPE)));
+        } catch (JsonProcessingException ex) {
+            log.warn("Discarding unreadable extraction cache entry {}: {}", key, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private List<ExtractedDisciplineDTO> await(CompletableFuture<List<ExtractedDisciplineDTO>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 indisponível", ex);
+        }
+    }
+}
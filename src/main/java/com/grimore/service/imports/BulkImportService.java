@@ -0,0 +1,259 @@
+package com.grimore.service.imports;
+
+import com.grimore.dto.response.BulkImportFileResultDTO;
+import com.grimore.dto.response.BulkImportSummaryDTO;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.MessageResponseDTO;
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.resource.ConflictException;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.ServiceUnavailableException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.pdf.PdfUploadStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Importação em lote de comprovantes (onboarding de turmas) a partir de um zip.
+ *
+ * O zip chega como corpo {@code application/zip} da requisição, fora do multipart (que fica
+ * limitado ao tamanho de um PDF avulso), e é copiado em blocos para disco até
+ * {@code imports.bulk.max-zip-size-mb}.
+ *
+ * Cada PDF do zip é associado a um estudante pelo nome: {@code 42.pdf}, {@code 42_fulano.pdf}
+ * ou {@code 42/comprovante.pdf}. As entradas são lidas em sequência do zip em disco e copiadas,
+ * uma a uma, para arquivos temporários; no máximo {@code imports.bulk.max-parallel} ficam em
+ * processamento ao mesmo tempo (a leitura do zip espera quando o limite é atingido).
+ * O paralelismo efetivo ainda é limitado pelo {@code PdfParsingGovernor} e pelo {@code LlmCallGuard}.
+ *
+ * Com {@link ImportMode#UPSERT}, reimportar a turma atualiza as disciplinas existentes em vez de
+ * gerar um erro de duplicidade por linha.
+ *
+ * O resultado de cada arquivo é emitido como evento SSE {@code file} assim que termina;
+ * ao final vem um evento {@code summary} (ou {@code error}, se o zip não puder ser lido).
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final Pattern STUDENT_FROM_FILE =
+            Pattern.compile("(?:^|/)(\\d+)(?:[_\\-. ][^/]*)?\\.pdf$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern STUDENT_FROM_DIR = Pattern.compile("^(\\d+)/[^/]+\\.pdf$", Pattern.CASE_INSENSITIVE);
+
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final ImportExecutor importExecutor;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final int maxParallel;
+    private final int maxEntries;
+    private final long maxEntryBytes;
+    private final long maxZipBytes;
+    private final long timeoutMs;
+
+    public BulkImportService(
+            DisciplinePdfImportService disciplinePdfImportService,
+            ImportExecutor importExecutor,
+            PdfUploadStorage pdfUploadStorage,
+            @Value("${imports.bulk.max-parallel}") int maxParallel,
+            @Value("${imports.bulk.max-entries}") int maxEntries,
+            @Value("${imports.bulk.max-entry-size-mb}") long maxEntrySizeMb,
+            @Value("${imports.bulk.max-zip-size-mb}") long maxZipSizeMb,
+            @Value("${imports.bulk.stream-timeout-ms}") long timeoutMs) {
+        this.disciplinePdfImportService = disciplinePdfImportService;
+        this.importExecutor = importExecutor;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.maxParallel = maxParallel;
+        this.maxEntries = maxEntries;
+        this.maxEntryBytes = maxEntrySizeMb * 1024 * 1024;
+        this.maxZipBytes = maxZipSizeMb * 1024 * 1024;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter importZip(InputStream body, long contentLength, ImportMode mode) {
+        if (contentLength > maxZipBytes) {
+            throw new BadRequestException("Arquivo zip excede o tamanho máximo de " + (maxZipBytes / (1024 * 1024)) + "MB");
+        }
+
+        Path zip = pdfUploadStorage.spool(body, maxZipBytes, ".zip");
+        if (isEmpty(zip)) {
+            pdfUploadStorage.discard(zip);
+            throw new BadRequestException("Arquivo zip é obrigatório");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+
+        try {
+            importExecutor.execute(() -> run(new ImportEventSink(emitter), zip, mode));
+        } catch (RateLimitExceededException ex) {
+            pdfUploadStorage.discard(zip);
+            throw ex;
+        }
+
+        return emitter;
+    }
+
+    private void run(ImportEventSink sink, Path zip, ImportMode mode) {
+        long start = System.nanoTime();
+        Tally tally = new Tally();
+
+        try {
+            processEntries(sink, zip, tally, mode);
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            sink.send("summary", new BulkImportSummaryDTO(
+                    tally.total, tally.succeeded.get(), tally.failed.get(), tally.disciplinesCreated.get(), elapsedMs));
+            sink.complete();
+
+            log.info("Bulk import finished: {} files ({} ok, {} failed) in {} ms",
+                    tally.total, tally.succeeded.get(), tally.failed.get(), elapsedMs);
+        } catch (ZipException ex) {
+            log.warn("Invalid zip in bulk import: {}", ex.getMessage());
+            sink.fail("Arquivo zip inválido");
+        } catch (IOException ex) {
+            log.error("Failed to read bulk import zip", ex);
+            sink.fail("Falha ao ler o arquivo zip");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            sink.fail("Importação em lote interrompida");
+        } finally {
+            pdfUploadStorage.discard(zip);
+        }
+    }
+
+    private void processEntries(ImportEventSink sink, Path zip, Tally tally, ImportMode mode) throws IOException, InterruptedException {
+        Semaphore slots = new Semaphore(maxParallel);
+
+        // o close() do executor espera os arquivos em andamento terminarem
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(Files.newInputStream(zip)));
+             ExecutorService workers = Executors.newThreadPerTaskExecutor(
+                     Thread.ofVirtual().name("bulk-import-", 0).factory())) {
+
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                String name = entry.getName();
+                if (entry.isDirectory() || !name.toLowerCase().endsWith(".pdf") || isMetadata(name)) {
+                    continue;
+                }
+
+                if (tally.total >= maxEntries) {
+                    sink.send("warning", new MessageResponseDTO(
+                            "Limite de " + maxEntries + " arquivos por lote atingido; os demais foram ignorados"));
+                    break;
+                }
+                tally.total++;
+
+                Integer studentId = studentIdFrom(name);
+                if (studentId == null) {
+                    tally.record(sink, failure(name, null,
+                            "Nome do arquivo deve começar com o id do estudante (ex: 42.pdf ou 42/comprovante.pdf)"));
+                    continue;
+                }
+
+                // espera uma vaga antes de copiar a próxima entrada: limita disco e memória em uso
+                slots.acquire();
+
+                Path pdf;
+                try {
+                    pdf = pdfUploadStorage.spool(in, maxEntryBytes);
+                } catch (RuntimeException ex) {
+                    slots.release();
+                    tally.record(sink, failure(name, studentId, ex.getMessage()));
+                    continue;
+                }
+
+                workers.execute(() -> {
+                    try {
+                        tally.record(sink, importFile(name, studentId, pdf, mode));
+                    } finally {
+                        pdfUploadStorage.discard(pdf);
+                        slots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    private BulkImportFileResultDTO importFile(String name, Integer studentId, Path pdf, ImportMode mode) {
+        try {
+            ImportDisciplinesResultDTO result = disciplinePdfImportService.importEnrollmentPdf(
+                    pdf, studentId, ImportProgressListener.NOOP, mode);
+            return new BulkImportFileResultDTO(name, studentId, true,
+                    result.extractedCount(), result.createdCount(), result.updatedCount(), result.unchangedCount(),
+                    result.errors(), null);
+        } catch (BadRequestException | ConflictException | ResourceNotFoundException
+                 | ServiceUnavailableException | RateLimitExceededException ex) {
+            return failure(name, studentId, ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Bulk import of {} for student {} failed unexpectedly", name, studentId, ex);
+            return failure(name, studentId, "Um erro inesperado ocorreu ao processar o comprovante");
+        }
+    }
+
+    private static boolean isEmpty(Path file) {
+        try {
+            return Files.size(file) == 0;
+        } catch (IOException ex) {
+            return true;
+        }
+    }
+
+    static Integer studentIdFrom(String entryName) {
+        Matcher dir = STUDENT_FROM_DIR.matcher(entryName);
+        if (dir.find()) {
+            return parseId(dir.group(1));
+        }
+
+        Matcher file = STUDENT_FROM_FILE.matcher(entryName);
+        return file.find() ? parseId(file.group(1)) : null;
+    }
+
+    private static Integer parseId(String digits) {
+        try {
+            return Integer.valueOf(digits);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    /** Arquivos auxiliares que o macOS coloca em zips ({@code __MACOSX/}, {@code ._nome.pdf}). */
+    private static boolean isMetadata(String name) {
+        return name.startsWith("__MACOSX/") || name.contains("/._") || name.startsWith("._");
+    }
+
+    private static final class Tally {
+
+        private int total;
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger disciplinesCreated = new AtomicInteger();
+
+        void record(ImportEventSink sink, BulkImportFileResultDTO result) {
+            (result.success() ? succeeded : failed).incrementAndGet();
+            if (result.createdCount() != null) {
+                disciplinesCreated.addAndGet(result.createdCount());
+            }
+            sink.send("file", result);
+        }
+    }
+
+    private static BulkImportFileResultDTO failure(String name, Integer studentId, String error) {
+        return new BulkImportFileResultDTO(name, studentId, false, null, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,67 @@
+package com.grimore.service.imports;
+
+import com.grimore.dto.response.ImportStageEventDTO;
+import com.grimore.dto.response.MessageResponseDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Envolve o {@link SseEmitter} das importações em streaming.
+ * Falhas de envio após a desconexão do cliente são ignoradas: a importação continua
+ * até o fim, apenas sem emitir eventos. Seguro para envio a partir de várias threads.
+ *
+ * O envio é I/O bloqueante, por isso o lock é um {@link ReentrantLock} e não {@code synchronized},
+ * que no Java 21 prende a virtual thread à thread carregadora enquanto espera o cliente.
+ */
+@Slf4j
+class ImportEventSink {
+
+    private final SseEmitter emitter;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean open = true;
+
+    ImportEventSink(SseEmitter emitter) {
+        this.emitter = emitter;
+        emitter.onTimeout(() -> open = false);
+        emitter.onError(ex -> open = false);
+    }
+
+    void stage(ImportStage stage) {
+        send("stage", new ImportStageEventDTO(stage, stage.getProgress()));
+    }
+
+    void send(String name, Object data) {
+        lock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException ex) {
+            log.debug("SSE client gone, continuing import silently: {}", ex.getMessage());
+            open = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void fail(String message) {
+        send("error", new MessageResponseDTO(message));
+        complete();
+    }
+
+    void complete() {
+        lock.lock();
+        try {
+            if (open) {
+                emitter.complete();
+                open = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
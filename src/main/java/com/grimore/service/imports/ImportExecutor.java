@@ -0,0 +1,103 @@
+package com.grimore.service.imports;
+
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor limitado para o trabalho pesado de importação de PDFs: uma virtual thread por tarefa,
+ * com a concorrência controlada por semáforos (como no {@link BulkImportService}), sem pool fixo.
+ *
+ * - no máximo {@code imports.executor.max-concurrency} importações rodando ao mesmo tempo
+ * - até {@code imports.executor.queue-capacity} esperando uma vaga (virtual threads estacionadas)
+ * - além disso, a submissão é rejeitada com 429
+ */
+@Slf4j
+@Component
+public class ImportExecutor {
+
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int capacity;
+    // vagas de execução; quem não consegue a sua espera na fila
+    private final Semaphore running;
+    // vagas de execução + fila: sem uma delas a tarefa nem é criada
+    private final Semaphore admitted;
+
+    public ImportExecutor(
+            @Value("${imports.executor.max-concurrency}") int maxConcurrency,
+            @Value("${imports.executor.queue-capacity}") int queueCapacity) {
+        this.maxConcurrency = maxConcurrency;
+        this.capacity = maxConcurrency + queueCapacity;
+        this.running = new Semaphore(maxConcurrency, true);
+        this.admitted = new Semaphore(capacity);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("pdf-import-", 0).factory());
+    }
+
+    public void execute(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            log.warn("Import executor saturated: {} running, {} queued", getActiveCount(), getQueuedCount());
+            throw new RateLimitExceededException(
+                    "Muitas importações em andamento. Por favor tente novamente em alguns instantes.");
+        }
+
+        try {
+            executor.execute(() -> run(task));
+        } catch (RuntimeException ex) {
+            // executor já encerrado
+            admitted.release();
+            throw ex;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            running.acquire();
+        } catch (InterruptedException ex) {
+            // encerramento forçado enquanto a tarefa ainda esperava na fila
+            admitted.release();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            task.run();
+        } finally {
+            running.release();
+            admitted.release();
+        }
+    }
+
+    public int getActiveCount() {
+        return maxConcurrency - running.availablePermits();
+    }
+
+    public int getQueuedCount() {
+        return Math.max(0, capacity - admitted.availablePermits() - getActiveCount());
+    }
+
+    /** Quantas tarefas começariam a rodar agora, sem esperar na fila. */
+    public int getAvailableSlots() {
+        return Math.max(0, maxConcurrency - (capacity - admitted.availablePermits()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
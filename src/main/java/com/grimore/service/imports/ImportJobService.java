@@ -0,0 +1,145 @@
+package com.grimore.service.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.ImportJobDTO;
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.resource.ConflictException;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.repository.ImportJobRepository;
+import com.grimore.repository.ImportJobRepository.ImportJobRecord;
+import com.grimore.security.SecurityUtils;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.pdf.PdfUploadStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Importação assíncrona do comprovante de matrícula.
+ *
+ * A requisição grava o PDF na fila durável ({@code import_jobs}) e responde na hora; qualquer
+ * nó da aplicação pode processar o job ({@link ImportQueueWorker}), e ele sobrevive a restarts
+ * e deploys. O cliente acompanha o andamento via polling em {@code GET /imports/{id}}.
+ */
+@Slf4j
+@Service
+public class ImportJobService {
+
+    private static final int MAX_DEAD_LETTERS = 200;
+
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final ImportJobRepository importJobRepository;
+    private final ImportQueueWorker importQueueWorker;
+    private final ObjectMapper objectMapper;
+    private final int maxAttempts;
+    private final int maxDepth;
+
+    public ImportJobService(
+            DisciplinePdfImportService disciplinePdfImportService,
+            PdfUploadStorage pdfUploadStorage,
+            ImportJobRepository importJobRepository,
+            ImportQueueWorker importQueueWorker,
+            ObjectMapper objectMapper,
+            @Value("${imports.queue.max-attempts}") int maxAttempts,
+            @Value("${imports.queue.max-depth}") int maxDepth) {
+        this.disciplinePdfImportService = disciplinePdfImportService;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.importJobRepository = importJobRepository;
+        this.importQueueWorker = importQueueWorker;
+        this.objectMapper = objectMapper;
+        this.maxAttempts = maxAttempts;
+        this.maxDepth = maxDepth;
+    }
+
+    public ImportJobDTO submitEnrollmentPdf(MultipartFile file, ImportMode mode) {
+        disciplinePdfImportService.validateUpload(file);
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+
+        // o multipart é descartado ao fim da requisição; o PDF vai do arquivo para o banco em stream
+        Path spooled = pdfUploadStorage.spool(file);
+
+        try {
+            return submitEnrollmentPdf(spooled, studentId, mode);
+        } finally {
+            pdfUploadStorage.discard(spooled);
+        }
+    }
+
+    /**
+     * Enfileira um PDF que já está em disco (ex: upload retomável finalizado). O conteúdo é
+     * copiado para a fila; o arquivo continua com quem chamou.
+     */
+    public ImportJobDTO submitEnrollmentPdf(Path pdf, Integer studentId, ImportMode mode) {
+        UUID id = UUID.randomUUID();
+
+        if (!importJobRepository.insert(id, studentId, mode, maxAttempts, pdf, maxDepth)) {
+            log.warn("Import queue full ({} jobs waiting), rejecting job for student {}", maxDepth, studentId);
+            throw new RateLimitExceededException(
+                    "Muitas importações em andamento. Por favor tente novamente em alguns instantes.");
+        }
+
+        log.info("Import job {} queued for student {}", id, studentId);
+        importQueueWorker.wakeUp();
+        return findJob(id, studentId);
+    }
+
+    public ImportJobDTO findCurrentStudentJob(UUID id) {
+        return findJob(id, SecurityUtils.getCurrentStudentId());
+    }
+
+    /** Jobs que esgotaram as tentativas, do mais recente para o mais antigo. */
+    public List<ImportJobDTO> findDeadLetters(int limit) {
+        return importJobRepository.findDead(Math.clamp(limit, 1, MAX_DEAD_LETTERS)).stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    /** Recoloca na fila um job {@code DEAD}, com as tentativas zeradas. */
+    public void retryDeadLetter(UUID id) {
+        if (!importJobRepository.retryDead(id)) {
+            throw new ConflictException("A importação " + id + " não está na fila de falhas definitivas");
+        }
+        log.info("Dead-lettered import job {} requeued", id);
+        importQueueWorker.wakeUp();
+    }
+
+    private ImportJobDTO findJob(UUID id, Integer studentId) {
+        // não revela a existência de jobs de outros estudantes
+        return importJobRepository.findByIdAndStudent(id, studentId)
+                .map(this::toDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Importação", "id", id));
+    }
+
+    private ImportJobDTO toDTO(ImportJobRecord job) {
+        return new ImportJobDTO(
+                job.id(),
+                job.status(),
+                job.stage(),
+                job.stage().getProgress(),
+                job.attempts(),
+                fromJson(job.result()),
+                job.error(),
+                job.createdAt(),
+                job.updatedAt()
+        );
+    }
+
+    private ImportDisciplinesResultDTO fromJson(String result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(result, ImportDisciplinesResultDTO.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Resultado da importação ilegível", ex);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.grimore.service.imports;
+
+/**
+ * Estado de um job na fila durável ({@code import_jobs}).
+ * {@code FAILED} é um erro do documento (não adianta tentar de novo);
+ * {@code DEAD} esgotou as tentativas por erros transitórios e aguarda reprocessamento manual.
+ */
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    DEAD
+}
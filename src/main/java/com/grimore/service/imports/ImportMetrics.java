@@ -0,0 +1,145 @@
+package com.grimore.service.imports;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas do pipeline de importação do comprovante, visíveis em {@code /actuator/metrics}:
+ * - {@code grimore.import.stage.duration{stage, result}}: tempo de cada etapa
+ * - {@code grimore.import.duration{mode, result}}: importação completa
+ * - {@code grimore.import.pdf.pages} / {@code grimore.import.pdf.chars} {@code {result}}: tamanho do documento
+ * - {@code grimore.import.rows{result}}: linhas extraídas válidas/inválidas
+ * - {@code grimore.import.ai.tokens{type, tier}}: tokens de prompt e de resposta informados pelo modelo
+ * - {@code grimore.import.extractions{outcome}}: de onde veio o resultado da extração
+ */
+@Component
+public class ImportMetrics {
+
+    public enum Stage {
+        UPLOAD,
+        PDF_LOAD,
+        TEXT_EXTRACTION,
+        RULES,
+        LLM,
+        VALIDATION,
+        PERSISTENCE
+    }
+
+    public enum Outcome {
+        CACHE_HIT,
+        RULES,
+        LLM,
+        DEGRADED,
+        FAILED
+    }
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+
+    private final MeterRegistry meterRegistry;
+
+    public ImportMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Executa {@code work} medindo a etapa; exceções são registradas com {@code result=failure}
+     * e propagadas.
+     */
+    public <T> T time(Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        String result = FAILURE;
+        try {
+            T value = work.get();
+            result = SUCCESS;
+            return value;
+        } finally {
+            recordStage(stage, result, System.nanoTime() - start);
+        }
+    }
+
+    public void recordStage(Stage stage, String result, long nanos) {
+        Timer.builder("grimore.import.stage.duration")
+                .description("Duration of each enrollment import stage")
+                .tag("stage", tagValue(stage))
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordImport(ImportMode mode, String result, long nanos) {
+        Timer.builder("grimore.import.duration")
+                .description("End-to-end enrollment import duration")
+                .tag("mode", tagValue(mode))
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDocument(int pages, int chars, String result) {
+        DistributionSummary.builder("grimore.import.pdf.pages")
+                .description("Pages per imported PDF")
+                .baseUnit("pages")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(pages);
+        DistributionSummary.builder("grimore.import.pdf.chars")
+                .description("Extracted text characters per imported PDF")
+                .baseUnit("characters")
+                .tag("result", result)
+                .register(meterRegistry)
+                .record(chars);
+    }
+
+    public void recordRows(int valid, int invalid) {
+        rows("valid").record(valid);
+        rows("invalid").record(invalid);
+    }
+
+    public void recordTokens(String tier, Integer promptTokens, Integer completionTokens) {
+        if (promptTokens != null) {
+            tokens("prompt", tier).record(promptTokens);
+        }
+        if (completionTokens != null) {
+            tokens("completion", tier).record(completionTokens);
+        }
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        Counter.builder("grimore.import.extractions")
+                .description("Enrollment extractions by where the result came from")
+                .tag("outcome", tagValue(outcome))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DistributionSummary rows(String result) {
+        return DistributionSummary.builder("grimore.import.rows")
+                .description("Extracted rows per import by validation result")
+                .baseUnit("rows")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary tokens(String type, String tier) {
+        return DistributionSummary.builder("grimore.import.ai.tokens")
+                .description("LLM token usage per call reported in the response metadata")
+                .baseUnit("tokens")
+                .tag("type", type)
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,12 @@
+package com.grimore.service.imports;
+
+/**
+ * Como as disciplinas extraídas são gravadas.
+ *
+ * - {@code CREATE}: só cria; códigos já ativos para o estudante viram erro no relatório
+ * - {@code UPSERT}: cria ou atualiza pelo código em um único comando (reimportação idempotente)
+ */
+public enum ImportMode {
+    CREATE,
+    UPSERT
+}
@@ -0,0 +1,181 @@
+package com.grimore.service.imports;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.grimore.dto.request.CommitImportPreviewDTO;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.dto.response.BatchCreateReportDTO;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.ImportPreviewDTO;
+import com.grimore.dto.response.ImportRejectionDTO;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.security.SecurityUtils;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.DisciplineService;
+import com.grimore.service.cache.ExtractionCacheService;
+import com.grimore.service.pdf.PdfBlobStore;
+import com.grimore.service.pdf.PdfUploadStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Importação em duas fases: pré-visualização e confirmação.
+ *
+ * A pré-visualização extrai e valida as disciplinas (mesmo pipeline e cache da importação
+ * direta) e guarda a lista em memória sob um token de uso único, com no máximo
+ * {@code imports.preview.max-entries} entradas e expiração em {@code imports.preview.ttl-minutes}.
+ * A confirmação persiste as disciplinas escolhidas pelo lote do {@link DisciplineService},
+ * sem novo parse nem chamada ao LLM.
+ */
+@Slf4j
+@Service
+public class ImportPreviewService {
+
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final DisciplineService disciplineService;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final PdfBlobStore pdfBlobStore;
+    private final ExtractionCacheService extractionCacheService;
+    private final Duration ttl;
+    private final Cache<UUID, Preview> previews;
+
+    public ImportPreviewService(
+            DisciplinePdfImportService disciplinePdfImportService,
+            DisciplineService disciplineService,
+            PdfUploadStorage pdfUploadStorage,
+            PdfBlobStore pdfBlobStore,
+            ExtractionCacheService extractionCacheService,
+            @Value("${imports.preview.ttl-minutes}") long ttlMinutes,
+            @Value("${imports.preview.max-entries}") long maxEntries) {
+        this.disciplinePdfImportService = disciplinePdfImportService;
+        this.disciplineService = disciplineService;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.pdfBlobStore = pdfBlobStore;
+        this.extractionCacheService = extractionCacheService;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.previews = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public ImportPreviewDTO preview(MultipartFile file) {
+        disciplinePdfImportService.validateUpload(file);
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+
+        List<ExtractedDisciplineDTO> extracted;
+        Path pdf = pdfUploadStorage.spool(file);
+        try {
+            String sha256 = extractionCacheService.pdfHash(pdf);
+            pdfBlobStore.storeInBackground(pdf, sha256, studentId);
+            extracted = disciplinePdfImportService.extractDisciplines(pdf, sha256, studentId, ImportProgressListener.NOOP);
+        } finally {
+            pdfUploadStorage.discard(pdf);
+        }
+
+        List<ExtractedDisciplineDTO> valid = new ArrayList<>();
+        List<ImportRejectionDTO> rejected = new ArrayList<>();
+        for (int i = 0; i < extracted.size(); i++) {
+            ExtractedDisciplineDTO dto = extracted.get(i);
+            try {
+                valid.add(disciplineService.normalizeExtracted(dto));
+            } catch (BadRequestException ex) {
+                rejected.add(new ImportRejectionDTO(i + 1, dto.code(), ex.getMessage()));
+            }
+        }
+
+        if (valid.isEmpty()) {
+            throw new BadRequestException("Nenhuma disciplina válida foi encontrada no comprovante");
+        }
+
+        UUID token = UUID.randomUUID();
+        previews.put(token, new Preview(studentId, List.copyOf(valid)));
+
+        log.info("Import preview {} created for student {}: {} valid, {} rejected",
+                token, studentId, valid.size(), rejected.size());
+
+        return new ImportPreviewDTO(token, extracted.size(), valid, rejected, LocalDateTime.now().plus(ttl));
+    }
+
+    public ImportDisciplinesResultDTO commit(UUID token, CommitImportPreviewDTO request) {
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+        Preview preview = previews.getIfPresent(token);
+
+        // não revela a existência de pré-visualizações de outros estudantes
+        if (preview == null || !preview.studentId().equals(studentId)) {
+            throw new ResourceNotFoundException("Pré-visualização", "token", token);
+        }
+
+        List<ExtractedDisciplineDTO> selected = select(preview, request);
+
+        // uso único: entre duas confirmações simultâneas, só uma remove o token
+        if (!previews.asMap().remove(token, preview)) {
+            throw new ResourceNotFoundException("Pré-visualização", "token", token);
+        }
+
+        BatchCreateReportDTO report;
+        try {
+            report = disciplineService.createBatchFromExtractedWithReport(studentId, selected);
+        } catch (BadRequestException ex) {
+            // nada foi criado: devolve o token para o estudante ajustar a seleção
+            previews.asMap().putIfAbsent(token, preview);
+            throw ex;
+        }
+
+        log.info("Import preview {} committed for student {}: {} selected, {} created",
+                token, studentId, selected.size(), report.created().size());
+
+        return new ImportDisciplinesResultDTO(
+                selected.size(),
+                report.created().size(),
+                report.created(),
+                report.errors()
+        );
+    }
+
+    public void discard(UUID token) {
+        Preview preview = previews.getIfPresent(token);
+        if (preview == null || !preview.studentId().equals(SecurityUtils.getCurrentStudentId())) {
+            throw new ResourceNotFoundException("Pré-visualização", "token", token);
+        }
+        previews.invalidate(token);
+    }
+
+    private static List<ExtractedDisciplineDTO> select(Preview preview, CommitImportPreviewDTO request) {
+        if (request == null || request.codes() == null || request.codes().isEmpty()) {
+            return preview.disciplines();
+        }
+
+        Set<String> codes = request.codes().stream()
+                .map(code -> code.replaceAll("\\s+", "").toUpperCase())
+                .collect(Collectors.toSet());
+
+        List<ExtractedDisciplineDTO> selected = preview.disciplines().stream()
+                .filter(dto -> codes.contains(dto.code()))
+                .toList();
+
+        if (selected.size() < codes.size()) {
+            Set<String> known = preview.disciplines().stream()
+                    .map(ExtractedDisciplineDTO::code)
+                    .collect(Collectors.toSet());
+            List<String> unknown = codes.stream().filter(code -> !known.contains(code)).sorted().toList();
+            throw new BadRequestException("Códigos fora da pré-visualização: " + String.join(", ", unknown));
+        }
+
+        return selected;
+    }
+
+    private record Preview(Integer studentId, List<ExtractedDisciplineDTO> disciplines) {}
+}
@@ -0,0 +1,12 @@
+package com.grimore.service.imports;
+
+/**
+ * Recebe notificações de avanço do pipeline de importação.
+ */
+@FunctionalInterface
+public interface ImportProgressListener {
+
+    ImportProgressListener NOOP = stage -> {};
+
+    void onStage(ImportStage stage);
+}
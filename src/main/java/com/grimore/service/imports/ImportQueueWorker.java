@@ -0,0 +1,342 @@
+package com.grimore.service.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.exception.ratelimit.AiQuotaExceededException;
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.resource.ConflictException;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.ServiceUnavailableException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.repository.ImportJobRepository;
+import com.grimore.repository.ImportJobRepository.ClaimedJob;
+import com.grimore.repository.ImportJobRepository.QueueStats;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.pdf.PdfUploadStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consome a fila durável de importações ({@code import_jobs}) neste nó.
+ *
+ * - reserva no máximo as vagas livres do {@link ImportExecutor}, então um nó ocupado deixa os
+ *   jobs para os outros em vez de acumulá-los na fila local
+ * - mantém o lease dos jobs em andamento com um heartbeat; se o nó cair, o lease expira e
+ *   outro nó devolve o job à fila
+ * - erros do documento ({@code 400}/{@code 404}/{@code 409}) e cota de IA esgotada encerram o job
+ *   como {@code FAILED}; os demais voltam à fila com backoff exponencial até {@code max_attempts}
+ *   e então viram {@code DEAD}
+ *
+ * A entrega é "ao menos uma vez": um job cujo nó perdeu o lease pode rodar de novo em outro nó.
+ * Só uma tentativa anterior que chegou a {@code PERSISTING} pode ter gravado disciplinas; nesse caso
+ * a nova tentativa roda em {@link ImportMode#UPSERT}, que é idempotente. As demais mantêm o modo
+ * pedido: uma falha antes da gravação (ex: modelo indisponível) não transforma um {@code CREATE} em
+ * {@code UPSERT}, que sobrescreveria disciplinas editadas pelo estudante. Em uma nova tentativa
+ * {@code CREATE}, disciplinas já gravadas com o mesmo conteúdo contam como importadas.
+ *
+ * Com {@code imports.queue.enabled=false} o nó só enfileira (ex: réplicas dedicadas à API).
+ */
+@Slf4j
+@Component
+public class ImportQueueWorker {
+
+    private static final String UNEXPECTED_ERROR = "Um erro inesperado ocorreu ao processar o comprovante";
+    private static final String LEASE_EXPIRED = "O processamento foi interrompido e será retomado";
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportExecutor importExecutor;
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String owner;
+    private final int batchSize;
+    private final long leaseMs;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long maxPdfBytes;
+    private final long finishedTtlMinutes;
+    private final long deadRetentionMinutes;
+
+    private final Set<UUID> running = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock pollLock = new ReentrantLock();
+    private final AtomicReference<QueueStats> stats = new AtomicReference<>(new QueueStats(0, 0, 0, 0));
+    private volatile boolean stopping;
+
+    public ImportQueueWorker(
+            ImportJobRepository importJobRepository,
+            ImportExecutor importExecutor,
+            DisciplinePdfImportService disciplinePdfImportService,
+            PdfUploadStorage pdfUploadStorage,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${imports.queue.enabled}") boolean enabled,
+            @Value("${imports.queue.node-id}") String nodeId,
+            @Value("${imports.queue.batch-size}") int batchSize,
+            @Value("${imports.queue.lease-ms}") long leaseMs,
+            @Value("${imports.queue.backoff-base-ms}") long backoffBaseMs,
+            @Value("${imports.queue.backoff-max-ms}") long backoffMaxMs,
+            @Value("${imports.pdf.max-size-mb}") long maxSizeMb,
+            @Value("${imports.jobs.ttl-minutes}") long finishedTtlMinutes,
+            @Value("${imports.queue.dead-retention-days}") long deadRetentionDays) {
+        this.importJobRepository = importJobRepository;
+        this.importExecutor = importExecutor;
+        this.disciplinePdfImportService = disciplinePdfImportService;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        // sufixo aleatório: um processo reiniciado não herda os leases do anterior
+        this.owner = (nodeId.isBlank() ? hostname() : nodeId) + "-" + UUID.randomUUID().toString().substring(0, 8);
+        this.batchSize = batchSize;
+        this.leaseMs = leaseMs;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.maxPdfBytes = maxSizeMb * 1024 * 1024;
+        this.finishedTtlMinutes = finishedTtlMinutes;
+        this.deadRetentionMinutes = deadRetentionDays * 24 * 60;
+
+        Gauge.builder("grimore.import.queue.depth", stats, s -> s.get().queued())
+                .description("Import jobs in the durable queue by status")
+                .tag("status", "queued")
+                .register(meterRegistry);
+        Gauge.builder("grimore.import.queue.depth", stats, s -> s.get().running())
+                .description("Import jobs in the durable queue by status")
+                .tag("status", "running")
+                .register(meterRegistry);
+        Gauge.builder("grimore.import.queue.depth", stats, s -> s.get().dead())
+                .description("Import jobs in the durable queue by status")
+                .tag("status", "dead")
+                .register(meterRegistry);
+        Gauge.builder("grimore.import.queue.oldest.age", stats, s -> s.get().oldestQueuedSeconds())
+                .description("Age of the oldest job waiting in the durable queue")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("grimore.import.queue.local.running", running, Set::size)
+                .description("Import jobs running on this node")
+                .register(meterRegistry);
+
+        log.info("Import queue worker {} ({})", owner, enabled ? "consuming" : "enqueue only");
+    }
+
+    /** Reserva e inicia jobs até ocupar as vagas livres do executor. */
+    @Scheduled(fixedDelayString = "${imports.queue.poll-interval-ms}")
+    public void poll() {
+        if (!enabled || stopping || !pollLock.tryLock()) {
+            return;
+        }
+
+        try {
+            while (!stopping) {
+                int slots = Math.min(batchSize, importExecutor.getAvailableSlots());
+                if (slots == 0) {
+                    return;
+                }
+
+                List<ClaimedJob> claimed = importJobRepository.claim(owner, slots, leaseMs);
+                claimed.forEach(this::dispatch);
+
+                if (claimed.size() < slots) {
+                    return;
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not poll the import queue: {}", ex.getMessage());
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /** Busca trabalho sem esperar o próximo ciclo (novo job enfileirado ou vaga liberada). */
+    public void wakeUp() {
+        if (enabled && !stopping) {
+            Thread.ofVirtual().name("import-queue-wakeup").start(this::poll);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${imports.queue.heartbeat-ms}")
+    public void renewLeases() {
+        Set<UUID> ids = Set.copyOf(running);
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            int renewed = importJobRepository.renewLeases(owner, ids, leaseMs);
+            if (renewed < ids.size()) {
+                log.warn("Renewed {} of {} import job leases; the others were taken over by another node",
+                        renewed, ids.size());
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not renew import job leases: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Devolve à fila os jobs com lease expirado (de qualquer nó), apaga jobs antigos e atualiza
+     * as métricas da fila. Roda em todos os nós; o {@code SKIP LOCKED} evita que se atrapalhem.
+     */
+    @Scheduled(fixedDelayString = "${imports.queue.maintenance-interval-ms}")
+    public void maintain() {
+        try {
+            int requeued = importJobRepository.requeueExpiredLeases(LEASE_EXPIRED, backoffBaseMs);
+            if (requeued > 0) {
+                log.warn("Requeued {} import jobs with expired leases", requeued);
+                wakeUp();
+            }
+
+            int deleted = importJobRepository.deleteFinished(finishedTtlMinutes, deadRetentionMinutes);
+            if (deleted > 0) {
+                log.debug("Deleted {} finished import jobs", deleted);
+            }
+
+            stats.set(importJobRepository.stats());
+        } catch (DataAccessException ex) {
+            log.warn("Import queue maintenance failed: {}", ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        // os jobs em andamento terminam no shutdown do executor; os que não terminarem voltam à fila
+        // quando o lease expirar
+        stopping = true;
+    }
+
+    private void dispatch(ClaimedJob job) {
+        running.add(job.id());
+        try {
+            importExecutor.execute(() -> run(job));
+        } catch (RateLimitExceededException ex) {
+            // o executor é compartilhado com o streaming e o lote: a vaga pode ter sido ocupada
+            running.remove(job.id());
+            importJobRepository.release(job.id(), owner);
+        }
+    }
+
+    private void run(ClaimedJob job) {
+        Path pdf = null;
+        try {
+            pdf = importJobRepository.readPdf(job.id(), in -> pdfUploadStorage.spool(in, maxPdfBytes))
+                    .orElse(null);
+            if (pdf == null) {
+                finish(job, "failed", importJobRepository.fail(job.id(), owner, UNEXPECTED_ERROR));
+                log.error("Import job {} has no PDF", job.id());
+                return;
+            }
+
+            ImportMode mode = job.persistStarted() ? ImportMode.UPSERT : job.mode();
+            ImportDisciplinesResultDTO result = disciplinePdfImportService.importEnrollmentPdf(
+                    pdf, job.studentId(), stage -> updateStage(job, stage), mode, job.attempt() > 1);
+
+            finish(job, "completed", importJobRepository.complete(job.id(), owner, toJson(result)));
+            log.info("Import job {} completed: {} extracted, {} created",
+                    job.id(), result.extractedCount(), result.createdCount());
+        } catch (BadRequestException | ConflictException | ResourceNotFoundException | AiQuotaExceededException ex) {
+            log.warn("Import job {} failed: {}", job.id(), ex.getMessage());
+            finish(job, "failed", importJobRepository.fail(job.id(), owner, ex.getMessage()));
+        } catch (ServiceUnavailableException | RateLimitExceededException ex) {
+            log.warn("Import job {} attempt {}/{} failed: {}", job.id(), job.attempt(), job.maxAttempts(), ex.getMessage());
+            retry(job, ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Import job {} attempt {}/{} failed unexpectedly", job.id(), job.attempt(), job.maxAttempts(), ex);
+            retry(job, UNEXPECTED_ERROR);
+        } finally {
+            if (pdf != null) {
+                pdfUploadStorage.discard(pdf);
+            }
+            running.remove(job.id());
+            wakeUp();
+        }
+    }
+
+    private void retry(ClaimedJob job, String error) {
+        try {
+            String outcome = importJobRepository.retryOrBury(job.id(), owner, error, backoff(job.attempt()))
+                    .map(status -> status == ImportJobStatus.DEAD ? "dead" : "retried")
+                    .orElse("lease_lost");
+            if (outcome.equals("dead")) {
+                log.error("Import job {} moved to the dead-letter queue after {} attempts", job.id(), job.attempt());
+            }
+            count(outcome);
+        } catch (DataAccessException ex) {
+            // o lease expira e o job volta à fila pela manutenção
+            log.warn("Could not reschedule import job {}: {}", job.id(), ex.getMessage());
+        }
+    }
+
+    /** Backoff exponencial com jitter (metade fixa, metade aleatória), limitado a {@code backoff-max-ms}. */
+    private long backoff(int attempt) {
+        long exponential = backoffBaseMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(backoffMaxMs, exponential);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void updateStage(ClaimedJob job, ImportStage stage) {
+        if (stage == ImportStage.PERSISTING) {
+            // a marca decide o modo da próxima tentativa: sem ela (ou sem o lease) não grava nada
+            if (!importJobRepository.updateStage(job.id(), owner, stage)) {
+                throw new IllegalStateException("Lease do job " + job.id() + " perdido antes da gravação");
+            }
+            return;
+        }
+        try {
+            importJobRepository.updateStage(job.id(), owner, stage);
+        } catch (DataAccessException ex) {
+            // só afeta o progresso exibido ao cliente
+            log.debug("Could not update stage of import job {}: {}", job.id(), ex.getMessage());
+        }
+    }
+
+    private void finish(ClaimedJob job, String outcome, boolean updated) {
+        if (!updated) {
+            log.warn("Import job {} finished after its lease was taken over by another node", job.id());
+            outcome = "lease_lost";
+        }
+        count(outcome);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("grimore.import.queue.jobs")
+                .description("Import job attempts finished by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private String toJson(ImportDisciplinesResultDTO result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Não foi possível serializar o resultado da importação", ex);
+        }
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            return "node";
+        }
+    }
+}
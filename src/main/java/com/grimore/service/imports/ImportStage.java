@@ -0,0 +1,28 @@
+package com.grimore.service.imports;
+
+/**
+ * Etapas do pipeline de importação do comprovante de matrícula.
+ * O progresso é aproximado e serve apenas para feedback ao cliente.
+ */
+public enum ImportStage {
+    QUEUED(0),
+    PARSING(10),
+    EXTRACTING(30),
+    PERSISTING(80),
+    COMPLETED(100),
+    FAILED(100);
+
+    private final int progress;
+
+    ImportStage(int progress) {
+        this.progress = progress;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
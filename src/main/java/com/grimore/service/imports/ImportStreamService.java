@@ -0,0 +1,152 @@
+package com.grimore.service.imports;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.dto.response.DisciplineDTO;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.ImportRejectionDTO;
+import com.grimore.dto.response.ImportStageEventDTO;
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.resource.ConflictException;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.ServiceUnavailableException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.security.SecurityUtils;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.DisciplineService;
+import com.grimore.service.pdf.PdfUploadStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Importação do comprovante com resultado em Server-Sent Events.
+ *
+ * Eventos emitidos, em ordem:
+ * - {@code stage}: etapa do pipeline ({@link ImportStageEventDTO})
+ * - {@code discipline} / {@code rejected}: cada disciplina criada ou recusada, assim que extraída
+ * - {@code result}: resumo final ({@link ImportDisciplinesResultDTO}); ou {@code error} em caso de falha
+ *
+ * O trabalho roda no {@link ImportExecutor}; se o cliente desconectar, a importação
+ * continua até o fim (como um job assíncrono), apenas sem emitir eventos.
+ */
+@Slf4j
+@Service
+public class ImportStreamService {
+
+    private final DisciplinePdfImportService disciplinePdfImportService;
+    private final DisciplineService disciplineService;
+    private final ImportExecutor importExecutor;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final ImportMetrics importMetrics;
+    private final long timeoutMs;
+
+    public ImportStreamService(
+            DisciplinePdfImportService disciplinePdfImportService,
+            DisciplineService disciplineService,
+            ImportExecutor importExecutor,
+            PdfUploadStorage pdfUploadStorage,
+            ImportMetrics importMetrics,
+            @Value("${imports.stream.timeout-ms}") long timeoutMs) {
+        this.disciplinePdfImportService = disciplinePdfImportService;
+        this.disciplineService = disciplineService;
+        this.importExecutor = importExecutor;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.importMetrics = importMetrics;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter streamEnrollmentPdf(MultipartFile file) {
+        disciplinePdfImportService.validateUpload(file);
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+
+        Path spooled = pdfUploadStorage.spool(file);
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+
+        try {
+            importExecutor.execute(() -> run(new ImportEventSink(emitter), spooled, studentId));
+        } catch (RateLimitExceededException ex) {
+            pdfUploadStorage.discard(spooled);
+            throw ex;
+        }
+
+        return emitter;
+    }
+
+    private void run(ImportEventSink sink, Path pdf, Integer studentId) {
+        List<DisciplineDTO> created = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int[] index = {0};
+        long[] persistNanos = {0};
+        long start = System.nanoTime();
+        String outcome = ImportMetrics.FAILURE;
+
+        try {
+            sink.stage(ImportStage.QUEUED);
+
+            // o extrator entrega cada disciplina nesta thread: gravar e enviar não atrasa a leitura do modelo
+            List<ExtractedDisciplineDTO> extracted = disciplinePdfImportService.extractDisciplinesStreaming(
+                    pdf, studentId, sink::stage,
+                    dto -> {
+                        int position = nextPosition(sink, index);
+                        long persistStart = System.nanoTime();
+                        persist(sink, studentId, dto, position, created, errors);
+                        persistNanos[0] += System.nanoTime() - persistStart;
+                    },
+                    (dto, reason) -> reject(sink, dto, nextPosition(sink, index), reason, errors));
+
+            if (created.isEmpty()) {
+                throw new BadRequestException("Nenhuma disciplina pôde ser criada. Erros: " + String.join("; ", errors));
+            }
+            importMetrics.recordStage(ImportMetrics.Stage.PERSISTENCE, ImportMetrics.SUCCESS, persistNanos[0]);
+            ImportDisciplinesResultDTO result =
+                    new ImportDisciplinesResultDTO(extracted.size(), created.size(), List.copyOf(created), List.copyOf(errors));
+
+            sink.stage(ImportStage.COMPLETED);
+            sink.send("result", result);
+            sink.complete();
+            outcome = ImportMetrics.SUCCESS;
+
+            log.info("Streamed import completed for student {}: {} extracted, {} created",
+                    studentId, extracted.size(), created.size());
+        } catch (BadRequestException | ConflictException | ResourceNotFoundException | ServiceUnavailableException ex) {
+            log.warn("Streamed import failed for student {}: {}", studentId, ex.getMessage());
+            sink.fail(ex.getMessage());
+        } catch (Exception ex) {
+            log.error("Streamed import failed unexpectedly for student {}", studentId, ex);
+            sink.fail("Um erro inesperado ocorreu ao processar o comprovante");
+        } finally {
+            importMetrics.recordImport(ImportMode.CREATE, outcome, System.nanoTime() - start);
+            pdfUploadStorage.discard(pdf);
+        }
+    }
+
+    private static int nextPosition(ImportEventSink sink, int[] index) {
+        if (index[0] == 0) {
+            sink.stage(ImportStage.PERSISTING);
+        }
+        return ++index[0];
+    }
+
+    private void persist(ImportEventSink sink, Integer studentId, ExtractedDisciplineDTO dto, int position,
+                         List<DisciplineDTO> created, List<String> errors) {
+        try {
+            DisciplineDTO discipline = disciplineService.createFromExtracted(studentId, dto);
+            created.add(discipline);
+            sink.send("discipline", discipline);
+        } catch (Exception ex) {
+            reject(sink, dto, position, ex.getMessage(), errors);
+        }
+    }
+
+    private void reject(ImportEventSink sink, ExtractedDisciplineDTO dto, int position, String reason, List<String> errors) {
+        String code = dto.code() != null ? dto.code() : "sem código";
+        errors.add(String.format("Disciplina %d (%s): %s", position, code, reason));
+        sink.send("rejected", new ImportRejectionDTO(position, dto.code(), reason));
+    }
+}
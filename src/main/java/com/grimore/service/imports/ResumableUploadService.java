@@ -0,0 +1,325 @@
+package com.grimore.service.imports;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.grimore.dto.request.InitiateUploadDTO;
+import com.grimore.dto.response.ImportJobDTO;
+import com.grimore.dto.response.ResumableUploadDTO;
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.resource.ConflictException;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.security.SecurityUtils;
+import com.grimore.service.pdf.PdfUploadStorage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Upload retomável do comprovante, para conexões instáveis: iniciar, enviar blocos por offset
+ * e finalizar.
+ *
+ * O arquivo temporário é criado já com o tamanho final e cada bloco é gravado direto na sua
+ * posição, então não há etapa de montagem e os bytes não passam pelo heap. Blocos têm
+ * {@code imports.uploads.chunk-size-kb} (o último pode ser menor) e podem chegar fora de ordem
+ * ou repetidos. A finalização copia o arquivo para a fila de importação como um job comum.
+ *
+ * Uploads sem atividade por {@code imports.uploads.ttl-minutes} expiram e o arquivo é apagado.
+ * Cada upload ativo reserva em disco o tamanho final do arquivo; o início é recusado (429) quando
+ * o estudante já tem {@code imports.uploads.max-active-per-student} uploads ativos ou quando o total
+ * chega a {@code imports.uploads.max-active}, em vez de descartar uploads em andamento.
+ *
+ * Roteamento: o estado do upload e o arquivo pré-alocado ficam só no nó que atendeu o início
+ * (memória e disco local). Com várias réplicas, o balanceador precisa mandar todos os pedidos de
+ * um mesmo upload ({@code /imports/uploads/{id}} e {@code .../complete}) para esse nó, ex: afinidade
+ * pelo id do upload ou pelo token do estudante; um bloco ou a finalização em outro nó recebe 404 e o
+ * cliente precisa recomeçar. Os limites acima também valem por nó. Só a finalização é compartilhada:
+ * o job vai para a fila durável e roda em qualquer nó.
+ */
+@Slf4j
+@Service
+public class ResumableUploadService {
+
+    private final ImportJobService importJobService;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final int chunkSize;
+    private final long maxSizeBytes;
+    private final Duration ttl;
+    private final long maxActive;
+    private final int maxActivePerStudent;
+    private final Cache<UUID, Upload> uploads;
+    // contagem e inclusão atômicas; ReentrantLock para não prender a virtual thread à carregadora
+    private final ReentrantLock admission = new ReentrantLock();
+
+    public ResumableUploadService(
+            ImportJobService importJobService,
+            PdfUploadStorage pdfUploadStorage,
+            @Value("${imports.uploads.chunk-size-kb}") int chunkSizeKb,
+            @Value("${imports.pdf.max-size-mb}") long maxSizeMb,
+            @Value("${imports.uploads.ttl-minutes}") long ttlMinutes,
+            @Value("${imports.uploads.max-active}") long maxActive,
+            @Value("${imports.uploads.max-active-per-student}") int maxActivePerStudent) {
+        this.importJobService = importJobService;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.chunkSize = chunkSizeKb * 1024;
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxActive = maxActive;
+        this.maxActivePerStudent = maxActivePerStudent;
+        this.uploads = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                // expira no horário, não só no próximo acesso ao cache: o arquivo temporário é liberado
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((UUID id, Upload upload, RemovalCause cause) -> {
+                    if (cause.wasEvicted() && upload != null) {
+                        log.info("Resumable upload {} {}, discarding {} received bytes",
+                                id, cause.name().toLowerCase(Locale.ROOT), upload.receivedBytes());
+                        pdfUploadStorage.discard(upload.path);
+                    }
+                })
+                .build();
+    }
+
+    public ResumableUploadDTO initiate(InitiateUploadDTO request) {
+        Integer studentId = SecurityUtils.getCurrentStudentId();
+
+        if (request.sizeBytes() > maxSizeBytes) {
+            throw new BadRequestException("Arquivo excede o tamanho máximo de " + (maxSizeBytes / (1024 * 1024)) + "MB");
+        }
+
+        String sha256 = request.sha256() != null ? request.sha256().toLowerCase(Locale.ROOT) : null;
+        Upload upload;
+        admission.lock();
+        try {
+            admit(studentId);
+            upload = new Upload(UUID.randomUUID(), studentId, pdfUploadStorage.allocate(request.sizeBytes()),
+                    request.sizeBytes(), sha256);
+            uploads.put(upload.id, upload);
+        } finally {
+            admission.unlock();
+        }
+
+        log.info("Resumable upload {} started for student {}: {} bytes in {} chunks",
+                upload.id, studentId, upload.size, upload.chunks);
+        return toDTO(upload);
+    }
+
+    /**
+     * Grava o bloco que começa em {@code offset}. Reenviar um bloco já recebido o sobrescreve,
+     * então o cliente pode repetir qualquer bloco cuja resposta não chegou.
+     */
+    public ResumableUploadDTO writeChunk(UUID id, long offset, long contentLength, InputStream body) {
+        Upload upload = find(id);
+
+        if (offset < 0 || offset >= upload.size || offset % chunkSize != 0) {
+            throw new BadRequestException("Offset inválido: deve ser múltiplo de " + chunkSize
+                    + " bytes e menor que o tamanho do arquivo");
+        }
+
+        int chunk = (int) (offset / chunkSize);
+        long expected = Math.min(chunkSize, upload.size - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new BadRequestException("O bloco no offset " + offset + " deve ter " + expected + " bytes");
+        }
+
+        upload.begin();
+        boolean received = false;
+        try {
+            long written = pdfUploadStorage.writeAt(upload.path, offset, expected, body);
+            if (written != expected) {
+                throw new BadRequestException("Bloco incompleto: recebidos " + written + " de " + expected + " bytes");
+            }
+            if (body.read() != -1) {
+                throw new BadRequestException("O bloco no offset " + offset + " deve ter " + expected + " bytes");
+            }
+            received = true;
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Falha ao receber o bloco enviado", ex);
+        } finally {
+            upload.end(chunk, received);
+        }
+
+        return toDTO(upload);
+    }
+
+    public ResumableUploadDTO status(UUID id) {
+        return toDTO(find(id));
+    }
+
+    /**
+     * Confere que todos os blocos chegaram (e o SHA-256, se informado no início) e enfileira a
+     * importação. Se a fila estiver cheia, o upload continua disponível para nova tentativa.
+     */
+    public ImportJobDTO complete(UUID id, ImportMode mode) {
+        Upload upload = find(id);
+        upload.close();
+
+        if (!uploads.asMap().remove(id, upload)) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        }
+
+        try {
+            verifyChecksum(upload);
+            ImportJobDTO job = importJobService.submitEnrollmentPdf(upload.path, upload.studentId, mode);
+            pdfUploadStorage.discard(upload.path);
+            log.info("Resumable upload {} completed as import job {}", id, job.id());
+            return job;
+        } catch (RateLimitExceededException ex) {
+            upload.reopen();
+            uploads.asMap().putIfAbsent(id, upload);
+            throw ex;
+        } catch (RuntimeException ex) {
+            pdfUploadStorage.discard(upload.path);
+            throw ex;
+        }
+    }
+
+    public void abort(UUID id) {
+        Upload upload = find(id);
+        uploads.invalidate(id);
+        pdfUploadStorage.discard(upload.path);
+    }
+
+    private void admit(Integer studentId) {
+        long total = 0;
+        int ofStudent = 0;
+        for (Upload active : uploads.asMap().values()) {
+            total++;
+            if (active.studentId.equals(studentId)) {
+                ofStudent++;
+            }
+        }
+
+        if (ofStudent >= maxActivePerStudent) {
+            throw new RateLimitExceededException("Você já tem " + ofStudent
+                    + " uploads em andamento. Conclua ou cancele um deles antes de iniciar outro.");
+        }
+        if (total >= maxActive) {
+            log.warn("Resumable upload rejected for student {}: {} uploads active", studentId, total);
+            throw new RateLimitExceededException("Muitos uploads em andamento no momento. Tente novamente em instantes.");
+        }
+    }
+
+    private void verifyChecksum(Upload upload) {
+        if (upload.sha256 == null) {
+            return;
+        }
+
+        String actual;
+        try {
+            actual = pdfUploadStorage.sha256(upload.path);
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Falha ao verificar o arquivo enviado", ex);
+        }
+        if (!upload.sha256.equals(actual)) {
+            throw new BadRequestException("O SHA-256 do arquivo recebido não confere com o informado no início do upload");
+        }
+    }
+
+    private Upload find(UUID id) {
+        Upload upload = uploads.getIfPresent(id);
+
+        // não revela a existência de uploads de outros estudantes
+        if (upload == null || !upload.studentId.equals(SecurityUtils.getCurrentStudentId())) {
+            throw new ResourceNotFoundException("Upload", "id", id);
+        }
+        return upload;
+    }
+
+    private ResumableUploadDTO toDTO(Upload upload) {
+        return new ResumableUploadDTO(
+                upload.id,
+                upload.size,
+                chunkSize,
+                upload.receivedBytes(),
+                upload.missingOffsets(),
+                LocalDateTime.now().plus(ttl)
+        );
+    }
+
+    private final class Upload {
+
+        private final UUID id;
+        private final Integer studentId;
+        private final Path path;
+        private final long size;
+        private final int chunks;
+        private final String sha256;
+        private final BitSet received = new BitSet();
+        private int inFlight;
+        private boolean closed;
+
+        private Upload(UUID id, Integer studentId, Path path, long size, String sha256) {
+            this.id = id;
+            this.studentId = studentId;
+            this.path = path;
+            this.size = size;
+            this.chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            this.sha256 = sha256;
+        }
+
+        private synchronized void begin() {
+            if (closed) {
+                throw new ConflictException("Upload já finalizado");
+            }
+            inFlight++;
+        }
+
+        /** Um reenvio que falha no meio pode ter sobrescrito parte do bloco: volta a faltar. */
+        private synchronized void end(int chunk, boolean ok) {
+            inFlight--;
+            received.set(chunk, ok);
+        }
+
+        /** Impede novos blocos; só fecha com todos os blocos gravados e nenhum em andamento. */
+        private synchronized void close() {
+            if (closed) {
+                throw new ConflictException("Upload já está sendo finalizado");
+            }
+            if (inFlight > 0) {
+                throw new ConflictException("Ainda há blocos sendo enviados");
+            }
+            int missing = chunks - received.cardinality();
+            if (missing > 0) {
+                throw new BadRequestException("Upload incompleto: faltam " + missing + " blocos");
+            }
+            closed = true;
+        }
+
+        private synchronized void reopen() {
+            closed = false;
+        }
+
+        private synchronized long receivedBytes() {
+            long bytes = (long) received.cardinality() * chunkSize;
+            // o último bloco pode ser menor que os outros
+            if (received.get(chunks - 1)) {
+                bytes -= (long) chunks * chunkSize - size;
+            }
+            return bytes;
+        }
+
+        private synchronized List<Long> missingOffsets() {
+            List<Long> offsets = new ArrayList<>();
+            for (int chunk = received.nextClearBit(0); chunk < chunks; chunk = received.nextClearBit(chunk + 1)) {
+                offsets.add((long) chunk * chunkSize);
+            }
+            return offsets;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.grimore.service.pdf;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.enums.WorkloadHours;
+import com.grimore.util.ScheduleCodeParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extrator determinístico para o comprovante de matrícula do SIGAA.
+ *
+ * O texto vem do {@link PdfTextExtractor} com ordenação por posição, então cada
+ * linha da tabela de turmas vira uma linha de texto no formato aproximado:
+ * <pre>
+ * IMD0030 - LINGUAGEM DE PROGRAMACAO I   01   MATRICULADO   24M34
+ * Local: A308 - Setor de Aulas IV
+ * </pre>
+ * Quando todas as linhas com código de disciplina são reconhecidas, o resultado
+ * dispensa a chamada ao LLM; caso contrário a confiança cai e o pipeline usa o
+ * {@code EnrollmentPdfAiExtractor}.
+ */
+@Slf4j
+@Component
+public class EnrollmentPdfRuleExtractor {
+
+    /** Código no início da linha (ex: "IMD0030", "IMD 0030", "1 IMD0030"). */
+    private static final Pattern ROW_START =
+            Pattern.compile("^\\s*(?:\\d{1,2}\\s+)?([A-Z]{3})\\s?(\\d{4})\\b\\s*[-–:]?\\s*(.*)$");
+
+    /** Qualquer código de disciplina no texto, usado para conferir se alguma linha ficou de fora. */
+    private static final Pattern ANY_CODE = Pattern.compile("\\b([A-Z]{3})\\s?(\\d{4})\\b");
+
+    private static final Pattern SCHEDULE_SEGMENT =
+            Pattern.compile("(?<![\\w])[1-7]+[MTNV][1-6]+(?![\\w])");
+
+    private static final Pattern WORKLOAD = Pattern.compile("\\b(30|45|60|75|90|120)\\s?[hH]\\b");
+
+    private static final Pattern LOCATION = Pattern.compile("^\\s*Local\\s*:\\s*(.+)$", Pattern.CASE_INSENSITIVE);
+
+    /** Tudo que aparece entre o nome e o horário: turma, status, carga horária. */
+    private static final Pattern NAME_END = Pattern.compile(
+            "\\s+(?:T?\\d{2}[A-Z]?\\s+)?(?:MATRICULAD[OA]|EM ESPERA|DEFERID[OA]|INDEFERID[OA]|" +
+                    "SUBMETID[OA]|APROVAD[OA]|CANCELAD[OA])\\b|\\s+\\d{2,3}\\s?[hH]\\b|\\s+T\\d{2}\\b|\\s+\\d{2}\\s+(?=[1-7]+[MTNV][1-6]+)");
+
+    private final double minConfidence;
+
+    public EnrollmentPdfRuleExtractor(@Value("${extraction.rules.min-confidence}") double minConfidence) {
+        this.minConfidence = minConfidence;
+    }
+
+    public record RuleExtraction(List<ExtractedDisciplineDTO> disciplines, double confidence, boolean confident) {}
+
+    public RuleExtraction extract(String text) {
+        if (text == null || text.isBlank()) {
+            return new RuleExtraction(List.of(), 0.0, false);
+        }
+
+        String[] lines = text.split("\\R");
+        List<ExtractedDisciplineDTO> disciplines = new ArrayList<>();
+        Set<String> rowCodes = new LinkedHashSet<>();
+        int rows = 0;
+
+        for (int i = 0; i < lines.length; i++) {
+            Matcher row = ROW_START.matcher(lines[i]);
+            if (!row.matches()) {
+                continue;
+            }
+
+            rows++;
+            String code = row.group(1) + row.group(2);
+            rowCodes.add(code);
+
+            // nomes longos quebram linha antes do horário; depois do horário só interessa o "Local:"
+            StringBuilder record = new StringBuilder(row.group(3));
+            String location = null;
+            for (int j = i + 1; j < lines.length && !ROW_START.matcher(lines[j]).matches(); j++) {
+                Matcher local = LOCATION.matcher(lines[j]);
+                if (local.matches()) {
+                    location = local.group(1).trim();
+                    break;
+                }
+                if (lines[j].isBlank() || SCHEDULE_SEGMENT.matcher(record).find()) {
+                    break;
+                }
+                record.append(' ').append(lines[j].trim());
+            }
+
+            ExtractedDisciplineDTO parsed = parseRecord(code, record.toString(), location);
+            if (parsed != null) {
+                disciplines.add(parsed);
+            }
+        }
+
+        Set<String> allCodes = new LinkedHashSet<>();
+        Matcher anyCode = ANY_CODE.matcher(text);
+        while (anyCode.find()) {
+            allCodes.add(anyCode.group(1) + anyCode.group(2));
+        }
+        allCodes.removeAll(rowCodes);
+
+        int expected = rows + allCodes.size();
+        double confidence = expected == 0 ? 0.0 : (double) disciplines.size() / expected;
+        boolean confident = !disciplines.isEmpty() && confidence >= minConfidence;
+
+        log.debug("Rule extraction: {} of {} rows parsed (confidence {})", disciplines.size(), expected, confidence);
+        return new RuleExtraction(List.copyOf(disciplines), confidence, confident);
+    }
+
+    private ExtractedDisciplineDTO parseRecord(String code, String record, String location) {
+        Matcher segments = SCHEDULE_SEGMENT.matcher(record);
+        List<String> schedule = new ArrayList<>();
+        int scheduleStart = -1;
+        int scheduleEnd = -1;
+
+        while (segments.find()) {
+            if (scheduleStart < 0) scheduleStart = segments.start();
+            scheduleEnd = segments.end();
+            schedule.add(segments.group());
+        }
+
+        if (schedule.isEmpty()) {
+            return null;
+        }
+
+        String scheduleCode = String.join(" ", schedule).replace('V', 'T');
+        if (!ScheduleCodeParser.isValidScheduleCode(scheduleCode)) {
+            return null;
+        }
+
+        String name = record.substring(0, scheduleStart);
+        Matcher nameEnd = NAME_END.matcher(name);
+        if (nameEnd.find()) {
+            name = name.substring(0, nameEnd.start());
+        }
+        name = name.replaceAll("^[\\s\\-–:]+|[\\s\\-–:]+$", "").replaceAll("\\s+", " ");
+
+        if (name.length() < 3 || name.length() > 100) {
+            return null;
+        }
+
+        // sem "Local:" explícito, o que sobra depois do horário costuma ser a sala
+        if (location == null) {
+            String rest = record.substring(scheduleEnd).trim();
+            location = rest.isBlank() ? null : rest;
+        }
+
+        Matcher workload = WORKLOAD.matcher(record);
+        WorkloadHours workloadHours = workload.find() ? WorkloadHours.valueOf("H" + workload.group(1)) : null;
+
+        return new ExtractedDisciplineDTO(name, code, scheduleCode, location, workloadHours);
+    }
+}
@@ -0,0 +1,362 @@
+package com.grimore.service.pdf;
+
+import com.github.luben.zstd.ZstdDirectBufferDecompressingStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import com.grimore.dto.response.PdfBlobDTO;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.repository.PdfBlobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Guarda os PDFs de comprovante enviados, endereçados pelo SHA-256 dos bytes, para auditoria
+ * e reprocessamento sem pedir um novo upload ({@code pdf.blobs.enabled}).
+ *
+ * Cada conteúdo é gravado uma única vez, comprimido com zstd, em
+ * {@code <pdf.blobs.dir>/<aa>/<bb>/<sha256>.pdf.zst}; o índice fica em {@code pdf_blobs}.
+ * A leitura mapeia o arquivo em memória ({@link FileChannel#map}) e descomprime direto
+ * para um arquivo temporário, sem passar os bytes pelo heap, conferindo o hash no caminho.
+ *
+ * A gravação sai da thread da importação ({@link #storeInBackground}): o PDF é ligado (hard link)
+ * a um arquivo próprio antes de a requisição descartar o upload, e a compressão e o registro
+ * rodam em {@code pdf.blobs.write-concurrency} threads. O hash vem de quem chama, já calculado
+ * para o cache de extrações.
+ *
+ * Retenção ({@code pdf.blobs.sweep.enabled}): uma varredura periódica apaga, do índice e do disco,
+ * os blobs sem envio há mais de {@code pdf.blobs.retention-days} dias ou sem nenhum envio
+ * (estudante removido), e os arquivos no disco que não estão no índice.
+ *
+ * Falhas ao guardar só geram log: a importação não depende do blob store.
+ */
+@Slf4j
+@Component
+public class PdfBlobStore {
+
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+    private static final String SUFFIX = ".pdf.zst";
+    private static final int MAX_LISTED = 500;
+    private static final int SWEEP_BATCH = 500;
+    // arquivo recém-escrito cujo envio ainda não foi registrado não é órfão
+    private static final Duration ORPHAN_GRACE = Duration.ofHours(1);
+
+    private final PdfBlobRepository pdfBlobRepository;
+    private final PdfUploadStorage pdfUploadStorage;
+    private final boolean enabled;
+    private final Path root;
+    private final int compressionLevel;
+    private final boolean sweepEnabled;
+    private final Duration retention;
+    private final ExecutorService writer;
+    private final Counter stored;
+    private final Counter deduplicated;
+    private final Counter failed;
+    private final Counter deleted;
+
+    public PdfBlobStore(
+            PdfBlobRepository pdfBlobRepository,
+            PdfUploadStorage pdfUploadStorage,
+            MeterRegistry meterRegistry,
+            @Value("${pdf.blobs.enabled}") boolean enabled,
+            @Value("${pdf.blobs.dir}") Path root,
+            @Value("${pdf.blobs.compression-level}") int compressionLevel,
+            @Value("${pdf.blobs.write-concurrency}") int writeConcurrency,
+            @Value("${pdf.blobs.sweep.enabled}") boolean sweepEnabled,
+            @Value("${pdf.blobs.retention-days}") long retentionDays) {
+        this.pdfBlobRepository = pdfBlobRepository;
+        this.pdfUploadStorage = pdfUploadStorage;
+        this.enabled = enabled;
+        this.root = root;
+        this.compressionLevel = compressionLevel;
+        this.sweepEnabled = sweepEnabled;
+        this.retention = Duration.ofDays(retentionDays);
+        this.writer = Executors.newFixedThreadPool(Math.max(1, writeConcurrency),
+                Thread.ofVirtual().name("pdf-blob-", 0).factory());
+        this.stored = uploads(meterRegistry, "stored");
+        this.deduplicated = uploads(meterRegistry, "deduplicated");
+        this.failed = uploads(meterRegistry, "failed");
+        this.deleted = Counter.builder("grimore.pdf.blobs.deleted")
+                .description("Enrollment PDF blobs removed by the retention sweep")
+                .register(meterRegistry);
+    }
+
+    /** Espera as gravações pendentes: cada uma já tem o seu arquivo próprio em disco. */
+    @PreDestroy
+    public void shutdown() {
+        writer.close();
+    }
+
+    /**
+     * Agenda a gravação do PDF (se o conteúdo ainda não existir) e o registro do envio do estudante.
+     * {@code sha256} é o hash dos bytes de {@code pdf}; quem chama pode descartar o arquivo logo em seguida.
+     */
+    public void storeInBackground(Path pdf, String sha256, Integer studentId) {
+        if (!enabled) {
+            return;
+        }
+
+        Path staged = null;
+        try {
+            long size = Files.size(pdf);
+            // conteúdo já guardado: só falta registrar o envio, o arquivo não é necessário
+            if (!Files.exists(pathFor(sha256))) {
+                staged = stage(pdf);
+            }
+
+            Path source = staged;
+            writer.execute(() -> {
+                try {
+                    store(source, sha256, size, studentId);
+                } finally {
+                    pdfUploadStorage.discard(source);
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            pdfUploadStorage.discard(staged);
+            failed.increment();
+            log.warn("Could not queue enrollment PDF of student {} for storage: {}", studentId, ex.getMessage());
+        }
+    }
+
+    /** {@code pdf} nulo: o conteúdo já estava guardado quando o envio foi agendado. */
+    private void store(Path pdf, String sha256, long size, Integer studentId) {
+        try {
+            Path target = pathFor(sha256);
+
+            if (Files.exists(target)) {
+                deduplicated.increment();
+            } else if (pdf != null) {
+                write(pdf, target);
+                stored.increment();
+            } else {
+                // a varredura apagou o blob depois do agendamento; o próximo envio grava de novo
+                log.info("PDF blob {} was swept before its upload could be recorded", sha256);
+                return;
+            }
+
+            pdfBlobRepository.recordUpload(sha256, size, Files.size(target), studentId);
+        } catch (IOException | DataAccessException ex) {
+            failed.increment();
+            log.warn("Could not store enrollment PDF for student {}: {}", studentId, ex.getMessage());
+        }
+    }
+
+    /**
+     * Remove os blobs vencidos ou órfãos do índice e do disco, e os arquivos sem entrada no índice.
+     *
+     * Um reenvio do mesmo conteúdo no meio da varredura pode ficar registrado sem o arquivo;
+     * {@link #restore} responde 404 para ele e o próximo envio grava o arquivo de novo.
+     */
+    @Scheduled(fixedDelayString = "${pdf.blobs.sweep-interval-ms}")
+    public void sweep() {
+        if (!enabled || !sweepEnabled) {
+            return;
+        }
+
+        try {
+            int expired = 0;
+            List<String> batch;
+            do {
+                batch = pdfBlobRepository.deleteExpired(LocalDateTime.now().minus(retention), SWEEP_BATCH);
+                for (String sha256 : batch) {
+                    deleteFile(pathFor(sha256.trim()));
+                }
+                expired += batch.size();
+            } while (batch.size() == SWEEP_BATCH);
+
+            int orphans = sweepOrphanFiles();
+            deleted.increment(expired + orphans);
+            if (expired + orphans > 0) {
+                log.info("PDF blob sweep removed {} expired blobs and {} orphan files", expired, orphans);
+            }
+        } catch (IOException | DataAccessException ex) {
+            log.warn("PDF blob sweep failed: {}", ex.getMessage());
+        }
+    }
+
+    /** Arquivos do blob store (e temporários de gravação abandonados) sem entrada no índice. */
+    private int sweepOrphanFiles() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+
+        Instant cutoff = Instant.now().minus(ORPHAN_GRACE);
+        Map<String, Path> candidates = new HashMap<>();
+        int removed = 0;
+
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                    continue;
+                }
+
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    removed += deleteFile(file) ? 1 : 0;
+                } else if (name.endsWith(SUFFIX)) {
+                    candidates.put(name.substring(0, name.length() - SUFFIX.length()), file);
+                    if (candidates.size() == SWEEP_BATCH) {
+                        removed += deleteUnindexed(candidates);
+                    }
+                }
+            }
+        }
+        return removed + deleteUnindexed(candidates);
+    }
+
+    private int deleteUnindexed(Map<String, Path> candidates) {
+        Set<String> indexed = pdfBlobRepository.findExisting(candidates.keySet());
+        int removed = 0;
+        for (Map.Entry<String, Path> candidate : candidates.entrySet()) {
+            if (!indexed.contains(candidate.getKey()) && deleteFile(candidate.getValue())) {
+                removed++;
+            }
+        }
+        candidates.clear();
+        return removed;
+    }
+
+    private static boolean deleteFile(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Could not delete PDF blob file {}: {}", file, ex.getMessage());
+            return false;
+        }
+    }
+
+    /** Hard link para o upload (mesmo disco do temporário), ou cópia quando o link não é possível. */
+    private static Path stage(Path pdf) throws IOException {
+        Path staged = PdfUploadStorage.newTempPath(".pdf");
+        try {
+            Files.createLink(staged, pdf);
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(pdf, staged);
+        }
+        return staged;
+    }
+
+    /**
+     * Descomprime o blob para um arquivo temporário do pipeline; quem chama descarta o arquivo
+     * com {@link PdfUploadStorage#discard}.
+     */
+    public Path restore(String sha256) {
+        if (sha256 == null || !SHA256.matcher(sha256).matches()) {
+            throw new BadRequestException("Hash SHA-256 inválido");
+        }
+
+        Path source = pathFor(sha256);
+        if (!Files.exists(source) || !pdfBlobRepository.exists(sha256)) {
+            throw new ResourceNotFoundException("PDF", "sha256", sha256);
+        }
+
+        Path temp = PdfUploadStorage.newTempPath(".pdf");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            ByteBuffer buffer = ByteBuffer.allocateDirect(ZstdDirectBufferDecompressingStream.recommendedTargetBufferSize());
+            MessageDigest digest = sha256Digest();
+
+            try (ZstdDirectBufferDecompressingStream zstd = new ZstdDirectBufferDecompressingStream(mapped)) {
+                while (zstd.hasRemaining()) {
+                    buffer.clear();
+                    zstd.read(buffer);
+                    buffer.flip();
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+            }
+
+            if (!sha256.equals(HexFormat.of().formatHex(digest.digest()))) {
+                throw new IOException("content does not match its hash");
+            }
+            return temp;
+        } catch (IOException ex) {
+            pdfUploadStorage.discard(temp);
+            log.error("Could not restore PDF blob {}: {}", sha256, ex.getMessage());
+            throw new InternalServerErrorException("Falha ao ler o PDF armazenado", ex);
+        } catch (RuntimeException ex) {
+            pdfUploadStorage.discard(temp);
+            throw ex;
+        }
+    }
+
+    /** Envios do estudante, do mais recente para o mais antigo. */
+    public List<PdfBlobDTO> findUploads(Integer studentId, int limit) {
+        return pdfBlobRepository.findByStudent(studentId, Math.clamp(limit, 1, MAX_LISTED));
+    }
+
+    /** Comprime para um arquivo ao lado do destino e o move no fim: leitores nunca veem um blob pela metade. */
+    private void write(Path pdf, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+
+        try {
+            try (InputStream in = Files.newInputStream(pdf);
+                 OutputStream out = new ZstdOutputStream(Files.newOutputStream(temp), compressionLevel)
+                         .setChecksum(true)) {
+                in.transferTo(out);
+            }
+            // envio simultâneo do mesmo conteúdo: o último move substitui um arquivo idêntico
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path pathFor(String sha256) {
+        return root.resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4))
+                .resolve(sha256 + SUFFIX);
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 indisponível", ex);
+        }
+    }
+
+    private static Counter uploads(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("grimore.pdf.blobs.uploads")
+                .description("Enrollment PDFs sent to the blob store by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
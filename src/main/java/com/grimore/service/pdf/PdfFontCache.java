@@ -0,0 +1,37 @@
+package com.grimore.service.pdf;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+
+/**
+ * Cache de fontes do sistema usado pelo PDFBox.
+ *
+ * Na primeira vez que um PDF com fonte não embutida é lido, o {@code FileSystemFontProvider}
+ * varre as fontes do sistema e grava o resultado em {@code ~/.pdfbox.cache} (ou em
+ * {@code -Dpdfbox.fontcache=<dir>}). Sem o cache essa varredura acontece dentro da primeira
+ * extração de texto, na thread de uma requisição.
+ *
+ * O {@link #main} existe para montar o cache durante o build da imagem:
+ * <pre>
+ * java -Dloader.main=com.grimore.service.pdf.PdfFontCache -cp app.jar org.springframework.boot.loader.launch.PropertiesLauncher
+ * </pre>
+ */
+@Slf4j
+public final class PdfFontCache {
+
+    private PdfFontCache() {}
+
+    /**
+     * Carrega (ou monta e grava) o cache de fontes. Chamadas seguintes não fazem nada.
+     */
+    public static void build() {
+        // a primeira busca inicializa o provedor de fontes, que lê ou monta o cache em disco
+        FontMappers.instance().getFontBoxFont("Helvetica", null);
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        build();
+        log.info("PDFBox font cache ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+}
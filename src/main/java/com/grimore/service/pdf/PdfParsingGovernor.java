@@ -0,0 +1,55 @@
+package com.grimore.service.pdf;
+
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita quantos PDFs são abertos pelo PDFBox ao mesmo tempo no processo.
+ *
+ * Cada documento aberto consome até {@code pdf.parsing.memory-budget-mb} de heap
+ * (o excedente vai para arquivo temporário), então o pico de memória do parse
+ * fica limitado a {@code max-concurrent * memory-budget}.
+ */
+@Slf4j
+@Component
+public class PdfParsingGovernor {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+
+    public PdfParsingGovernor(
+            @Value("${pdf.parsing.max-concurrent}") int maxConcurrent,
+            @Value("${pdf.parsing.acquire-timeout-ms}") long acquireTimeoutMs) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    public Permit acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for a PDF parsing slot after {} ms", acquireTimeoutMs);
+                throw new RateLimitExceededException(
+                        "Muitos PDFs sendo processados no momento. Por favor tente novamente em alguns instantes.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RateLimitExceededException("Processamento do PDF interrompido");
+        }
+        return permits::release;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
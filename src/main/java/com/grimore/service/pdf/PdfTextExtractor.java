@@ -1,35 +1,214 @@
 package com.grimore.service.pdf;
 
+import com.grimore.exception.ratelimit.RateLimitExceededException;
 import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.imports.ImportMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Extrai o texto do PDF lendo direto do arquivo em disco (acesso aleatório),
+ * sem copiar o upload para o heap. Estruturas internas do PDFBox usam no máximo
+ * {@code pdf.parsing.memory-budget-mb} em memória e o resto em arquivo temporário.
+ *
+ * Documentos com muitas páginas são divididos em faixas extraídas em paralelo
+ * (cada faixa abre seu próprio {@link PDDocument}, que não é thread-safe) e
+ * concatenadas na ordem original. O orçamento de memória é dividido entre as faixas,
+ * então o limite continua valendo por documento.
+ *
+ * As primeiras páginas passam antes pelo {@link PdfTriage}; PDFs protegidos, escaneados
+ * ou que não são comprovantes são rejeitados sem extrair o resto do documento.
+ *
+ * Com {@code pdf.workers.enabled} o parse roda fora do processo, no {@link PdfWorkerPool};
+ * o parse local só é usado quando não há worker disponível.
+ */
+@Slf4j
 @Component
 public class PdfTextExtractor {
 
-    public String extractText(MultipartFile file) {
-        try (PDDocument doc = Loader.loadPDF(file.getBytes())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            String text = stripper.getText(doc);
+    private final PdfParsingGovernor governor;
+    private final PdfTriage triage;
+    private final ImportMetrics importMetrics;
+    private final PdfWorkerPool workerPool;
+    private final int maxPages;
+    private final long memoryBudgetBytes;
+    private final int parallelThresholdPages;
+    private final int pagesPerTask;
+    private final ForkJoinPool pagePool;
+
+    public PdfTextExtractor(
+            PdfParsingGovernor governor,
+            PdfTriage triage,
+            ImportMetrics importMetrics,
+            PdfWorkerPool workerPool,
+            @Value("${pdf.parsing.max-pages}") int maxPages,
+            @Value("${pdf.parsing.memory-budget-mb}") long memoryBudgetMb,
+            @Value("${pdf.parsing.parallel-threshold-pages}") int parallelThresholdPages,
+            @Value("${pdf.parsing.pages-per-task}") int pagesPerTask,
+            @Value("${pdf.parsing.parallelism}") int parallelism) {
+        this.governor = governor;
+        this.triage = triage;
+        this.importMetrics = importMetrics;
+        this.workerPool = workerPool;
+        this.maxPages = maxPages;
+        this.memoryBudgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.parallelThresholdPages = parallelThresholdPages;
+        this.pagesPerTask = pagesPerTask;
+        this.pagePool = new ForkJoinPool(parallelism);
+    }
 
-            if (text == null) text = "";
-            text = text.replace("\u00A0", " ");      // NBSP
-            text = text.replaceAll("[ \\t]+", " ");  // normaliza espaços
-            text = text.replaceAll("\\n{3,}", "\n\n");
-            text = text.trim();
+    /** Texto extraído e o total de páginas do documento (inclusive as não processadas). */
+    record Extraction(String text, int pages) {}
 
-            if (text.isBlank()) {
-                throw new BadRequestException("Não foi possível extrair texto do PDF. (Pode ser um PDF escaneado/como imagem)");
+    public String extractText(Path pdf) {
+        if (workerPool.isEnabled()) {
+            Optional<String> text = workerPool.extract(pdf);
+            if (text.isPresent()) {
+                return text.get();
             }
+        }
+        return extractInProcess(pdf).text();
+    }
+
+    /** Parse neste processo; também é o que cada worker do {@link PdfWorkerPool} executa. */
+    Extraction extractInProcess(Path pdf) {
+        try (PdfParsingGovernor.Permit ignored = governor.acquire()) {
+            int pages;
+            int totalPages;
+            int triaged;
+            String firstPages;
+            String text = null;
+
+            PDDocument loaded = load(pdf);
+            long extractionStart = System.nanoTime();
+            String result = ImportMetrics.FAILURE;
+
+            try {
+                try (PDDocument doc = loaded) {
+                    totalPages = doc.getNumberOfPages();
+                    pages = Math.min(totalPages, maxPages);
+                    if (totalPages > maxPages) {
+                        log.warn("PDF has {} pages, only the first {} will be processed", totalPages, maxPages);
+                    }
+
+                    triaged = Math.min(triage.getPages(), pages);
+                    firstPages = strip(doc, 1, triaged);
+                    triage.inspect(doc, triaged, firstPages);
 
-            return text;
-        } catch (BadRequestException e) {
+                    if (pages == triaged) {
+                        text = firstPages;
+                    } else if (pages < parallelThresholdPages) {
+                        text = firstPages + strip(doc, triaged + 1, pages);
+                    }
+                }
+
+                if (text == null) {
+                    // as páginas da triagem já foram extraídas: as faixas começam depois delas
+                    text = firstPages + extractInParallel(pdf, triaged + 1, pages);
+                }
+
+                text = PdfTextNormalizer.normalize(text);
+
+                if (text.isBlank()) {
+                    throw new BadRequestException("Não foi possível extrair texto do PDF. (Pode ser um PDF escaneado/como imagem)");
+                }
+
+                result = ImportMetrics.SUCCESS;
+                importMetrics.recordDocument(totalPages, text.length(), result);
+                return new Extraction(text, totalPages);
+            } finally {
+                importMetrics.recordStage(ImportMetrics.Stage.TEXT_EXTRACTION, result, System.nanoTime() - extractionStart);
+            }
+        } catch (BadRequestException | RateLimitExceededException e) {
             throw e;
-        } catch (Exception e) {
+        } catch (InvalidPasswordException e) {
+            throw triage.encrypted();
+        } catch (IOException e) {
             throw new BadRequestException("Falha ao ler PDF: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            throw new BadRequestException("Falha ao ler PDF: " + e.getCause().getMessage());
+        } catch (RuntimeException e) {
+            // o PDFBox lança IllegalArgumentException, ClassCastException etc. em arquivos malformados
+            log.warn("PDFBox failed on malformed PDF: {}", e.toString());
+            throw new BadRequestException("Falha ao ler PDF: arquivo corrompido ou malformado");
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        pagePool.shutdown();
+    }
+
+    private String extractInParallel(Path pdf, int from, int pages) {
+        int rangeCount = (pages - from + pagesPerTask) / pagesPerTask;
+        // as faixas rodam sob a mesma permissão do governor: juntas não passam do orçamento do documento
+        // (o que não couber vai para arquivo temporário)
+        long rangeBudgetBytes = memoryBudgetBytes / rangeCount;
+
+        List<ForkJoinTask<String>> ranges = new ArrayList<>();
+        for (int start = from; start <= pages; start += pagesPerTask) {
+            int first = start;
+            int last = Math.min(start + pagesPerTask - 1, pages);
+            ranges.add(pagePool.submit(() -> stripRange(pdf, first, last, rangeBudgetBytes)));
+        }
+
+        log.debug("Extracting pages {}-{} in {} parallel ranges", from, pages, ranges.size());
+
+        StringBuilder text = new StringBuilder();
+        for (ForkJoinTask<String> range : ranges) {
+            text.append(range.join());
+        }
+        return text.toString();
+    }
+
+    private String stripRange(Path pdf, int first, int last, long budgetBytes) {
+        try (PDDocument doc = open(pdf, budgetBytes)) {
+            return strip(doc, first, last);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Abertura do documento principal (xref, trailer, árvore de páginas), medida como etapa própria. */
+    private PDDocument load(Path pdf) throws IOException {
+        long start = System.nanoTime();
+        String result = ImportMetrics.FAILURE;
+        try {
+            PDDocument doc = open(pdf, memoryBudgetBytes);
+            result = ImportMetrics.SUCCESS;
+            return doc;
+        } finally {
+            importMetrics.recordStage(ImportMetrics.Stage.PDF_LOAD, result, System.nanoTime() - start);
+        }
+    }
+
+    private PDDocument open(Path pdf, long budgetBytes) throws IOException {
+        return Loader.loadPDF(pdf.toFile(), MemoryUsageSetting.setupMixed(budgetBytes).streamCache);
+    }
+
+    private String strip(PDDocument doc, int first, int last) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // mantém cada linha da tabela do comprovante em uma única linha de texto
+        stripper.setSortByPosition(true);
+        stripper.setStartPage(first);
+        stripper.setEndPage(last);
+        String text = stripper.getText(doc);
+        return text == null ? "" : text;
+    }
 }
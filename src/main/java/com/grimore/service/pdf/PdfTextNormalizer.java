@@ -0,0 +1,59 @@
+package com.grimore.service.pdf;
+
+/**
+ * Normalização do texto extraído do PDF em uma única passada.
+ *
+ * Equivalente a:
+ * <pre>
+ * text.replace("\u00A0", " ")
+ *     .replaceAll("[ \\t]+", " ")
+ *     .replaceAll("\\n{3,}", "\n\n")
+ *     .trim();
+ * </pre>
+ * mas sem criar uma cópia completa do texto a cada etapa.
+ */
+public final class PdfTextNormalizer {
+
+    private static final char NBSP = '\u00A0';
+
+    private PdfTextNormalizer() {}
+
+    public static String normalize(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+
+        int length = text.length();
+        StringBuilder out = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int newlineRun = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            if (c == ' ' || c == '\t' || c == NBSP) {
+                pendingSpace = true;
+                continue;
+            }
+
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+                newlineRun = 0;
+            }
+
+            if (c == '\n') {
+                // no máximo uma linha em branco entre blocos
+                if (++newlineRun <= 2) {
+                    out.append('\n');
+                }
+                continue;
+            }
+
+            newlineRun = 0;
+            out.append(c);
+        }
+
+        return out.toString().trim();
+    }
+}
@@ -0,0 +1,200 @@
+package com.grimore.service.pdf;
+
+import com.grimore.exception.validation.BadRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.text.Normalizer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Triagem barata feita nas primeiras páginas, antes do parse completo e do LLM.
+ *
+ * Rejeita com erro específico:
+ * - PDF protegido por senha
+ * - PDF sem texto (escaneado/imagem, ou vazio)
+ * - documento sem as marcas do comprovante do SIGAA/UFRN e sem nenhuma linha de turma
+ *
+ * As rejeições são contadas em {@code grimore.pdf.triage{outcome}}; cada rejeição é um
+ * parse completo (e possivelmente uma chamada ao LLM) que não aconteceu.
+ */
+@Slf4j
+@Component
+public class PdfTriage {
+
+    private static final List<String> MARKERS = List.of(
+            "UFRN",
+            "UNIVERSIDADE FEDERAL DO RIO GRANDE DO NORTE",
+            "SIGAA",
+            "COMPROVANTE DE MATRICULA"
+    );
+
+    /** Código de disciplina seguido, na mesma linha, de um horário (ex: "IMD0030 ... 24M34"). */
+    private static final Pattern CLASS_ROW =
+            Pattern.compile("\\b[A-Z]{3}\\s?\\d{4}\\b.*(?<![\\w])[1-7]+[MTN][1-6]+(?![\\w])");
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    public enum Outcome {
+        ACCEPTED,
+        ENCRYPTED,
+        IMAGE_ONLY,
+        NO_TEXT,
+        NOT_ENROLLMENT
+    }
+
+    private final boolean enabled;
+    private final int pages;
+    private final Map<Outcome, Counter> outcomes = new EnumMap<>(Outcome.class);
+
+    public PdfTriage(
+            MeterRegistry meterRegistry,
+            @Value("${pdf.triage.enabled}") boolean enabled,
+            @Value("${pdf.triage.pages}") int pages) {
+        this.enabled = enabled;
+        this.pages = Math.max(1, pages);
+
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, Counter.builder("grimore.pdf.triage")
+                    .description("PDF uploads by triage outcome (rejections skip the full parse and the LLM)")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Quantas páginas iniciais o {@link PdfTextExtractor} deve extrair para a triagem. */
+    public int getPages() {
+        return pages;
+    }
+
+    /**
+     * Confere as primeiras {@code triagedPages} páginas do documento, cujo texto já foi
+     * extraído em {@code firstPagesText}. Lança {@link BadRequestException} se o PDF for rejeitado.
+     */
+    public void inspect(PDDocument doc, int triagedPages, String firstPagesText) {
+        if (!enabled) {
+            return;
+        }
+
+        if (PdfTextNormalizer.normalize(firstPagesText).isEmpty()) {
+            if (hasImages(doc, triagedPages)) {
+                throw reject(Outcome.IMAGE_ONLY,
+                        "O PDF parece ser escaneado (contém apenas imagens). Envie o comprovante gerado pelo SIGAA.");
+            }
+            throw reject(Outcome.NO_TEXT, "Não foi possível extrair texto do PDF.");
+        }
+
+        if (!looksLikeEnrollment(firstPagesText)) {
+            throw reject(Outcome.NOT_ENROLLMENT,
+                    "O PDF não parece ser um comprovante de matrícula da UFRN (SIGAA).");
+        }
+
+        outcomes.get(Outcome.ACCEPTED).increment();
+    }
+
+    /** PDFBox não consegue abrir o documento sem a senha de usuário. */
+    public Rejection encrypted() {
+        return reject(Outcome.ENCRYPTED, "O PDF está protegido por senha. Envie o comprovante sem senha.");
+    }
+
+    /** Conta a aceitação de um PDF triado fora do processo, por um worker do {@link PdfWorkerPool}. */
+    void accepted() {
+        if (enabled) {
+            outcomes.get(Outcome.ACCEPTED).increment();
+        }
+    }
+
+    static boolean looksLikeEnrollment(String text) {
+        String plain = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toUpperCase(Locale.ROOT);
+
+        for (String marker : MARKERS) {
+            if (plain.contains(marker)) {
+                return true;
+            }
+        }
+
+        // comprovante recortado (sem cabeçalho), mas com a tabela de turmas
+        for (String line : plain.split("\\R")) {
+            if (CLASS_ROW.matcher(line).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Rejection reject(Outcome outcome, String message) {
+        if (enabled) {
+            outcomes.get(outcome).increment();
+        }
+        log.info("PDF rejected by triage: {}", outcome);
+        return new Rejection(outcome, message);
+    }
+
+    private static boolean hasImages(PDDocument doc, int triagedPages) {
+        for (int i = 0; i < triagedPages; i++) {
+            PDPage page = doc.getPage(i);
+            if (hasImages(page.getResources(), 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasImages(PDResources resources, int depth) {
+        if (resources == null || depth > 2) {
+            return false;
+        }
+
+        for (COSName name : resources.getXObjectNames()) {
+            try {
+                PDXObject xobject = resources.getXObject(name);
+                if (xobject instanceof PDImageXObject) {
+                    return true;
+                }
+                // scanners às vezes embrulham a imagem da página em um form XObject
+                if (xobject instanceof PDFormXObject form && hasImages(form.getResources(), depth + 1)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                log.debug("Could not read XObject {} during triage: {}", name.getName(), e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /** Rejeição da triagem; o motivo acompanha a exceção para ser repassado pelos workers. */
+    public static class Rejection extends BadRequestException {
+
+        private final Outcome outcome;
+
+        Rejection(Outcome outcome, String message) {
+            super(message);
+            this.outcome = outcome;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.grimore.service.pdf;
+
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.imports.ImportMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Arquivos temporários usados pelo pipeline de importação.
+ * O pipeline trabalha sempre sobre um {@link Path}, nunca sobre o upload em memória.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PdfUploadStorage {
+
+    private final ImportMetrics importMetrics;
+
+    /**
+     * Move o arquivo temporário do multipart para um caminho próprio do pipeline.
+     * Com o upload já em disco, {@code transferTo(File)} apenas renomeia o arquivo,
+     * sem passar os bytes pelo heap.
+     */
+    public Path spool(MultipartFile file) {
+        return spool(file, ".pdf");
+    }
+
+    public Path spool(MultipartFile file, String suffix) {
+        return importMetrics.time(ImportMetrics.Stage.UPLOAD, () -> {
+            try {
+                Path temp = newTempPath(suffix);
+                file.transferTo(temp.toFile());
+                return temp;
+            } catch (IOException ex) {
+                throw new InternalServerErrorException("Falha ao armazenar o arquivo enviado", ex);
+            }
+        });
+    }
+
+    /**
+     * Copia um stream (ex: entrada de um zip) para um arquivo temporário em blocos,
+     * sem fechar o stream de origem. Falha se passar de {@code maxBytes}, o que também
+     * protege contra entradas de zip que se expandem além do declarado.
+     */
+    public Path spool(InputStream in, long maxBytes) {
+        return spool(in, maxBytes, ".pdf");
+    }
+
+    public Path spool(InputStream in, long maxBytes, String suffix) {
+        Path temp = newTempPath(suffix);
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new BadRequestException("Arquivo excede o tamanho máximo de " + (maxBytes / (1024 * 1024)) + "MB");
+                }
+                out.write(buffer, 0, read);
+            }
+            return temp;
+        } catch (IOException ex) {
+            discard(temp);
+            throw new InternalServerErrorException("Falha ao armazenar o arquivo enviado", ex);
+        } catch (RuntimeException ex) {
+            discard(temp);
+            throw ex;
+        }
+    }
+
+    /**
+     * Arquivo temporário já com o tamanho final, para receber os blocos de um upload
+     * retomável direto na posição de cada um ({@link #writeAt}), sem etapa de montagem.
+     */
+    public Path allocate(long size) {
+        Path temp = newTempPath(".pdf");
+        try (RandomAccessFile file = new RandomAccessFile(temp.toFile(), "rw")) {
+            file.setLength(size);
+            return temp;
+        } catch (IOException ex) {
+            discard(temp);
+            throw new InternalServerErrorException("Falha ao reservar espaço para o upload", ex);
+        }
+    }
+
+    /**
+     * Copia até {@code length} bytes do stream para {@code file} a partir de {@code offset},
+     * pelo {@link FileChannel}. Devolve quantos bytes foram gravados (menos se o stream acabar antes).
+     */
+    public long writeAt(Path file, long offset, long length, InputStream in) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(in);
+            long written = 0;
+            while (written < length) {
+                long transferred = channel.transferFrom(source, offset + written, length - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            return written;
+        } catch (IOException ex) {
+            throw new InternalServerErrorException("Falha ao gravar o bloco enviado", ex);
+        }
+    }
+
+    /** SHA-256 (hex) do arquivo, lido por mapeamento em memória. */
+    public String sha256(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 indisponível", ex);
+        }
+    }
+
+    public void discard(Path path) {
+        if (path == null) return;
+
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            log.warn("Could not delete temporary file {}: {}", path, ex.getMessage());
+        }
+    }
+
+    static Path newTempPath(String suffix) {
+        return Path.of(System.getProperty("java.io.tmpdir"), "grimore-import-" + UUID.randomUUID() + suffix);
+    }
+}
@@ -0,0 +1,154 @@
+package com.grimore.service.pdf;
+
+import com.grimore.service.imports.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Aquece o parse de PDFs na subida da aplicação, antes do readiness
+ * ({@code ApplicationRunner}s terminam antes de a aplicação passar a aceitar tráfego):
+ * - carrega o cache de fontes do PDFBox ({@link PdfFontCache})
+ * - passa um comprovante sintético pelo {@link PdfTextExtractor} e pelo parser
+ *   determinístico algumas vezes, carregando classes e aquecendo o JIT do caminho principal
+ *
+ * O extrator do aquecimento é uma instância própria, montada como no {@link PdfWorkerMain}:
+ * métricas em um {@link SimpleMeterRegistry} descartável, sem os workers externos e sem disputar
+ * as vagas do {@link PdfParsingGovernor} da aplicação. Assim os comprovantes sintéticos não
+ * entram nas métricas de importação e de triagem.
+ *
+ * Falhas só geram log; a aplicação sobe do mesmo jeito.
+ */
+@Slf4j
+@Component
+public class PdfWarmup implements ApplicationRunner {
+
+    private static final List<String> HEADER = List.of(
+            "UNIVERSIDADE FEDERAL DO RIO GRANDE DO NORTE",
+            "SIGAA - Sistema Integrado de Gestao de Atividades Academicas",
+            "COMPROVANTE DE MATRICULA"
+    );
+
+    private static final List<String> ROWS = List.of(
+            "IMD0030 - LINGUAGEM DE PROGRAMACAO I   01   MATRICULADO   24M34",
+            "Local: Setor de Aulas IV - A308",
+            "DIM0120 - CALCULO II   02   MATRICULADO   35T12",
+            "Local: Setor de Aulas II - B102"
+    );
+
+    private final EnrollmentPdfRuleExtractor ruleExtractor;
+    private final boolean enabled;
+    private final int iterations;
+    private final boolean triageEnabled;
+    private final int triagePages;
+    private final int maxPages;
+    private final long memoryBudgetMb;
+    private final int parallelThresholdPages;
+    private final int pagesPerTask;
+
+    public PdfWarmup(
+            EnrollmentPdfRuleExtractor ruleExtractor,
+            @Value("${pdf.warmup.enabled}") boolean enabled,
+            @Value("${pdf.warmup.iterations}") int iterations,
+            @Value("${pdf.triage.enabled}") boolean triageEnabled,
+            @Value("${pdf.triage.pages}") int triagePages,
+            @Value("${pdf.parsing.max-pages}") int maxPages,
+            @Value("${pdf.parsing.memory-budget-mb}") long memoryBudgetMb,
+            @Value("${pdf.parsing.parallel-threshold-pages}") int parallelThresholdPages,
+            @Value("${pdf.parsing.pages-per-task}") int pagesPerTask) {
+        this.ruleExtractor = ruleExtractor;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.triageEnabled = triageEnabled;
+        this.triagePages = triagePages;
+        this.maxPages = maxPages;
+        this.memoryBudgetMb = memoryBudgetMb;
+        this.parallelThresholdPages = parallelThresholdPages;
+        this.pagesPerTask = pagesPerTask;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            PdfFontCache.build();
+            long fontsMs = (System.nanoTime() - start) / 1_000_000;
+
+            PdfTextExtractor extractor = uninstrumentedExtractor();
+            Path pdf = Files.createTempFile("grimore-warmup-", ".pdf");
+            try {
+                writeSample(pdf);
+                for (int i = 0; i < iterations; i++) {
+                    ruleExtractor.extract(extractor.extractText(pdf));
+                }
+            } finally {
+                Files.deleteIfExists(pdf);
+                extractor.shutdown();
+            }
+
+            log.info("PDF pipeline warmed up in {} ms (font cache {} ms, {} sample extractions)",
+                    (System.nanoTime() - start) / 1_000_000, fontsMs, iterations);
+        } catch (Exception ex) {
+            log.warn("PDF warm-up failed, first import may be slower: {}", ex.getMessage());
+        }
+    }
+
+    private PdfTextExtractor uninstrumentedExtractor() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new PdfTextExtractor(
+                new PdfParsingGovernor(1, Long.MAX_VALUE),
+                new PdfTriage(registry, triageEnabled, triagePages),
+                new ImportMetrics(registry),
+                PdfWorkerPool.disabled(),
+                maxPages,
+                memoryBudgetMb,
+                parallelThresholdPages,
+                pagesPerTask,
+                1);
+    }
+
+    private static void writeSample(Path pdf) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            PDPage page = new PDPage();
+            doc.addPage(page);
+
+            // fonte padrão não embutida: exercita o mapeamento para as fontes do sistema
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                content.beginText();
+                content.setFont(font, 10);
+                content.setLeading(14);
+                content.newLineAtOffset(50, 740);
+                for (String line : HEADER) {
+                    content.showText(line);
+                    content.newLine();
+                }
+                content.newLine();
+                for (String line : ROWS) {
+                    content.showText(line);
+                    content.newLine();
+                }
+                content.endText();
+            }
+
+            doc.save(pdf.toFile());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.grimore.service.pdf;
+
+import ch.qos.logback.classic.Level;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.imports.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Ponto de entrada da JVM worker iniciada pelo {@link PdfWorkerPool}.
+ *
+ * Escuta no socket Unix recebido como argumento, aceita uma única conexão (a do pool) e
+ * atende os PDFs em sequência com o mesmo {@link PdfTextExtractor} do parse local.
+ * Termina quando o pool fecha a conexão. Os limites do parse chegam como propriedades
+ * de sistema com os mesmos nomes do {@code application.properties}.
+ */
+public final class PdfWorkerMain {
+
+    private PdfWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        quietLogging();
+        exitWithParent(Long.getLong("pdf.workers.parent-pid", -1));
+
+        Path socket = Path.of(args[0]);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PdfTextExtractor extractor = new PdfTextExtractor(
+                new PdfParsingGovernor(1, Long.MAX_VALUE),
+                new PdfTriage(registry,
+                        Boolean.parseBoolean(System.getProperty("pdf.triage.enabled", "true")),
+                        Integer.getInteger("pdf.triage.pages", 2)),
+                new ImportMetrics(registry),
+                PdfWorkerPool.disabled(),
+                Integer.getInteger("pdf.parsing.max-pages", 20),
+                Long.getLong("pdf.parsing.memory-budget-mb", 16),
+                Integer.MAX_VALUE, // sem faixas paralelas: o heap do worker é pequeno
+                1,
+                1);
+
+        Files.deleteIfExists(socket);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            try (SocketChannel channel = server.accept()) {
+                serve(extractor, channel);
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+            extractor.shutdown();
+        }
+    }
+
+    private static void serve(PdfTextExtractor extractor, SocketChannel channel) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+        while (true) {
+            String pdf;
+            try {
+                pdf = in.readUTF();
+            } catch (EOFException e) {
+                return;
+            }
+
+            try {
+                PdfTextExtractor.Extraction extraction = extractor.extractInProcess(Path.of(pdf));
+                out.writeByte(PdfWorkerProtocol.OK);
+                out.writeInt(extraction.pages());
+                PdfWorkerProtocol.writeText(out, extraction.text());
+            } catch (PdfTriage.Rejection e) {
+                out.writeByte(PdfWorkerProtocol.REJECTED);
+                out.writeUTF(e.getOutcome().name());
+                out.writeUTF(e.getMessage());
+            } catch (BadRequestException e) {
+                out.writeByte(PdfWorkerProtocol.REJECTED);
+                out.writeUTF("");
+                out.writeUTF(e.getMessage());
+            } catch (RuntimeException e) {
+                out.writeByte(PdfWorkerProtocol.FAILED);
+                out.writeUTF(String.valueOf(e.getMessage()));
+            }
+            out.flush();
+        }
+    }
+
+    /** Não sobrevive à aplicação, mesmo que ela morra sem fechar a conexão (ou antes de o worker subir). */
+    private static void exitWithParent(long parentPid) {
+        ProcessHandle.of(parentPid).ifPresentOrElse(
+                parent -> parent.onExit().thenRun(() -> System.exit(1)),
+                () -> System.exit(1));
+    }
+
+    /** Sem o Spring, o logback cai na configuração padrão (DEBUG), ruidosa demais para o PDFBox. */
+    private static void quietLogging() {
+        if (LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME) instanceof ch.qos.logback.classic.Logger root) {
+            root.setLevel(Level.WARN);
+        }
+    }
+}
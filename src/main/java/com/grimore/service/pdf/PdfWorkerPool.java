@@ -0,0 +1,424 @@
+package com.grimore.service.pdf;
+
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.imports.ImportMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool opcional de JVMs worker pré-iniciadas para o parse de PDFs ({@code pdf.workers.enabled}).
+ *
+ * Cada worker ({@link PdfWorkerMain}) é um processo separado com heap limitado a
+ * {@code pdf.workers.max-heap-mb}, atendendo um PDF por vez por um socket Unix. Um PDF
+ * patológico só derruba o worker: o heap e o GC da API não são afetados.
+ * - parse acima de {@code pdf.workers.timeout-ms} mata o worker e rejeita o PDF
+ * - worker que morre no meio do parse (ex: {@code OutOfMemoryError}) rejeita o PDF
+ * - após {@code pdf.workers.max-documents} PDFs o worker é reciclado
+ * Workers perdidos são substituídos em segundo plano. Sem nenhum worker vivo (falha ao
+ * iniciar), {@link #extract} devolve vazio e o {@link PdfTextExtractor} faz o parse local.
+ *
+ * Métricas: {@code grimore.pdf.workers.alive}, {@code grimore.pdf.workers.idle},
+ * {@code grimore.pdf.workers.fallbacks}, {@code grimore.pdf.workers.recycled} e
+ * {@code grimore.pdf.workers.failures{reason}}.
+ */
+@Slf4j
+@Component
+public class PdfWorkerPool {
+
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    private static final long CONNECT_RETRY_MS = 50;
+    private static final long IDLE_POLL_MS = 250;
+
+    private final PdfTriage triage;
+    private final ImportMetrics importMetrics;
+    private final boolean enabled;
+    private final int count;
+    private final int maxHeapMb;
+    private final long timeoutMs;
+    private final int maxDocuments;
+    private final long startupTimeoutMs;
+    private final long acquireTimeoutMs;
+    private final int maxPages;
+    private final long memoryBudgetMb;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+    // workers vivos ou iniciando; só cai quando um worker não consegue subir
+    private final AtomicInteger slots = new AtomicInteger();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final ScheduledExecutorService watchdog;
+    private final Counter fallbacks;
+    private final Counter recycled;
+    private final Counter timeouts;
+    private final Counter crashes;
+
+    private Path socketDir;
+    private volatile boolean closed;
+
+    public PdfWorkerPool(
+            MeterRegistry meterRegistry,
+            PdfTriage triage,
+            ImportMetrics importMetrics,
+            @Value("${pdf.workers.enabled}") boolean enabled,
+            @Value("${pdf.workers.count}") int count,
+            @Value("${pdf.workers.max-heap-mb}") int maxHeapMb,
+            @Value("${pdf.workers.timeout-ms}") long timeoutMs,
+            @Value("${pdf.workers.max-documents}") int maxDocuments,
+            @Value("${pdf.workers.startup-timeout-ms}") long startupTimeoutMs,
+            @Value("${pdf.parsing.acquire-timeout-ms}") long acquireTimeoutMs,
+            @Value("${pdf.parsing.max-pages}") int maxPages,
+            @Value("${pdf.parsing.memory-budget-mb}") long memoryBudgetMb) {
+        this.triage = triage;
+        this.importMetrics = importMetrics;
+        this.enabled = enabled;
+        this.count = count;
+        this.maxHeapMb = maxHeapMb;
+        this.timeoutMs = timeoutMs;
+        this.maxDocuments = maxDocuments;
+        this.startupTimeoutMs = startupTimeoutMs;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.maxPages = maxPages;
+        this.memoryBudgetMb = memoryBudgetMb;
+        this.watchdog = enabled
+                ? Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("pdf-worker-watchdog").daemon().factory())
+                : null;
+
+        Gauge.builder("grimore.pdf.workers.alive", slots, AtomicInteger::get)
+                .description("PDF worker processes alive or starting")
+                .register(meterRegistry);
+        Gauge.builder("grimore.pdf.workers.idle", idle, BlockingQueue::size)
+                .description("PDF worker processes waiting for a document")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("grimore.pdf.workers.fallbacks")
+                .description("PDFs parsed in-process because no worker was available")
+                .register(meterRegistry);
+        this.recycled = Counter.builder("grimore.pdf.workers.recycled")
+                .description("PDF workers replaced after reaching pdf.workers.max-documents")
+                .register(meterRegistry);
+        this.timeouts = failures(meterRegistry, "timeout");
+        this.crashes = failures(meterRegistry, "crash");
+    }
+
+    /** Pool desligado, para quem monta o {@link PdfTextExtractor} fora do Spring (workers, benchmarks). */
+    public static PdfWorkerPool disabled() {
+        return new PdfWorkerPool(new SimpleMeterRegistry(), null, null, false, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        socketDir = Files.createTempDirectory("grimore-pdf-workers-");
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            slots.incrementAndGet();
+            try {
+                idle.offer(spawn());
+            } catch (IOException e) {
+                slots.decrementAndGet();
+                log.warn("Could not start PDF worker: {}", e.getMessage());
+            }
+        }
+
+        if (slots.get() == 0) {
+            log.warn("No PDF worker could be started, PDFs will be parsed in-process");
+        } else {
+            log.info("Started {} PDF workers ({} MB heap each) in {} ms",
+                    slots.get(), maxHeapMb, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Extrai o texto em um worker. Vazio quando não há worker vivo (o chamador faz o parse local);
+     * {@link RateLimitExceededException} quando todos seguem ocupados após
+     * {@code pdf.parsing.acquire-timeout-ms}.
+     */
+    public Optional<String> extract(Path pdf) {
+        Worker worker = acquire();
+        if (worker == null) {
+            fallbacks.increment();
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        String result = ImportMetrics.FAILURE;
+        boolean healthy = false;
+        ScheduledFuture<?> deadline = watchdog.schedule(worker::kill, timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            worker.out.writeUTF(pdf.toAbsolutePath().toString());
+            worker.out.flush();
+
+            byte status = worker.in.readByte();
+            if (status == PdfWorkerProtocol.OK) {
+                int pages = worker.in.readInt();
+                String text = PdfWorkerProtocol.readText(worker.in);
+                healthy = true;
+
+                triage.accepted();
+                result = ImportMetrics.SUCCESS;
+                importMetrics.recordDocument(pages, text.length(), result);
+                return Optional.of(text);
+            }
+
+            String reason = status == PdfWorkerProtocol.REJECTED ? worker.in.readUTF() : "";
+            String message = worker.in.readUTF();
+            healthy = true;
+
+            if (!reason.isEmpty()) {
+                throw triage.reject(PdfTriage.Outcome.valueOf(reason), message);
+            }
+            if (status == PdfWorkerProtocol.FAILED) {
+                log.warn("PDF worker {} failed to parse a document: {}", worker.id, message);
+                throw new BadRequestException("Falha ao ler PDF: " + message);
+            }
+            throw new BadRequestException(message);
+        } catch (IOException e) {
+            // o PDF derrubou o worker (OOM, crash) ou o watchdog o matou por tempo
+            boolean timedOut = !deadline.cancel(false);
+            (timedOut ? timeouts : crashes).increment();
+            log.warn("PDF worker {} {} while parsing a document", worker.id,
+                    timedOut ? "timed out after " + timeoutMs + " ms" : "died (" + e.getMessage() + ")");
+            throw new BadRequestException(timedOut
+                    ? "O PDF demorou demais para ser processado. Verifique o arquivo e tente novamente."
+                    : "Não foi possível processar o PDF. Verifique o arquivo e tente novamente.");
+        } finally {
+            deadline.cancel(false);
+            importMetrics.recordStage(ImportMetrics.Stage.TEXT_EXTRACTION, result, System.nanoTime() - start);
+            release(worker, healthy);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+
+        closed = true;
+        watchdog.shutdownNow();
+        for (Worker worker : workers) {
+            worker.close();
+        }
+        try {
+            Files.deleteIfExists(socketDir);
+        } catch (IOException e) {
+            log.debug("Could not delete PDF worker socket directory {}: {}", socketDir, e.getMessage());
+        }
+    }
+
+    private Worker acquire() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        try {
+            while (slots.get() > 0 && !closed) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    log.warn("Timed out waiting for a PDF worker after {} ms", acquireTimeoutMs);
+                    throw new RateLimitExceededException(
+                            "Muitos PDFs sendo processados no momento. Por favor tente novamente em alguns instantes.");
+                }
+
+                Worker worker = idle.poll(Math.min(remainingMs, IDLE_POLL_MS), TimeUnit.MILLISECONDS);
+                if (worker == null) {
+                    continue;
+                }
+                if (worker.process.isAlive()) {
+                    return worker;
+                }
+                crashes.increment();
+                log.warn("PDF worker {} exited while idle (code {})", worker.id, worker.process.exitValue());
+                retire(worker);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RateLimitExceededException("Processamento do PDF interrompido");
+        }
+        return null;
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        if (!healthy) {
+            retire(worker);
+            return;
+        }
+
+        worker.documents++;
+        if (worker.documents >= maxDocuments) {
+            recycled.increment();
+            log.debug("Recycling PDF worker {} after {} documents", worker.id, worker.documents);
+            retire(worker);
+            return;
+        }
+        idle.offer(worker);
+    }
+
+    /** Encerra o worker e sobe um substituto em segundo plano, mantendo a vaga no pool. */
+    private void retire(Worker worker) {
+        worker.close();
+        if (closed) {
+            slots.decrementAndGet();
+            return;
+        }
+
+        Thread.ofVirtual().name("pdf-worker-spawn").start(() -> {
+            try {
+                idle.offer(spawn());
+            } catch (IOException e) {
+                int remaining = slots.decrementAndGet();
+                log.warn("Could not replace PDF worker {} ({} left): {}", worker.id, remaining, e.getMessage());
+            }
+        });
+    }
+
+    private Worker spawn() throws IOException {
+        int id = sequence.incrementAndGet();
+        Path socket = socketDir.resolve("worker-" + id + ".sock");
+        Process process = new ProcessBuilder(command(socket))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(startupTimeoutMs);
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IOException("worker " + id + " exited with code " + process.exitValue());
+            }
+            if (Files.exists(socket)) {
+                try {
+                    Worker worker = new Worker(id, process, SocketChannel.open(UnixDomainSocketAddress.of(socket)));
+                    workers.add(worker);
+                    return worker;
+                } catch (ConnectException e) {
+                    // socket criado, mas o worker ainda não está escutando
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                process.destroyForcibly();
+                throw new IOException("worker " + id + " did not start within " + startupTimeoutMs + " ms");
+            }
+            try {
+                Thread.sleep(CONNECT_RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+                throw new IOException("interrupted while starting worker " + id);
+            }
+        }
+    }
+
+    private List<String> command(Path socket) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + maxHeapMb + "m");
+        command.add("-XX:+UseSerialGC");
+        command.add("-XX:+ExitOnOutOfMemoryError");
+        command.add("-Dpdf.workers.parent-pid=" + ProcessHandle.current().pid());
+        command.add("-Dpdf.parsing.max-pages=" + maxPages);
+        command.add("-Dpdf.parsing.memory-budget-mb=" + memoryBudgetMb);
+        command.add("-Dpdf.triage.enabled=" + triage.isEnabled());
+        command.add("-Dpdf.triage.pages=" + triage.getPages());
+
+        String classPath = System.getProperty("java.class.path");
+        if (runningFromBootJar()) {
+            // no jar executável as classes ficam em BOOT-INF; o launcher do Boot monta o classpath
+            command.add("-Dloader.main=" + PdfWorkerMain.class.getName());
+            command.add("-cp");
+            command.add(classPath);
+            command.add(BOOT_LAUNCHER);
+        } else {
+            command.add("-cp");
+            command.add(classPath);
+            command.add(PdfWorkerMain.class.getName());
+        }
+        command.add(socket.toString());
+        return command;
+    }
+
+    private static boolean runningFromBootJar() {
+        var source = PdfWorkerPool.class.getProtectionDomain().getCodeSource();
+        return source != null && source.getLocation().toString().contains("BOOT-INF");
+    }
+
+    private static Counter failures(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("grimore.pdf.workers.failures")
+                .description("PDF workers lost while parsing a document")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private final class Worker {
+
+        private final int id;
+        private final Process process;
+        private final SocketChannel channel;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private int documents;
+
+        private Worker(int id, Process process, SocketChannel channel) {
+            this.id = id;
+            this.process = process;
+            this.channel = channel;
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+        }
+
+        /** Chamado pelo watchdog: a leitura bloqueada no socket falha assim que o processo morre. */
+        private void kill() {
+            process.destroyForcibly();
+        }
+
+        /** Fechar a conexão encerra o worker; se ele não sair a tempo, é morto. */
+        private void close() {
+            workers.remove(this);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Could not close PDF worker {} socket: {}", id, e.getMessage());
+            }
+            process.onExit()
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .exceptionally(ex -> {
+                        process.destroyForcibly();
+                        return process;
+                    });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.grimore.service.pdf;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Protocolo entre o {@link PdfWorkerPool} e cada {@link PdfWorkerMain}, sobre o socket Unix.
+ *
+ * Requisição: caminho do PDF ({@code writeUTF}).
+ * Resposta: um byte de status seguido de
+ * - {@link #OK}: total de páginas e o texto (tamanho + bytes UTF-8)
+ * - {@link #REJECTED}: motivo da triagem (vazio se não veio da triagem) e a mensagem para o usuário
+ * - {@link #FAILED}: mensagem do erro inesperado
+ */
+final class PdfWorkerProtocol {
+
+    static final byte OK = 0;
+    static final byte REJECTED = 1;
+    static final byte FAILED = 2;
+
+    private PdfWorkerProtocol() {
+    }
+
+    static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,3 @@
+-- Marks jobs whose attempt reached the PERSISTING stage; the stage column is reset to QUEUED on retry,
+-- so the worker needs this flag to know whether a redelivery may find rows written by an earlier attempt
+ALTER TABLE import_jobs ADD COLUMN persist_started BOOLEAN NOT NULL DEFAULT FALSE;
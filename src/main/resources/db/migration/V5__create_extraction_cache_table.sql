@@ -0,0 +1,10 @@
+-- Cache of PDF extraction results keyed by content hash
+-- cache_key: 'pdf:<sha256 dos bytes>' ou 'text:<sha256 do texto normalizado>'
+CREATE TABLE extraction_cache (
+    cache_key VARCHAR(80) PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_extraction_cache_expires_at ON extraction_cache(expires_at);
@@ -0,0 +1,28 @@
+-- One active discipline per code per student (target of the import upsert)
+
+-- Older duplicates (from concurrent imports) are merged into the most recent one: their tasks move to
+-- the surviving discipline first, so none stays attached to a discipline the student no longer sees
+WITH duplicates AS (
+    SELECT d.id,
+           max(d.id) OVER (PARTITION BY d.student_id, d.code) AS survivor_id
+    FROM disciplines d
+    WHERE d.active
+)
+UPDATE tasks t
+SET discipline_id = dup.survivor_id, updated_at = CURRENT_TIMESTAMP
+FROM duplicates dup
+WHERE t.discipline_id = dup.id
+  AND dup.id <> dup.survivor_id;
+
+UPDATE disciplines d
+SET active = FALSE, updated_at = CURRENT_TIMESTAMP
+WHERE d.active
+  AND EXISTS (
+      SELECT 1 FROM disciplines o
+      WHERE o.student_id = d.student_id
+        AND o.code = d.code
+        AND o.active
+        AND o.id > d.id
+  );
+
+CREATE UNIQUE INDEX uq_disciplines_student_code_active ON disciplines(student_id, code) WHERE active;
@@ -0,0 +1,23 @@
+-- Index of the enrollment PDFs kept in the content-addressed blob store (files live on disk)
+-- sha256: hash dos bytes originais do PDF; o arquivo fica em <pdf.blobs.dir>/<aa>/<bb>/<sha256>.pdf.zst
+CREATE TABLE pdf_blobs (
+    sha256 CHAR(64) PRIMARY KEY,
+    size_bytes BIGINT NOT NULL CHECK (size_bytes >= 0),
+    stored_bytes BIGINT NOT NULL CHECK (stored_bytes >= 0),
+    upload_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Each upload of a blob, for auditing and reprocessing per student
+CREATE TABLE pdf_blob_uploads (
+    id BIGSERIAL PRIMARY KEY,
+    sha256 CHAR(64) NOT NULL,
+    student_id INTEGER NOT NULL,
+    uploaded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_pdf_blob_uploads_blob FOREIGN KEY (sha256) REFERENCES pdf_blobs(sha256) ON DELETE CASCADE,
+    CONSTRAINT fk_pdf_blob_uploads_student FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_pdf_blob_uploads_student_id ON pdf_blob_uploads(student_id, uploaded_at DESC);
+CREATE INDEX idx_pdf_blob_uploads_sha256 ON pdf_blob_uploads(sha256);
@@ -0,0 +1,29 @@
+-- Durable queue of async enrollment imports, shared by every API replica
+-- workers claim jobs with FOR UPDATE SKIP LOCKED and hold them under a lease (lease_owner/lease_expires_at);
+-- timestamps are TIMESTAMPTZ because lease and backoff math runs in SQL across nodes
+CREATE TABLE import_jobs (
+    id UUID PRIMARY KEY,
+    student_id INTEGER NOT NULL,
+    mode VARCHAR(10) NOT NULL CHECK (mode IN ('CREATE', 'UPSERT')),
+    status VARCHAR(10) NOT NULL DEFAULT 'QUEUED' CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED', 'DEAD')),
+    stage VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    attempts INTEGER NOT NULL DEFAULT 0 CHECK (attempts >= 0),
+    max_attempts INTEGER NOT NULL CHECK (max_attempts > 0),
+    available_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    lease_owner VARCHAR(120),
+    lease_expires_at TIMESTAMPTZ,
+    -- PDF enviado; removido quando o job termina (mantido nos DEAD para reprocessamento)
+    pdf BYTEA,
+    result TEXT,
+    error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    CONSTRAINT fk_import_jobs_student FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+);
+
+-- Claim order and queue depth/age
+CREATE INDEX idx_import_jobs_queued ON import_jobs(available_at) WHERE status = 'QUEUED';
+-- Expired lease sweep
+CREATE INDEX idx_import_jobs_running ON import_jobs(lease_expires_at) WHERE status = 'RUNNING';
+-- Retention of finished and dead-lettered jobs
+CREATE INDEX idx_import_jobs_finished ON import_jobs(status, updated_at) WHERE status IN ('COMPLETED', 'FAILED', 'DEAD');
@@ -0,0 +1,16 @@
+-- Per-student LLM usage ledger, one row per student per day (monthly totals are sums over the month)
+-- written in batches from in-memory counters; cost is stored in micro-dollars to keep integer math
+CREATE TABLE ai_usage (
+    student_id INTEGER NOT NULL,
+    day DATE NOT NULL,
+    prompt_tokens BIGINT NOT NULL DEFAULT 0,
+    completion_tokens BIGINT NOT NULL DEFAULT 0,
+    cost_micros BIGINT NOT NULL DEFAULT 0,
+    calls INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (student_id, day),
+    CONSTRAINT fk_ai_usage_student FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE
+);
+
+-- Monthly reconciliation scans a date range across all students
+CREATE INDEX idx_ai_usage_day ON ai_usage(day);
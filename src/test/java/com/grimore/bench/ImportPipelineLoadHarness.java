@@ -0,0 +1,261 @@
+package com.grimore.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.GrimoreApplication;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.model.Student;
+import com.grimore.repository.DisciplineRepository;
+import com.grimore.repository.StudentRepository;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.imports.ImportProgressListener;
+import com.grimore.service.pdf.EnrollmentPdfRuleExtractor;
+import com.grimore.support.StubOpenAiServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Carga ponta a ponta do pipeline de importação (parse do PDF -> extração -> persistência em lote)
+ * com o LLM substituído pelo {@link StubOpenAiServer}: sem custo de OpenAI e sem rede.
+ *
+ * O stub "lê" o texto enviado usando o próprio parser determinístico, então as respostas
+ * têm as disciplinas reais de cada comprovante sintético. Por padrão a confiança mínima do
+ * parser é elevada para forçar o caminho do LLM.
+ *
+ * Para cada nível de concorrência, mede importações/s, latência p50/p99, bytes alocados
+ * por importação e heap em uso ao final.
+ *
+ * Cada modo de threads ({@code bench.thread-modes}) sobe a aplicação de novo:
+ * - {@code platform}: pool fixo de {@code bench.platform-threads} threads de plataforma atendendo
+ *   as importações, como o pool do Tomcat (200 por padrão); acima disso as chamadas esperam na fila
+ * - {@code virtual}: {@code spring.threads.virtual.enabled=true} e uma virtual thread por importação
+ *
+ * {@code bench.concurrency} é o número de clientes simultâneos, cada um disparando a próxima
+ * importação assim que a anterior termina. A latência conta desde a chegada da chamada, incluindo
+ * a espera por uma thread livre. A auditoria de pinning fica ligada, e ao fim de cada modo o harness
+ * imprime as ocorrências de {@code jdk.VirtualThreadPinned} por origem (nosso código, PDFBox, JDBC...).
+ *
+ * Requer um PostgreSQL descartável (as migrations rodam nele):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * DATABASE_URL=jdbc:postgresql://localhost:5432/grimore_bench DATABASE_USERNAME=... DATABASE_PASSWORD=... \
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.grimore.bench.ImportPipelineLoadHarness
+ * </pre>
+ *
+ * Parâmetros (system properties): {@code bench.concurrency} (ex: 1,4,8,16), {@code bench.imports}
+ * por nível, {@code bench.pages}, {@code bench.rows}, {@code bench.llm-latency-ms},
+ * {@code bench.rules-min-confidence} (use 1.0 para medir o caminho sem LLM),
+ * {@code bench.thread-modes} (platform,virtual), {@code bench.platform-threads},
+ * {@code bench.llm-concurrency} (limite de chamadas simultâneas ao LLM) e {@code bench.db-pool-size}.
+ * Para comparar os modos acima do limite do Tomcat, algo como
+ * {@code -Dbench.concurrency=64,256,512 -Dbench.imports=1024 -Dbench.llm-concurrency=512}.
+ */
+public class ImportPipelineLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        int[] levels = Arrays.stream(System.getProperty("bench.concurrency", "1,4,8,16").split(","))
+                .mapToInt(v -> Integer.parseInt(v.trim()))
+                .toArray();
+        int importsPerLevel = Integer.getInteger("bench.imports", 64);
+        int pages = Integer.getInteger("bench.pages", 1);
+        int rows = Integer.getInteger("bench.rows", 6);
+        long llmLatencyMs = Long.getLong("bench.llm-latency-ms", 800);
+        String rulesMinConfidence = System.getProperty("bench.rules-min-confidence", "2.0");
+        List<String> threadModes = Arrays.stream(System.getProperty("bench.thread-modes", "platform,virtual").split(","))
+                .map(String::trim)
+                .toList();
+        int platformThreads = Integer.getInteger("bench.platform-threads", 200);
+        int llmConcurrency = Integer.getInteger("bench.llm-concurrency", 64);
+        int dbPoolSize = Integer.getInteger("bench.db-pool-size", 10);
+
+        ObjectMapper json = new ObjectMapper();
+        EnrollmentPdfRuleExtractor cannedModel = new EnrollmentPdfRuleExtractor(0.0);
+
+        try (StubOpenAiServer stub = new StubOpenAiServer()) {
+            stub.latency(llmLatencyMs).respondWith(prompt -> cannedResponse(json, cannedModel, prompt));
+
+            // argumentos de linha de comando: precisam prevalecer sobre o application.properties
+            Map<String, String> properties = Map.of(
+                    "spring.ai.openai.base-url", stub.baseUrl(),
+                    "spring.ai.openai.api-key", "bench",
+                    "jwt.secret", "bench-secret-bench-secret-bench-secret-0123456789",
+                    "extraction.rules.min-confidence", rulesMinConfidence,
+                    "ai.guard.max-concurrent-calls", String.valueOf(llmConcurrency),
+                    "ai.guard.queue-capacity", String.valueOf(llmConcurrency * 4),
+                    "ai.http.max-connections", String.valueOf(llmConcurrency),
+                    "pdf.parsing.max-concurrent", String.valueOf(Runtime.getRuntime().availableProcessors()),
+                    "spring.datasource.hikari.maximum-pool-size", String.valueOf(dbPoolSize),
+                    "threads.pinning-audit.enabled", "true"
+            );
+
+            System.out.printf("%-10s %-12s %-8s %-12s %-10s %-10s %-16s %-12s%n",
+                    "mode", "concurrency", "imports", "imports/s", "p50 ms", "p99 ms", "alloc MB/import", "heap MB");
+
+            long seed = 1;
+            for (String mode : threadModes) {
+                boolean virtual = mode.equals("virtual");
+                List<String> runArgs = new ArrayList<>();
+                properties.forEach((key, value) -> runArgs.add("--" + key + "=" + value));
+                runArgs.add("--spring.threads.virtual.enabled=" + virtual);
+
+                ConfigurableApplicationContext context = new SpringApplicationBuilder(GrimoreApplication.class)
+                        .web(WebApplicationType.NONE)
+                        .run(runArgs.toArray(String[]::new));
+
+                Path corpus = Files.createTempDirectory("grimore-load-");
+                try {
+                    DisciplinePdfImportService importService = context.getBean(DisciplinePdfImportService.class);
+                    StudentRepository students = context.getBean(StudentRepository.class);
+                    DisciplineRepository disciplines = context.getBean(DisciplineRepository.class);
+
+                    for (int concurrency : levels) {
+                        // PDFs e estudantes novos por nível: nenhum acerto de cache, nenhuma disciplina duplicada
+                        List<Path> pdfs = new ArrayList<>();
+                        List<Integer> studentIds = new ArrayList<>();
+                        for (int i = 0; i < importsPerLevel; i++) {
+                            pdfs.add(SyntheticEnrollmentPdfs.create(corpus, pages, rows, seed++));
+                            studentIds.add(createStudent(students));
+                        }
+
+                        // o servidor: pool limitado de threads de plataforma ou uma virtual thread por chamada
+                        try (ExecutorService server = virtual
+                                ? Executors.newVirtualThreadPerTaskExecutor()
+                                : Executors.newFixedThreadPool(platformThreads)) {
+                            runLevel(mode, importService, server, concurrency, pdfs, studentIds);
+                        } finally {
+                            for (Integer id : studentIds) {
+                                disciplines.deleteAll(disciplines.findByStudentId(id));
+                                students.deleteById(id);
+                            }
+                            for (Path pdf : pdfs) {
+                                Files.deleteIfExists(pdf);
+                            }
+                        }
+                    }
+
+                    printPinning(mode, context.getBean(MeterRegistry.class));
+                } finally {
+                    Files.deleteIfExists(corpus);
+                    context.close();
+                }
+            }
+
+            System.out.printf("stub model requests: %d%n", stub.requestCount());
+        }
+    }
+
+    private static void runLevel(String mode, DisciplinePdfImportService importService, ExecutorService server,
+                                 int concurrency, List<Path> pdfs, List<Integer> studentIds) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.gc();
+        long allocatedBefore = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+
+        // clientes em ciclo fechado: cada um envia a próxima importação quando a anterior responde
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < concurrency; c++) {
+                futures.add(clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < pdfs.size(); i = next.getAndIncrement()) {
+                        Path pdf = pdfs.get(i);
+                        Integer studentId = studentIds.get(i);
+                        long t0 = System.nanoTime();
+                        try {
+                            server.submit(() -> importService.importEnrollmentPdf(pdf, studentId, ImportProgressListener.NOOP))
+                                    .get();
+                        } catch (Exception ex) {
+                            failures.incrementAndGet();
+                        } finally {
+                            latencies.add(System.nanoTime() - t0);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedBefore;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        System.out.printf("%-10s %-12d %-8d %-12.2f %-10.1f %-10.1f %-16.2f %-12.1f%s%n",
+                mode,
+                concurrency,
+                pdfs.size(),
+                pdfs.size() / elapsedSec,
+                percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.99) / 1e6,
+                allocated / (double) pdfs.size() / (1024 * 1024),
+                memory.getHeapMemoryUsage().getUsed() / (1024.0 * 1024),
+                failures.get() > 0 ? "  (" + failures.get() + " failed)" : "");
+    }
+
+    private static void printPinning(String mode, MeterRegistry registry) {
+        // a auditoria lê o JFR de forma assíncrona; dá tempo para os últimos eventos chegarem
+        try {
+            Thread.sleep(2_000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        String pinned = registry.find("grimore.threads.pinned").timers().stream()
+                .map(timer -> String.format("%s=%d (max %.0f ms)",
+                        timer.getId().getTag("origin"), timer.count(), timer.max(TimeUnit.MILLISECONDS)))
+                .collect(Collectors.joining(", "));
+        System.out.printf("%-10s pinned virtual threads: %s%n", mode, pinned.isEmpty() ? "none" : pinned);
+    }
+
+    private static String cannedResponse(ObjectMapper json, EnrollmentPdfRuleExtractor model, String prompt) {
+        try {
+            List<ExtractedDisciplineDTO> rows = model.extract(prompt).disciplines();
+            return json.writeValueAsString(Map.of("disciplines", rows));
+        } catch (Exception ex) {
+            return "{\"disciplines\": []}";
+        }
+    }
+
+    private static Integer createStudent(StudentRepository students) {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        return students.save(Student.builder()
+                .fullName("Bench " + tag)
+                .email("bench-" + tag + "@grimore.local")
+                .password("bench")
+                .build()).getId();
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.grimore.bench;
+
+import com.grimore.service.imports.ImportMetrics;
+import com.grimore.service.pdf.PdfParsingGovernor;
+import com.grimore.service.pdf.PdfTextExtractor;
+import com.grimore.service.pdf.PdfTextNormalizer;
+import com.grimore.service.pdf.PdfTriage;
+import com.grimore.service.pdf.PdfWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara extração serial x paralela por faixas de páginas e a normalização
+ * via regex x passada única, sobre comprovantes sintéticos de várias páginas.
+ *
+ * Execução:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.grimore.bench.PdfTextExtractionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfTextExtractionBenchmark {
+
+    @Param({"2", "8", "20"})
+    private int pages;
+
+    private Path dir;
+    private Path pdf;
+    private PdfTextExtractor serial;
+    private PdfTextExtractor parallel;
+    private String rawText;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("grimore-bench-");
+        pdf = SyntheticEnrollmentPdfs.create(dir, pages, 12, 42L);
+
+        PdfParsingGovernor governor = new PdfParsingGovernor(4, 60_000);
+        PdfTriage triage = new PdfTriage(new SimpleMeterRegistry(), true, 2);
+        ImportMetrics metrics = new ImportMetrics(new SimpleMeterRegistry());
+        serial = new PdfTextExtractor(governor, triage, metrics, PdfWorkerPool.disabled(), 50, 16, Integer.MAX_VALUE, 3, 1);
+        parallel = new PdfTextExtractor(governor, triage, metrics, PdfWorkerPool.disabled(), 50, 16, 1, 3, Runtime.getRuntime().availableProcessors());
+
+        // texto com NBSP, tabs e linhas em branco extras, como sai do PDFTextStripper
+        rawText = serial.extractText(pdf)
+                .replace("\n", " \t\n\n\n")
+                .replace(" - ", "\u00A0-\u00A0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        serial.shutdown();
+        parallel.shutdown();
+        Files.deleteIfExists(pdf);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public String extractSerial() {
+        return serial.extractText(pdf);
+    }
+
+    @Benchmark
+    public String extractParallel() {
+        return parallel.extractText(pdf);
+    }
+
+    @Benchmark
+    public String normalizeRegex() {
+        String text = rawText.replace("\u00A0", " ");
+        text = text.replaceAll("[ \\t]+", " ");
+        text = text.replaceAll("\\n{3,}", "\n\n");
+        return text.trim();
+    }
+
+    @Benchmark
+    public String normalizeSinglePass() {
+        return PdfTextNormalizer.normalize(rawText);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PdfTextExtractionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.grimore.bench;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Gera comprovantes de matrícula sintéticos no layout do SIGAA para benchmarks.
+ * Os dados são fictícios, mas códigos e horários seguem o formato da UFRN.
+ */
+public final class SyntheticEnrollmentPdfs {
+
+    private static final String[] NAMES = {
+            "LINGUAGEM DE PROGRAMACAO I", "ESTRUTURAS DE DADOS", "CALCULO II",
+            "ALGEBRA LINEAR", "BANCO DE DADOS", "REDES DE COMPUTADORES",
+            "ENGENHARIA DE SOFTWARE", "SISTEMAS OPERACIONAIS", "PROBABILIDADE E ESTATISTICA",
+            "INTRODUCAO A INTELIGENCIA ARTIFICIAL"
+    };
+    private static final String[] PREFIXES = {"IMD", "DIM", "ECT", "MAT", "DCA"};
+    private static final String[] SCHEDULES = {"24M34", "35T12", "246N12", "35M56 4T34", "7M1234", "26T56"};
+
+    private SyntheticEnrollmentPdfs() {}
+
+    /**
+     * Cria um PDF com {@code pages} páginas e {@code rowsPerPage} disciplinas por página.
+     */
+    public static Path create(Path dir, int pages, int rowsPerPage, long seed) throws IOException {
+        Random random = new Random(seed);
+        PDType1Font regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        PDType1Font bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+
+        Path file = Files.createTempFile(dir, "comprovante-", ".pdf");
+
+        try (PDDocument doc = new PDDocument()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    float y = 800;
+                    y = line(content, bold, 12, 50, y, "UNIVERSIDADE FEDERAL DO RIO GRANDE DO NORTE");
+                    y = line(content, regular, 10, 50, y, "SIGAA - Sistema Integrado de Gestao de Atividades Academicas");
+                    y = line(content, bold, 12, 50, y, "COMPROVANTE DE MATRICULA");
+                    y = line(content, regular, 10, 50, y, "Matricula: 2022" + (100000 + random.nextInt(899999)));
+                    y -= 10;
+                    y = line(content, bold, 9, 50, y, "Codigo   Componente Curricular   Turma   Status   Horario");
+
+                    for (int r = 0; r < rowsPerPage; r++) {
+                        String code = PREFIXES[random.nextInt(PREFIXES.length)] + (1000 + random.nextInt(8999));
+                        String name = NAMES[random.nextInt(NAMES.length)];
+                        String schedule = SCHEDULES[random.nextInt(SCHEDULES.length)];
+
+                        row(content, regular, y, code, name, "0" + (1 + random.nextInt(9)), "MATRICULADO", schedule);
+                        y -= 14;
+                        y = line(content, regular, 8, 70, y, "Local: Setor de Aulas " + (1 + random.nextInt(5))
+                                + " - Sala A" + (100 + random.nextInt(300)));
+                    }
+
+                    line(content, regular, 8, 50, 40, "Pagina " + (p + 1) + " de " + pages);
+                }
+            }
+            doc.save(file.toFile());
+        }
+
+        return file;
+    }
+
+    private static void row(PDPageContentStream content, PDType1Font font, float y,
+                            String code, String name, String turma, String status, String schedule) throws IOException {
+        text(content, font, 9, 50, y, code);
+        text(content, font, 9, 100, y, name);
+        text(content, font, 9, 330, y, turma);
+        text(content, font, 9, 370, y, status);
+        text(content, font, 9, 450, y, schedule);
+    }
+
+    private static float line(PDPageContentStream content, PDType1Font font, float size,
+                              float x, float y, String value) throws IOException {
+        text(content, font, size, x, y, value);
+        return y - size - 6;
+    }
+
+    private static void text(PDPageContentStream content, PDType1Font font, float size,
+                             float x, float y, String value) throws IOException {
+        content.beginText();
+        content.setFont(font, size);
+        content.newLineAtOffset(x, y);
+        content.showText(value);
+        content.endText();
+    }
+}
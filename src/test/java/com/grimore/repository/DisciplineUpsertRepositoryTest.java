@@ -0,0 +1,122 @@
+package com.grimore.repository;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.enums.WorkloadHours;
+import com.grimore.repository.DisciplineUpsertRepository.UpsertResult;
+import com.grimore.support.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIf("com.grimore.support.PostgresTestDatabase#isAvailable")
+class DisciplineUpsertRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = PostgresTestDatabase.jdbcTemplate();
+    private final DisciplineUpsertRepository repository = new DisciplineUpsertRepository(jdbcTemplate);
+
+    private int studentId;
+
+    @BeforeEach
+    void setUp() {
+        studentId = PostgresTestDatabase.insertStudent("upsert-" + UUID.randomUUID() + "@teste.com");
+    }
+
+    @Test
+    void insertsNewCodesUpdatesChangedOnesAndSkipsIdenticalRows() {
+        UpsertResult first = repository.upsert(studentId, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34", "A308"),
+                discipline("DIM0120", "CALCULO II", "35T12", "B102"),
+                discipline("IMD0040", "BANCO DE DADOS", "246T12", null)));
+
+        assertThat(first.insertedIds()).hasSize(3);
+        assertThat(first.updatedIds()).isEmpty();
+
+        UpsertResult second = repository.upsert(studentId, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34", "A308"),
+                discipline("DIM0120", "CALCULO II", "35T12", "B205"),
+                discipline("IMD0040", "BANCO DE DADOS", "246T12", null),
+                discipline("ECT1203", "VETORES E GEOMETRIA ANALITICA", "35M12", null)));
+
+        assertThat(second.insertedIds()).hasSize(1);
+        assertThat(second.updatedIds()).containsExactly(idOf("DIM0120"));
+        // IMD0030 e IMD0040 (local nulo dos dois lados) não foram tocadas nem retornadas
+        assertThat(activeCount()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT location FROM disciplines WHERE student_id = ? AND code = 'DIM0120' AND active",
+                String.class, studentId)).isEqualTo("B205");
+    }
+
+    @Test
+    void updateKeepsTheRowAndItsTasks() {
+        repository.upsert(studentId, List.of(discipline("IMD0030", "LP I", "24M34", "A308")));
+        int id = idOf("IMD0030");
+        jdbcTemplate.update("""
+                INSERT INTO tasks (discipline_id, title, type, due_date)
+                VALUES (?, 'Prova 1', 'PROVA', now() + INTERVAL '7 days')
+                """, id);
+
+        UpsertResult result = repository.upsert(studentId, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M56", "A308")));
+
+        assertThat(result.updatedIds()).containsExactly(id);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM tasks WHERE discipline_id = ?",
+                Integer.class, id)).isEqualTo(1);
+    }
+
+    @Test
+    void inactiveDisciplineWithTheSameCodeDoesNotConflict() {
+        repository.upsert(studentId, List.of(discipline("IMD0030", "LP I", "24M34", null)));
+        jdbcTemplate.update("UPDATE disciplines SET active = FALSE WHERE student_id = ?", studentId);
+
+        UpsertResult result = repository.upsert(studentId, List.of(discipline("IMD0030", "LP I", "24M34", null)));
+
+        assertThat(result.insertedIds()).hasSize(1);
+        assertThat(activeCount()).isEqualTo(1);
+    }
+
+    @Test
+    void codesAreScopedByStudent() {
+        int otherStudent = PostgresTestDatabase.insertStudent("upsert-" + UUID.randomUUID() + "@teste.com");
+        repository.upsert(otherStudent, List.of(discipline("IMD0030", "LP I", "24M34", null)));
+
+        UpsertResult result = repository.upsert(studentId, List.of(discipline("IMD0030", "LP I", "24M34", null)));
+
+        assertThat(result.insertedIds()).hasSize(1);
+    }
+
+    @Test
+    void insertIfAbsentLeavesAnExistingCodeUntouched() {
+        ExtractedDisciplineDTO original = discipline("IMD0030", "LP I", "24M34", "A308");
+
+        assertThat(repository.insertIfAbsent(studentId, original)).isPresent();
+        assertThat(repository.insertIfAbsent(studentId, discipline("IMD0030", "OUTRO NOME", "35T12", null))).isEmpty();
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT name, schedule_code FROM disciplines WHERE student_id = ? AND code = 'IMD0030' AND active",
+                studentId);
+        assertThat(row).containsEntry("name", "LP I").containsEntry("schedule_code", "24M34");
+        assertThat(activeCount()).isEqualTo(1);
+    }
+
+    private static ExtractedDisciplineDTO discipline(String code, String name, String schedule, String location) {
+        return new ExtractedDisciplineDTO(name, code, schedule, location, WorkloadHours.H60);
+    }
+
+    private int idOf(String code) {
+        return jdbcTemplate.queryForObject(
+                "SELECT id FROM disciplines WHERE student_id = ? AND code = ? AND active",
+                Integer.class, studentId, code);
+    }
+
+    private int activeCount() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM disciplines WHERE student_id = ? AND active", Integer.class, studentId);
+    }
+}
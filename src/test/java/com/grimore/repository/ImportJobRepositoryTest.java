@@ -0,0 +1,234 @@
+package com.grimore.repository;
+
+import com.grimore.repository.ImportJobRepository.ClaimedJob;
+import com.grimore.service.imports.ImportJobStatus;
+import com.grimore.service.imports.ImportMode;
+import com.grimore.service.imports.ImportStage;
+import com.grimore.support.PostgresTestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIf("com.grimore.support.PostgresTestDatabase#isAvailable")
+class ImportJobRepositoryTest {
+
+    private static final long LEASE_MS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate = PostgresTestDatabase.jdbcTemplate();
+    private final ImportJobRepository repository = new ImportJobRepository(jdbcTemplate);
+
+    @TempDir
+    Path tempDir;
+
+    private int studentId;
+    private Path pdf;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM import_jobs");
+        studentId = PostgresTestDatabase.insertStudent("fila-" + UUID.randomUUID() + "@teste.com");
+        pdf = Files.write(tempDir.resolve("comprovante.pdf"), "%PDF-1.7 comprovante".getBytes());
+    }
+
+    @Test
+    void insertRespectsTheQueueDepth() {
+        assertThat(enqueue(3)).isNotNull();
+        assertThat(enqueue(3)).isNotNull();
+
+        assertThat(repository.insert(UUID.randomUUID(), studentId, ImportMode.CREATE, 3, pdf, 2)).isFalse();
+        assertThat(repository.stats().queued()).isEqualTo(2);
+    }
+
+    @Test
+    void claimHandsEachJobToASingleWorkerInAvailabilityOrder() {
+        UUID first = enqueue(3);
+        UUID second = enqueue(3);
+        UUID third = enqueue(3);
+        UUID later = enqueue(3);
+        jdbcTemplate.update("UPDATE import_jobs SET available_at = now() + INTERVAL '1 hour' WHERE id = ?", later);
+
+        List<ClaimedJob> a = repository.claim("node-a", 2, LEASE_MS);
+        List<ClaimedJob> b = repository.claim("node-b", 5, LEASE_MS);
+
+        assertThat(a).extracting(ClaimedJob::id).containsExactly(first, second);
+        assertThat(b).extracting(ClaimedJob::id).containsExactly(third);
+        assertThat(a.getFirst()).isEqualTo(new ClaimedJob(first, studentId, ImportMode.CREATE, 1, 3, false));
+        assertThat(repository.claim("node-c", 5, LEASE_MS)).isEmpty();
+        assertThat(repository.stats().running()).isEqualTo(3);
+    }
+
+    @Test
+    void writesAreGuardedByTheLeaseOwner() {
+        UUID id = enqueue(3);
+        repository.claim("node-a", 1, LEASE_MS);
+
+        assertThat(repository.updateStage(id, "node-b", ImportStage.EXTRACTING)).isFalse();
+        assertThat(repository.complete(id, "node-b", "{}")).isFalse();
+        assertThat(repository.retryOrBury(id, "node-b", "erro", 0)).isEmpty();
+
+        assertThat(repository.complete(id, "node-a", "{\"createdCount\": 2}")).isTrue();
+        assertThat(job(id).status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(job(id).result()).isEqualTo("{\"createdCount\": 2}");
+        // o PDF sai da linha quando o job termina
+        assertThat(repository.readPdf(id, ImportJobRepositoryTest::size)).isEmpty();
+    }
+
+    @Test
+    void expiredLeaseIsRequeuedAndTheOldOwnerCanNoLongerFinish() {
+        UUID id = enqueue(3);
+        repository.claim("node-a", 1, LEASE_MS);
+        expireLease(id);
+
+        assertThat(repository.requeueExpiredLeases("interrompido", 0)).isEqualTo(1);
+        assertThat(job(id).status()).isEqualTo(ImportJobStatus.QUEUED);
+        assertThat(job(id).error()).isEqualTo("interrompido");
+        // o heartbeat atrasado do dono antigo já não renova nada
+        assertThat(repository.renewLeases("node-a", Set.of(id), LEASE_MS)).isZero();
+
+        List<ClaimedJob> retaken = repository.claim("node-b", 1, LEASE_MS);
+
+        assertThat(retaken).extracting(ClaimedJob::attempt).containsExactly(2);
+        assertThat(repository.complete(id, "node-a", "{}")).isFalse();
+        assertThat(repository.complete(id, "node-b", "{}")).isTrue();
+    }
+
+    @Test
+    void renewLeasesOnlyExtendsTheOwnersRunningJobs() {
+        UUID mine = enqueue(3);
+        UUID theirs = enqueue(3);
+        repository.claim("node-a", 1, LEASE_MS);
+        repository.claim("node-b", 1, LEASE_MS);
+        expireLease(mine);
+        expireLease(theirs);
+
+        assertThat(repository.renewLeases("node-a", Set.of(mine, theirs), LEASE_MS)).isEqualTo(1);
+        assertThat(repository.requeueExpiredLeases("interrompido", 0)).isEqualTo(1);
+        assertThat(job(mine).status()).isEqualTo(ImportJobStatus.RUNNING);
+        assertThat(job(theirs).status()).isEqualTo(ImportJobStatus.QUEUED);
+    }
+
+    @Test
+    void retryWaitsForTheBackoffAndBuriesTheLastAttempt() throws IOException {
+        UUID id = enqueue(2);
+
+        repository.claim("node-a", 1, LEASE_MS);
+        assertThat(repository.retryOrBury(id, "node-a", "modelo indisponível", 60_000)).contains(ImportJobStatus.QUEUED);
+        // ainda no backoff
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).isEmpty();
+
+        jdbcTemplate.update("UPDATE import_jobs SET available_at = now() WHERE id = ?", id);
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).extracting(ClaimedJob::attempt).containsExactly(2);
+        assertThat(repository.retryOrBury(id, "node-a", "modelo indisponível", 0)).contains(ImportJobStatus.DEAD);
+
+        assertThat(job(id).stage()).isEqualTo(ImportStage.FAILED);
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).isEmpty();
+        assertThat(repository.findDead(10)).extracting(ImportJobRepository.ImportJobRecord::id).containsExactly(id);
+        // o DEAD guarda o PDF para reprocessamento
+        assertThat(repository.readPdf(id, ImportJobRepositoryTest::size)).contains(Files.size(pdf));
+    }
+
+    @Test
+    void expiredLeaseOnTheLastAttemptGoesToTheDeadLetterQueue() {
+        UUID id = enqueue(1);
+        repository.claim("node-a", 1, LEASE_MS);
+        expireLease(id);
+
+        repository.requeueExpiredLeases("interrompido", 0);
+
+        assertThat(job(id).status()).isEqualTo(ImportJobStatus.DEAD);
+        assertThat(repository.stats().dead()).isEqualTo(1);
+    }
+
+    @Test
+    void retryDeadRequeuesWithFreshAttempts() {
+        UUID id = enqueue(1);
+        repository.claim("node-a", 1, LEASE_MS);
+        repository.retryOrBury(id, "node-a", "erro", 0);
+
+        assertThat(repository.retryDead(id)).isTrue();
+        assertThat(repository.retryDead(id)).isFalse();
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).extracting(ClaimedJob::attempt).containsExactly(1);
+    }
+
+    @Test
+    void releaseReturnsAClaimedJobWithoutCountingTheAttempt() {
+        UUID id = enqueue(3);
+        repository.claim("node-a", 1, LEASE_MS);
+
+        repository.release(id, "node-a");
+
+        assertThat(job(id).attempts()).isZero();
+        assertThat(repository.claim("node-b", 1, LEASE_MS)).extracting(ClaimedJob::attempt).containsExactly(1);
+    }
+
+    @Test
+    void persistStartedSurvivesTheRetry() {
+        UUID id = enqueue(3);
+        repository.claim("node-a", 1, LEASE_MS);
+        repository.updateStage(id, "node-a", ImportStage.EXTRACTING);
+        repository.retryOrBury(id, "node-a", "erro", 0);
+
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).extracting(ClaimedJob::persistStarted).containsExactly(false);
+
+        repository.updateStage(id, "node-a", ImportStage.PERSISTING);
+        repository.updateStage(id, "node-a", ImportStage.COMPLETED);
+        repository.retryOrBury(id, "node-a", "erro", 0);
+
+        assertThat(job(id).stage()).isEqualTo(ImportStage.QUEUED);
+        assertThat(repository.claim("node-a", 1, LEASE_MS)).extracting(ClaimedJob::persistStarted).containsExactly(true);
+    }
+
+    @Test
+    void deleteFinishedKeepsRecentAndActiveJobs() {
+        UUID old = enqueue(3);
+        UUID recent = enqueue(3);
+        UUID queued = enqueue(3);
+        repository.claim("node-a", 2, LEASE_MS);
+        repository.complete(old, "node-a", "{}");
+        repository.fail(recent, "node-a", "erro");
+        jdbcTemplate.update("UPDATE import_jobs SET updated_at = now() - INTERVAL '2 hours' WHERE id = ?", old);
+
+        assertThat(repository.deleteFinished(60, 60)).isEqualTo(1);
+        assertThat(repository.findByIdAndStudent(old, studentId)).isEmpty();
+        assertThat(repository.findByIdAndStudent(recent, studentId)).isPresent();
+        assertThat(repository.findByIdAndStudent(queued, studentId)).isPresent();
+    }
+
+    private UUID enqueue(int maxAttempts) {
+        UUID id = UUID.randomUUID();
+        assertThat(repository.insert(id, studentId, ImportMode.CREATE, maxAttempts, pdf, 100)).isTrue();
+        return id;
+    }
+
+    private static long size(InputStream in) {
+        try {
+            return in.readAllBytes().length;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void expireLease(UUID id) {
+        jdbcTemplate.update("UPDATE import_jobs SET lease_expires_at = now() - INTERVAL '1 second' WHERE id = ?", id);
+    }
+
+    private ImportJobRepository.ImportJobRecord job(UUID id) {
+        Optional<ImportJobRepository.ImportJobRecord> job = repository.findByIdAndStudent(id, studentId);
+        assertThat(job).isPresent();
+        return job.get();
+    }
+}
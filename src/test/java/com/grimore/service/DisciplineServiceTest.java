@@ -0,0 +1,175 @@
+package com.grimore.service;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.dto.response.BatchUpsertReportDTO;
+import com.grimore.dto.response.DisciplineDTO;
+import com.grimore.enums.WorkloadHours;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.mapper.DisciplineMapperImpl;
+import com.grimore.model.Discipline;
+import com.grimore.model.Student;
+import com.grimore.repository.DisciplineRepository;
+import com.grimore.repository.DisciplineUpsertRepository;
+import com.grimore.repository.StudentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DisciplineServiceTest {
+
+    private static final int STUDENT = 7;
+
+    private final FakeDisciplineUpsertRepository upsertRepository = new FakeDisciplineUpsertRepository();
+    private DisciplineService service;
+
+    @BeforeEach
+    void setUp() {
+        Student student = Student.builder().id(STUDENT).build();
+        StudentRepository studentRepository = mock(StudentRepository.class);
+        when(studentRepository.findById(STUDENT)).thenReturn(Optional.of(student));
+
+        // as consultas JPA leem o mesmo "banco" em memória do upsert
+        DisciplineRepository disciplineRepository = mock(DisciplineRepository.class);
+        when(disciplineRepository.findByStudentIdAndActiveTrue(STUDENT))
+                .thenAnswer(invocation -> upsertRepository.all(student));
+        when(disciplineRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Discipline> found = new ArrayList<>();
+            Iterable<Integer> ids = invocation.getArgument(0);
+            ids.forEach(id -> upsertRepository.all(student).stream()
+                    .filter(discipline -> discipline.getId().equals(id))
+                    .forEach(found::add));
+            return found;
+        });
+
+        service = new DisciplineService(disciplineRepository, upsertRepository, studentRepository,
+                new DisciplineMapperImpl());
+    }
+
+    @Test
+    void reportsCreatedUpdatedAndUnchangedDisciplines() {
+        service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34"),
+                discipline("DIM0120", "CALCULO II", "35T12")));
+
+        BatchUpsertReportDTO report = service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34"),
+                discipline("dim0120 ", "CALCULO II", "35T34"),
+                discipline("ECT1203", "VETORES E GEOMETRIA ANALITICA", "6M12")));
+
+        assertThat(report.created()).extracting(DisciplineDTO::code).containsExactly("ECT1203");
+        assertThat(report.updatedCount()).isEqualTo(1);
+        assertThat(report.unchangedCount()).isEqualTo(1);
+        assertThat(report.errors()).isEmpty();
+        assertThat(upsertRepository.stored.get("DIM0120").scheduleCode()).isEqualTo("35T34");
+    }
+
+    @Test
+    void rejectsRowsThatClashWithAnotherStoredDiscipline() {
+        service.upsertBatchFromExtracted(STUDENT, List.of(discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34")));
+
+        BatchUpsertReportDTO report = service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("DIM0120", "CALCULO II", "4M3"),
+                discipline("ECT1203", "VETORES E GEOMETRIA ANALITICA", "35M12")));
+
+        assertThat(report.created()).extracting(DisciplineDTO::code).containsExactly("ECT1203");
+        assertThat(report.errors()).singleElement().asString()
+                .startsWith("Disciplina 1 (DIM0120)")
+                .contains("IMD0030");
+        assertThat(upsertRepository.stored).doesNotContainKey("DIM0120");
+    }
+
+    @Test
+    void rowsOfTheSameBatchAreCheckedAgainstEachOther() {
+        BatchUpsertReportDTO report = service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34"),
+                discipline("DIM0120", "CALCULO II", "2M4")));
+
+        assertThat(report.created()).extracting(DisciplineDTO::code).containsExactly("IMD0030");
+        assertThat(report.errors()).singleElement().asString().startsWith("Disciplina 2 (DIM0120)");
+    }
+
+    @Test
+    void aDisciplineDoesNotClashWithItsOwnOldSchedule() {
+        service.upsertBatchFromExtracted(STUDENT, List.of(discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34")));
+
+        // o horário novo divide slots com o antigo da mesma disciplina e com nenhum outro
+        BatchUpsertReportDTO report = service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "246M34")));
+
+        assertThat(report.updatedCount()).isEqualTo(1);
+        assertThat(report.errors()).isEmpty();
+    }
+
+    @Test
+    void failsWithTheCollectedErrorsWhenNothingIsAccepted() {
+        service.upsertBatchFromExtracted(STUDENT, List.of(discipline("IMD0030", "LINGUAGEM DE PROGRAMACAO I", "24M34")));
+
+        assertThatThrownBy(() -> service.upsertBatchFromExtracted(STUDENT, List.of(
+                discipline("DIM0120", "CALCULO II", "2M3"),
+                discipline("ECT1203", "", "6M12"))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Disciplina 1 (DIM0120)")
+                .hasMessageContaining("Disciplina 2 (ECT1203)");
+        assertThat(upsertRepository.calls).isEqualTo(1);
+    }
+
+    private static ExtractedDisciplineDTO discipline(String code, String name, String schedule) {
+        return new ExtractedDisciplineDTO(name, code, schedule, null, null);
+    }
+
+    /** Upsert em memória com a mesma regra do SQL: insere código novo, atualiza o que mudou, ignora o idêntico. */
+    private static class FakeDisciplineUpsertRepository extends DisciplineUpsertRepository {
+
+        final Map<String, ExtractedDisciplineDTO> stored = new LinkedHashMap<>();
+        final Map<String, Integer> ids = new LinkedHashMap<>();
+        int calls;
+
+        FakeDisciplineUpsertRepository() {
+            super(null);
+        }
+
+        @Override
+        public UpsertResult upsert(Integer studentId, Collection<ExtractedDisciplineDTO> disciplines) {
+            calls++;
+            List<Integer> inserted = new ArrayList<>();
+            List<Integer> updated = new ArrayList<>();
+            for (ExtractedDisciplineDTO dto : disciplines) {
+                ExtractedDisciplineDTO previous = stored.put(dto.code(), dto);
+                if (previous == null) {
+                    ids.put(dto.code(), ids.size() + 1);
+                    inserted.add(ids.get(dto.code()));
+                } else if (!Objects.equals(previous, dto)) {
+                    updated.add(ids.get(dto.code()));
+                }
+            }
+            return new UpsertResult(inserted, updated);
+        }
+
+        List<Discipline> all(Student student) {
+            return stored.values().stream()
+                    .map(dto -> Discipline.builder()
+                            .id(ids.get(dto.code()))
+                            .student(student)
+                            .name(dto.name())
+                            .code(dto.code())
+                            .scheduleCode(dto.scheduleCode())
+                            .location(dto.location())
+                            .workloadHours(dto.workloadHours() != null ? dto.workloadHours() : WorkloadHours.H30)
+                            .build())
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.response.AiUsageDayDTO;
+import com.grimore.exception.ratelimit.AiQuotaExceededException;
+import com.grimore.repository.AiUsageRepository;
+import com.grimore.repository.AiUsageRepository.UsageDelta;
+import com.grimore.repository.AiUsageRepository.UsageTotals;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class AiUsageLedgerTest {
+
+    private static final int STUDENT = 42;
+    private static final EnrollmentPdfAiExtractor.ModelTier FAST = EnrollmentPdfAiExtractor.ModelTier.FAST;
+
+    private final TestClock clock = new TestClock(LocalDate.of(2026, 1, 10));
+    private final FakeAiUsageRepository repository = new FakeAiUsageRepository();
+
+    @Test
+    void rollsTheDailyQuotaAtMidnightAndTheMonthlyOneAtTheTurnOfTheMonth() {
+        AiUsageLedger ledger = ledger(100, 150);
+
+        ledger.record(STUDENT, FAST, 80, 20);
+        assertThatThrownBy(() -> ledger.checkQuota(STUDENT))
+                .isInstanceOf(AiQuotaExceededException.class)
+                .hasMessageContaining("diário");
+
+        clock.set(LocalDate.of(2026, 1, 11));
+        assertThatCode(() -> ledger.checkQuota(STUDENT)).doesNotThrowAnyException();
+
+        ledger.record(STUDENT, FAST, 60, 0);
+        assertThatThrownBy(() -> ledger.checkQuota(STUDENT))
+                .isInstanceOf(AiQuotaExceededException.class)
+                .hasMessageContaining("mensal");
+
+        clock.set(LocalDate.of(2026, 2, 1));
+        assertThatCode(() -> ledger.checkQuota(STUDENT)).doesNotThrowAnyException();
+        assertThat(ledger.findUsage(STUDENT, 1).monthTokens()).isZero();
+    }
+
+    @Test
+    void reconcileAddsOtherNodesUsageAndKeepsIncrementsRecordedDuringTheFlush() {
+        AiUsageLedger ledger = ledger(0, 0);
+        ledger.record(STUDENT, FAST, 30, 0);
+
+        // chamada que termina enquanto o lote é gravado: o banco relido ainda não a tem
+        repository.duringWrite = () -> ledger.record(STUDENT, FAST, 5, 0);
+        // 30 deste nó + 100 de outro nó
+        repository.totals = List.of(new UsageTotals(STUDENT, 130, 130, 130, 130));
+        ledger.flush();
+
+        assertThat(repository.batches).hasSize(1);
+        assertThat(ledger.findUsage(STUDENT, 1).todayTokens()).isEqualTo(135);
+        assertThat(ledger.findUsage(STUDENT, 1).todayCostUsd()).isEqualByComparingTo("0.000135");
+    }
+
+    @Test
+    void reconcileNeverLowersTheLocalTotals() {
+        AiUsageLedger ledger = ledger(0, 0);
+        ledger.record(STUDENT, FAST, 40, 0);
+
+        // releitura atrasada (ex: réplica de leitura) com menos do que este nó já gravou
+        repository.totals = List.of(new UsageTotals(STUDENT, 10, 10, 10, 10));
+        ledger.flush();
+
+        assertThat(ledger.findUsage(STUDENT, 1).todayTokens()).isEqualTo(40);
+    }
+
+    @Test
+    void restoresAFailedBatchAndWritesEachDayOnTheNextFlush() {
+        AiUsageLedger ledger = ledger(0, 0);
+        ledger.record(STUDENT, FAST, 40, 0);
+        clock.set(LocalDate.of(2026, 1, 11));
+        ledger.record(STUDENT, FAST, 10, 0);
+        ledger.record(STUDENT, FAST, 5, 0);
+
+        repository.failWrites = true;
+        ledger.flush();
+        assertThat(repository.batches).isEmpty();
+
+        repository.failWrites = false;
+        repository.totals = List.of(new UsageTotals(STUDENT, 15, 15, 55, 55));
+        ledger.flush();
+
+        assertThat(repository.batches).hasSize(1);
+        assertThat(repository.batches.getFirst())
+                .extracting(UsageDelta::day, UsageDelta::promptTokens, UsageDelta::calls)
+                .containsExactlyInAnyOrder(
+                        tuple(LocalDate.of(2026, 1, 10), 40L, 1),
+                        tuple(LocalDate.of(2026, 1, 11), 15L, 2));
+
+        // nada pendente: o dia anterior sai da lista e não há novo lote
+        ledger.flush();
+        assertThat(repository.batches).hasSize(1);
+        assertThat(ledger.findUsage(STUDENT, 1))
+                .extracting("todayTokens", "monthTokens")
+                .containsExactly(15L, 55L);
+    }
+
+    @Test
+    void pendingUsageOfThePreviousMonthDoesNotCountTowardsTheNewOne() {
+        AiUsageLedger ledger = ledger(0, 0);
+        clock.set(LocalDate.of(2026, 1, 31));
+        ledger.record(STUDENT, FAST, 70, 0);
+
+        clock.set(LocalDate.of(2026, 2, 1));
+        // o uso de janeiro é gravado na virada, mas a releitura do mês novo não o traz
+        repository.duringWrite = () -> ledger.record(STUDENT, FAST, 3, 0);
+        ledger.flush();
+
+        assertThat(repository.batches.getFirst())
+                .extracting(UsageDelta::day)
+                .containsExactly(LocalDate.of(2026, 1, 31));
+        assertThat(ledger.findUsage(STUDENT, 1))
+                .extracting("todayTokens", "monthTokens")
+                .containsExactly(3L, 3L);
+    }
+
+    private AiUsageLedger ledger(long dailyTokens, long monthlyTokens) {
+        // US$ 1 por milhão de tokens: 1 micro-dólar por token
+        return new AiUsageLedger(repository, new SimpleMeterRegistry(), clock,
+                dailyTokens, monthlyTokens, 0, 0, 1, 1, 1, 1);
+    }
+
+    private static final class FakeAiUsageRepository extends AiUsageRepository {
+
+        private final List<List<UsageDelta>> batches = new ArrayList<>();
+        private List<UsageTotals> totals = List.of();
+        private boolean failWrites;
+        private Runnable duringWrite = () -> {};
+
+        private FakeAiUsageRepository() {
+            super(null);
+        }
+
+        @Override
+        public void addAll(List<UsageDelta> deltas) {
+            if (failWrites) {
+                throw new DataAccessResourceFailureException("banco indisponível");
+            }
+            batches.add(List.copyOf(deltas));
+            Runnable action = duringWrite;
+            duringWrite = () -> {};
+            action.run();
+        }
+
+        @Override
+        public List<UsageTotals> findTotals(LocalDate today) {
+            return totals;
+        }
+
+        @Override
+        public List<AiUsageDayDTO> findByStudent(Integer studentId, LocalDate from) {
+            return List.of();
+        }
+    }
+
+    private static final class TestClock extends Clock {
+
+        private Instant now;
+
+        private TestClock(LocalDate day) {
+            set(day);
+        }
+
+        void set(LocalDate day) {
+            now = day.atTime(12, 0).toInstant(ZoneOffset.UTC);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
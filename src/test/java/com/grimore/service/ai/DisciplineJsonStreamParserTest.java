@@ -0,0 +1,73 @@
+package com.grimore.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DisciplineJsonStreamParserTest {
+
+    private final List<ExtractedDisciplineDTO> received = new ArrayList<>();
+    private final DisciplineJsonStreamParser parser = new DisciplineJsonStreamParser(new ObjectMapper(), received::add);
+
+    @Test
+    void emitsObjectsSplitAcrossFragments() {
+        String json = """
+                ```json
+                {"disciplines": [
+                 {"name": "Cálculo II", "code": "DIM0120", "scheduleCode": "35T12", "location": "B102", "workloadHours": "H60"},
+                 {"name": "Vetores", "code": "ECT1203", "scheduleCode": "24M34", "location": null, "workloadHours": "null"}
+                ]}
+                ```""";
+
+        // um caractere por fragmento: nenhuma fronteira de fragmento pode quebrar o parser
+        for (int i = 0; i < json.length(); i++) {
+            parser.feed(json.substring(i, i + 1));
+        }
+
+        assertThat(received).extracting(ExtractedDisciplineDTO::code).containsExactly("DIM0120", "ECT1203");
+        assertThat(received.get(1).workloadHours()).isNull();
+    }
+
+    @Test
+    void emitsEachObjectAsSoonAsItCloses() {
+        parser.feed("{\"disciplines\": [{\"name\": \"Cálculo II\", \"code\": \"DIM0120\", \"scheduleCode\": \"35T12\"}");
+
+        assertThat(received).hasSize(1);
+
+        parser.feed(", {\"name\": \"Vetores\", \"code\": \"ECT1203\"");
+
+        assertThat(received).hasSize(1);
+    }
+
+    @Test
+    void ignoresQuotesAndBracesInsideStrings() {
+        parser.feed("{\"disciplines\": [{\"name\": \"Tópicos \\\"Especiais\\\" {em} [IA]\", ");
+        parser.feed("\"code\": \"IMD1101\", \"location\": \"Sala \\\\\", \"scheduleCode\": \"6T12\"}, ");
+        parser.feed("{\"name\": \"Vetores\", \"code\": \"ECT1203\", \"scheduleCode\": \"24M34\"}]}");
+
+        assertThat(received).extracting(ExtractedDisciplineDTO::name)
+                .containsExactly("Tópicos \"Especiais\" {em} [IA]", "Vetores");
+        assertThat(received.getFirst().location()).isEqualTo("Sala \\");
+    }
+
+    @Test
+    void keepsCompleteObjectsOfATruncatedStream() {
+        parser.feed("{\"disciplines\": [{\"name\": \"Cálculo II\", \"code\": \"DIM0120\", \"scheduleCode\": \"35T12\"}, ");
+        parser.feed("{\"name\": \"Vetores\", \"code\": \"ECT12");
+
+        assertThat(received).extracting(ExtractedDisciplineDTO::code).containsExactly("DIM0120");
+    }
+
+    @Test
+    void skipsMalformedItemsAndKeepsTheRest() {
+        parser.feed("{\"disciplines\": [{\"name\": \"Cálculo II\", \"code\": 12 34}, ");
+        parser.feed("{\"name\": \"Vetores\", \"code\": \"ECT1203\", \"scheduleCode\": \"24M34\"}]}");
+
+        assertThat(received).extracting(ExtractedDisciplineDTO::code).containsExactly("ECT1203");
+    }
+}
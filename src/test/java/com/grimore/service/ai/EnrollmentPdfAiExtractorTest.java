@@ -0,0 +1,105 @@
+package com.grimore.service.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.repository.AiUsageRepository;
+import com.grimore.service.imports.ImportMetrics;
+import com.grimore.support.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrollmentPdfAiExtractorTest {
+
+    private static final String TEXT = """
+            IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34
+            Local: Setor de Aulas IV - A308
+            DIM0120 - CALCULO II 02 MATRICULADO 35T12
+            Local: Setor de Aulas II - B102
+            """;
+
+    // o modelo repete a primeira disciplina, com o código escrito de outro jeito
+    private static final String REPEATED_ROW = """
+            {"disciplines": [
+             {"name": "Linguagem de Programação I", "code": "IMD0030", "scheduleCode": "24M34",
+              "location": "A308", "workloadHours": "H60"},
+             {"name": "Cálculo II", "code": "DIM0120", "scheduleCode": "35T12",
+              "location": "B102", "workloadHours": "H60"},
+             {"name": "Linguagem de Programação I", "code": "imd 0030", "scheduleCode": "24M34",
+              "location": "A308", "workloadHours": "H60"}
+            ]}
+            """;
+
+    private StubOpenAiServer stub;
+    private EnrollmentPdfAiExtractor extractor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubOpenAiServer().respondWith(REPEATED_ROW).streamChunkChars(16);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        OpenAiChatModel model = OpenAiChatModel.builder()
+                .openAiApi(OpenAiApi.builder().baseUrl(stub.baseUrl()).apiKey("test").build())
+                .defaultOptions(OpenAiChatOptions.builder().model("gpt-4o").build())
+                .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                .build();
+
+        extractor = new EnrollmentPdfAiExtractor(
+                ChatClient.create(model),
+                new EnrollmentPromptReducer(meterRegistry),
+                new LlmCallGuard(meterRegistry, 4, 0, 1_000, 30_000, 5, 10_000),
+                new EnrollmentRowRepairer(meterRegistry),
+                new ImportMetrics(meterRegistry),
+                // sem estudante (null) o ledger não toca no repositório
+                new AiUsageLedger(new AiUsageRepository(null), meterRegistry, 0, 0, 0, 0, 0, 0, 0, 0),
+                new ObjectMapper(),
+                12_000, 2, 4,
+                "gpt-4o-mini", 0.0, "gpt-4o", 0.1,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void streamingForwardsEachCodeOnceOnTheCallerThread() {
+        List<String> codes = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        List<ExtractedDisciplineDTO> result = extractor.extractStreaming(TEXT, null, dto -> {
+            codes.add(EnrollmentRowValidator.normalizeCode(dto.code()));
+            threads.add(Thread.currentThread());
+        });
+
+        assertThat(codes).containsExactly("IMD0030", "DIM0120");
+        assertThat(result).hasSize(2);
+        // o consumidor grava no banco e no SSE: roda na thread de quem chamou, fora do prazo do
+        // LlmCallGuard, do event loop do Reactor Netty e do pool compartilhado do Reactor
+        assertThat(threads).containsOnly(Thread.currentThread());
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotEscalateForCodesMentionedInsideARow() {
+        String text = TEXT + "Observação: equivalente a ECT1203 - VETORES\n";
+
+        List<ExtractedDisciplineDTO> result = extractor.extract(text, null);
+
+        assertThat(result).extracting(ExtractedDisciplineDTO::code).containsExactly("IMD0030", "DIM0120");
+        // o modelo rápido trouxe todas as disciplinas: a menção a ECT1203 não custa um pedido ao modelo forte
+        assertThat(stub.requestCount()).isEqualTo(1);
+    }
+}
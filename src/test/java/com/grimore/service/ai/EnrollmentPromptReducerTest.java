@@ -0,0 +1,70 @@
+package com.grimore.service.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrollmentPromptReducerTest {
+
+    private final EnrollmentPromptReducer reducer = new EnrollmentPromptReducer(new SimpleMeterRegistry());
+
+    @Test
+    void keepsLinesRepeatedBetweenDisciplines() {
+        String text = """
+                Componente Curricular Turma Status Horário
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I 01
+                MATRICULADO
+                Prof. Ana Souza
+                24M34
+                DIM0120 - CALCULO II 02
+                MATRICULADO
+                Prof. Ana Souza
+                24M34
+                ECT1203 - VETORES 03
+                """;
+
+        String reduced = reducer.reduce(text);
+
+        assertThat(reduced.lines().filter("MATRICULADO"::equals)).hasSize(2);
+        assertThat(reduced.lines().filter("Prof. Ana Souza"::equals)).hasSize(2);
+        assertThat(reduced.lines().filter("24M34"::equals)).hasSize(2);
+    }
+
+    @Test
+    void dropsPageHeaderRepeatedInsideTheTable() {
+        String text = """
+                Comprovante de Matrícula
+                Componente Curricular Turma Status Horário
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34
+                Local: Setor de Aulas IV - A308
+                Comprovante de Matrícula
+                Componente Curricular Turma Status Horário
+                DIM0120 - CALCULO II 02 MATRICULADO 35T12
+                Local: Setor de Aulas II - B102
+                """;
+
+        String reduced = reducer.reduce(text);
+
+        assertThat(reduced).doesNotContain("Comprovante de Matrícula");
+        // o cabeçalho da tabela fica uma única vez, antes da primeira disciplina
+        assertThat(reduced.lines().filter(line -> line.startsWith("Componente Curricular"))).hasSize(1);
+        assertThat(reduced).contains("IMD0030", "DIM0120", "Local: Setor de Aulas II - B102");
+    }
+
+    @Test
+    void dropsPersonalDataAndKeepsEveryCode() {
+        String text = """
+                Nome: Fulano de Tal
+                CPF: 000.000.000-00
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34
+                Página 1 de 2
+                DIM0120 - CALCULO II 02 MATRICULADO 35T12
+                """;
+
+        String reduced = reducer.reduce(text);
+
+        assertThat(reduced).doesNotContain("CPF", "Fulano", "Página");
+        assertThat(reduced).contains("IMD0030", "DIM0120");
+    }
+}
@@ -0,0 +1,60 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrollmentRowRepairerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EnrollmentRowRepairer repairer = new EnrollmentRowRepairer(meterRegistry);
+
+    @Test
+    void returnsValidRowsUntouched() {
+        ExtractedDisciplineDTO dto = row("IMD0030", "24M34");
+
+        assertThat(repairer.repair(dto)).isSameAs(dto);
+        assertThat(repairer.repair(null)).isNull();
+        assertThat(counter("attempted")).isZero();
+    }
+
+    @Test
+    void fixesOcrConfusionsByPositionInTheCode() {
+        assertThat(EnrollmentRowRepairer.repairCode("1MD 0O3O")).isEqualTo("IMD0030");
+        assertThat(EnrollmentRowRepairer.repairCode("d1m-0l2O")).isEqualTo("DIM0120");
+        assertThat(EnrollmentRowRepairer.repairCode("ECT.12B3")).isEqualTo("ECT1283");
+        // sem 7 caracteres não dá para saber a posição: só limpa
+        assertThat(EnrollmentRowRepairer.repairCode(" IMD 003 ")).isEqualTo("IMD003");
+    }
+
+    @Test
+    void normalizesScheduleCodes() {
+        assertThat(EnrollmentRowRepairer.repairScheduleCode("24 M 12")).isEqualTo("24M12");
+        assertThat(EnrollmentRowRepairer.repairScheduleCode("35T12 (13:00 - 14:40)")).isEqualTo("35T12");
+        assertThat(EnrollmentRowRepairer.repairScheduleCode("246v12")).isEqualTo("246T12");
+        assertThat(EnrollmentRowRepairer.repairScheduleCode("Z4M3S")).isEqualTo("24M35");
+        assertThat(EnrollmentRowRepairer.repairScheduleCode("24M12, 35T34")).isEqualTo("24M12 35T34");
+    }
+
+    @Test
+    void countsAttemptsAndSuccessfulRepairs() {
+        ExtractedDisciplineDTO fixed = repairer.repair(new ExtractedDisciplineDTO(
+                "  Cálculo   II ", "DIM O120", "35 T 12", " B102 ", null));
+        ExtractedDisciplineDTO broken = repairer.repair(row("XX", "24M34"));
+
+        assertThat(fixed).isEqualTo(new ExtractedDisciplineDTO("Cálculo II", "DIM0120", "35T12", "B102", null));
+        assertThat(EnrollmentRowValidator.isValid(broken)).isFalse();
+        assertThat(counter("attempted")).isEqualTo(2);
+        assertThat(counter("repaired")).isEqualTo(1);
+    }
+
+    private double counter(String outcome) {
+        return meterRegistry.counter("grimore.ai.rows.repair", "outcome", outcome).count();
+    }
+
+    private static ExtractedDisciplineDTO row(String code, String scheduleCode) {
+        return new ExtractedDisciplineDTO("Linguagem de Programação I", code, scheduleCode, "A308", null);
+    }
+}
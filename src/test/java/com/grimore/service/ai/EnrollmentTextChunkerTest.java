@@ -0,0 +1,71 @@
+package com.grimore.service.ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrollmentTextChunkerTest {
+
+    @Test
+    void keepsShortTextInOneChunk() {
+        String text = row(1);
+
+        assertThat(EnrollmentTextChunker.split(text, 1_000, 2)).containsExactly(text);
+    }
+
+    @Test
+    void splitsOnlyAtRowBoundariesAndRepeatsOverlapRows() {
+        String text = String.join("\n", IntStream.rangeClosed(1, 6).mapToObj(EnrollmentTextChunkerTest::row).toList());
+        int rowLength = row(1).length() + 1;
+
+        List<String> chunks = EnrollmentTextChunker.split(text, rowLength * 3, 1);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        for (String chunk : chunks) {
+            // nenhuma disciplina cortada: todo bloco começa em um código e termina com o local da turma
+            assertThat(chunk).startsWith("IMD");
+            assertThat(chunk.lines().toList().getLast()).startsWith("Local:");
+        }
+        for (int i = 1; i < chunks.size(); i++) {
+            List<String> previous = chunks.get(i - 1).lines().toList();
+            List<String> current = chunks.get(i).lines().toList();
+            // o bloco seguinte repete a última disciplina do anterior (código + local)
+            assertThat(current.subList(0, 2)).isEqualTo(previous.subList(previous.size() - 2, previous.size()));
+        }
+        // toda disciplina aparece em algum bloco
+        IntStream.rangeClosed(1, 6).forEach(i ->
+                assertThat(chunks).anyMatch(chunk -> chunk.contains(code(i))));
+    }
+
+    @Test
+    void keepsARowLongerThanTheLimitWhole() {
+        String longRow = "IMD0001 - " + "DISCIPLINA MUITO LONGA ".repeat(20) + "01 MATRICULADO 24M34";
+        String text = longRow + "\n" + row(2) + "\n" + row(3);
+
+        List<String> chunks = EnrollmentTextChunker.split(text, 100, 1);
+
+        assertThat(chunks.getFirst()).isEqualTo(longRow);
+        assertThat(chunks).anyMatch(chunk -> chunk.contains(code(3)));
+    }
+
+    @Test
+    void alwaysAdvancesWhenOverlapCoversTheWholeChunk() {
+        String text = String.join("\n", IntStream.rangeClosed(1, 5).mapToObj(EnrollmentTextChunkerTest::row).toList());
+
+        List<String> chunks = EnrollmentTextChunker.split(text, row(1).length() + 1, 3);
+
+        // uma disciplina por bloco, sem laço infinito apesar da sobreposição maior que o bloco
+        assertThat(chunks).hasSize(5);
+    }
+
+    private static String row(int i) {
+        return code(i) + " - DISCIPLINA " + i + " 01 MATRICULADO 24M34\nLocal: Setor de Aulas " + i;
+    }
+
+    private static String code(int i) {
+        return "IMD%04d".formatted(i);
+    }
+}
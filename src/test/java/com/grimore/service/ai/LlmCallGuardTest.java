@@ -0,0 +1,182 @@
+package com.grimore.service.ai;
+
+import com.grimore.dto.response.ExtractedDisciplinesResponse;
+import com.grimore.exception.server.ServiceUnavailableException;
+import com.grimore.support.StubOpenAiServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LlmCallGuardTest {
+
+    private static final String ONE_DISCIPLINE = """
+            {"disciplines": [{"name": "Lógica de Programação", "code": "IMD1012",
+             "scheduleCode": "24M12", "location": "A101", "workloadHours": "H60"}]}
+            """;
+
+    private StubOpenAiServer stub;
+    private ChatClient chatClient;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = new StubOpenAiServer().respondWith(ONE_DISCIPLINE);
+        meterRegistry = new SimpleMeterRegistry();
+
+        OpenAiChatModel model = OpenAiChatModel.builder()
+                .openAiApi(OpenAiApi.builder().baseUrl(stub.baseUrl()).apiKey("test").build())
+                .defaultOptions(OpenAiChatOptions.builder().model("gpt-4o").build())
+                .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                .build();
+        chatClient = ChatClient.create(model);
+
+        // aquecimento fora do guard: a primeira chamada carrega classes, gera o schema JSON e abre
+        // a conexão, o que em máquina lenta estoura os prazos curtos dos testes de sucesso
+        extract();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void passesThroughSuccessfulCalls() {
+        LlmCallGuard guard = guard(2, 0, 2_000, 5, 10_000);
+
+        ExtractedDisciplinesResponse response = guard.call(this::extract);
+
+        assertThat(response.getDisciplines()).hasSize(1);
+        assertThat(guard.getInFlight()).isZero();
+        assertThat(guard.getState()).isEqualTo(LlmCallGuard.State.CLOSED);
+    }
+
+    @Test
+    void failsSlowCallsAtTheDeadline() {
+        stub.latency(2_000);
+        LlmCallGuard guard = guard(2, 0, 200, 5, 10_000);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> guard.call(this::extract))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(1_500);
+        assertThat(meterRegistry.counter("grimore.ai.calls.timeouts").count()).isEqualTo(1);
+    }
+
+    @Test
+    void opensBreakerAfterConsecutiveFailuresAndFailsFast() {
+        stub.status(500);
+        LlmCallGuard guard = guard(2, 0, 2_000, 2, 10_000);
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> guard.call(this::extract))
+                    .isInstanceOf(ServiceUnavailableException.class);
+        }
+        assertThat(guard.getState()).isEqualTo(LlmCallGuard.State.OPEN);
+
+        int before = stub.requestCount();
+        assertThatThrownBy(() -> guard.call(this::extract))
+                .isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat(stub.requestCount()).isEqualTo(before);
+        assertThat(meterRegistry.counter("grimore.ai.calls.rejected", "reason", "breaker").count()).isEqualTo(1);
+    }
+
+    @Test
+    void closesBreakerAfterSuccessfulTrialCall() throws Exception {
+        stub.status(500);
+        LlmCallGuard guard = guard(2, 0, 2_000, 1, 100);
+
+        assertThatThrownBy(() -> guard.call(this::extract))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(guard.getState()).isEqualTo(LlmCallGuard.State.OPEN);
+
+        Thread.sleep(150);
+        stub.status(200);
+
+        assertThat(guard.call(this::extract).getDisciplines()).hasSize(1);
+        assertThat(guard.getState()).isEqualTo(LlmCallGuard.State.CLOSED);
+    }
+
+    @Test
+    void rejectsCallsBeyondBulkheadCapacity() throws Exception {
+        stub.latency(500);
+        LlmCallGuard guard = guard(1, 0, 2_000, 5, 10_000);
+        CountDownLatch started = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<ExtractedDisciplinesResponse> first = executor.submit(() -> guard.call(() -> {
+                started.countDown();
+                return extract();
+            }));
+            started.await();
+
+            assertThatThrownBy(() -> guard.call(this::extract))
+                    .isInstanceOf(ServiceUnavailableException.class);
+            assertThat(first.get().getDisciplines()).hasSize(1);
+        }
+
+        assertThat(meterRegistry.counter("grimore.ai.calls.rejected", "reason", "bulkhead").count()).isEqualTo(1);
+        assertThat(guard.getState()).isEqualTo(LlmCallGuard.State.CLOSED);
+    }
+
+    @Test
+    void abandonedCallKeepsItsPermitUntilItReallyEnds() throws Exception {
+        LlmCallGuard guard = guard(1, 0, 200, 5, 10_000);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // troca que ignora a interrupção do prazo e só termina quando liberada
+        assertThatThrownBy(() -> guard.call(() -> {
+            while (true) {
+                try {
+                    release.await();
+                    return "tarde demais";
+                } catch (InterruptedException ignored) {
+                    // continua esperando, como uma leitura de socket que não responde à interrupção
+                }
+            }
+        })).isInstanceOf(ServiceUnavailableException.class);
+
+        assertThat(guard.getInFlight()).isEqualTo(1);
+        assertThatThrownBy(() -> guard.call(this::extract))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("Muitas extrações");
+
+        release.countDown();
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (guard.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(guard.getInFlight()).isZero();
+        assertThat(guard.call(this::extract).getDisciplines()).hasSize(1);
+    }
+
+    private ExtractedDisciplinesResponse extract() {
+        return chatClient.prompt()
+                .user("TEXTO EXTRAÍDO DO PDF")
+                .call()
+                .entity(ExtractedDisciplinesResponse.class);
+    }
+
+    private LlmCallGuard guard(int maxConcurrent, int queueCapacity, long callTimeoutMs,
+                               int failureThreshold, long openDurationMs) {
+        return new LlmCallGuard(meterRegistry, maxConcurrent, queueCapacity, 1_000,
+                callTimeoutMs, failureThreshold, openDurationMs);
+    }
+}
@@ -0,0 +1,96 @@
+package com.grimore.service.imports;
+
+import com.grimore.exception.ratelimit.RateLimitExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportExecutorTest {
+
+    private final ImportExecutor executor = new ImportExecutor(2, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger started = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void runsUpToMaxConcurrencyQueuesTheRestAndRejectsBeyondTheQueue() throws Exception {
+        assertThat(executor.getAvailableSlots()).isEqualTo(2);
+
+        executor.execute(this::block);
+        executor.execute(this::block);
+        executor.execute(this::block);
+
+        await(() -> started.get() == 2 && executor.getQueuedCount() == 1);
+        assertThat(executor.getActiveCount()).isEqualTo(2);
+        assertThat(executor.getAvailableSlots()).isZero();
+        assertThatThrownBy(() -> executor.execute(this::block)).isInstanceOf(RateLimitExceededException.class);
+
+        release.countDown();
+        await(() -> started.get() == 3 && executor.getActiveCount() == 0);
+        assertThat(executor.getQueuedCount()).isZero();
+        assertThat(executor.getAvailableSlots()).isEqualTo(2);
+    }
+
+    @Test
+    void failingTaskGivesItsSlotBack() throws Exception {
+        executor.execute(() -> {
+            throw new IllegalStateException("falhou");
+        });
+
+        await(() -> executor.getAvailableSlots() == 2);
+        executor.execute(started::incrementAndGet);
+        await(() -> started.get() == 1);
+    }
+
+    @Test
+    void shutdownWaitsForQueuedTasks() {
+        AtomicInteger finished = new AtomicInteger();
+        CountDownLatch gate = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            executor.execute(() -> {
+                awaitQuietly(gate);
+                finished.incrementAndGet();
+            });
+        }
+
+        gate.countDown();
+        executor.shutdown();
+
+        assertThat(finished).hasValue(3);
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RuntimeException.class);
+        assertThat(executor.getAvailableSlots()).isEqualTo(2);
+    }
+
+    private void block() {
+        started.incrementAndGet();
+        awaitQuietly(release);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
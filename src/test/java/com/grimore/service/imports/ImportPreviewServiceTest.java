@@ -0,0 +1,213 @@
+package com.grimore.service.imports;
+
+import com.grimore.dto.request.CommitImportPreviewDTO;
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.dto.response.BatchCreateReportDTO;
+import com.grimore.dto.response.DisciplineDTO;
+import com.grimore.dto.response.ImportDisciplinesResultDTO;
+import com.grimore.dto.response.ImportPreviewDTO;
+import com.grimore.dto.response.ImportRejectionDTO;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.model.Student;
+import com.grimore.service.DisciplinePdfImportService;
+import com.grimore.service.DisciplineService;
+import com.grimore.service.cache.ExtractionCacheService;
+import com.grimore.service.pdf.PdfBlobStore;
+import com.grimore.service.pdf.PdfUploadStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ImportPreviewServiceTest {
+
+    private static final int STUDENT = 7;
+    private static final int OTHER_STUDENT = 8;
+    private static final Path SPOOLED = Path.of("comprovante.pdf");
+
+    private final DisciplinePdfImportService pdfImportService = mock(DisciplinePdfImportService.class);
+    private final PdfUploadStorage uploadStorage = mock(PdfUploadStorage.class);
+    private final FakeDisciplineService disciplineService = new FakeDisciplineService();
+    private ImportPreviewService service;
+
+    @BeforeEach
+    void setUp() {
+        ExtractionCacheService cacheService = mock(ExtractionCacheService.class);
+        when(cacheService.pdfHash(SPOOLED)).thenReturn("hash");
+        when(uploadStorage.spool(any())).thenReturn(SPOOLED);
+
+        service = new ImportPreviewService(pdfImportService, disciplineService, uploadStorage,
+                mock(PdfBlobStore.class), cacheService, 15, 100);
+        authenticate(STUDENT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void previewKeepsTheValidRowsAndReportsTheRejectedOnes() {
+        extracts(discipline("imd0030 ", "LINGUAGEM DE PROGRAMACAO I", "24M34"),
+                discipline("DIM0120", " ", "35T12"),
+                discipline("ECT1203", "VETORES E GEOMETRIA ANALITICA", "35M12"));
+
+        ImportPreviewDTO preview = service.preview(pdf());
+
+        assertThat(preview.extractedCount()).isEqualTo(3);
+        assertThat(preview.disciplines()).extracting(ExtractedDisciplineDTO::code).containsExactly("IMD0030", "ECT1203");
+        assertThat(preview.rejected()).extracting(ImportRejectionDTO::index, ImportRejectionDTO::code)
+                .containsExactly(tuple(2, "DIM0120"));
+        verify(uploadStorage).discard(SPOOLED);
+    }
+
+    @Test
+    void previewWithoutValidRowsFailsWithoutHandingOutAToken() {
+        extracts(discipline("DIM0120", "", "35T12"));
+
+        assertThatThrownBy(() -> service.preview(pdf())).isInstanceOf(BadRequestException.class);
+        verify(uploadStorage).discard(SPOOLED);
+    }
+
+    @Test
+    void commitPersistsThePreviewOnceAndConsumesTheToken() {
+        UUID token = previewOf("IMD0030", "ECT1203");
+
+        ImportDisciplinesResultDTO result = service.commit(token, null);
+
+        assertThat(result.extractedCount()).isEqualTo(2);
+        assertThat(result.createdCount()).isEqualTo(2);
+        assertThat(disciplineService.batches).singleElement().asList().hasSize(2);
+        assertThatThrownBy(() -> service.commit(token, null)).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(disciplineService.batches).hasSize(1);
+    }
+
+    @Test
+    void tokenOnlyWorksForTheStudentWhoCreatedIt() {
+        UUID token = previewOf("IMD0030");
+
+        authenticate(OTHER_STUDENT);
+        assertThatThrownBy(() -> service.commit(token, null)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> service.discard(token)).isInstanceOf(ResourceNotFoundException.class);
+
+        // as tentativas do outro estudante não consumiram o token
+        authenticate(STUDENT);
+        assertThat(service.commit(token, null).createdCount()).isEqualTo(1);
+    }
+
+    @Test
+    void commitImportsOnlyTheSelectedCodes() {
+        UUID token = previewOf("IMD0030", "DIM0120", "ECT1203");
+
+        ImportDisciplinesResultDTO result = service.commit(token, new CommitImportPreviewDTO(List.of(" imd 0030", "ect1203")));
+
+        assertThat(result.extractedCount()).isEqualTo(2);
+        assertThat(disciplineService.batches.getFirst()).extracting(ExtractedDisciplineDTO::code)
+                .containsExactly("IMD0030", "ECT1203");
+    }
+
+    @Test
+    void unknownSelectedCodesAreRejectedAndTheTokenIsKept() {
+        UUID token = previewOf("IMD0030", "DIM0120");
+
+        assertThatThrownBy(() -> service.commit(token, new CommitImportPreviewDTO(List.of("IMD0030", "XYZ9999", "ABC0001"))))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Códigos fora da pré-visualização: ABC0001, XYZ9999");
+
+        assertThat(disciplineService.batches).isEmpty();
+        assertThat(service.commit(token, new CommitImportPreviewDTO(List.of("DIM0120"))).createdCount()).isEqualTo(1);
+    }
+
+    @Test
+    void tokenIsRestoredWhenNothingCouldBeCreated() {
+        UUID token = previewOf("IMD0030", "DIM0120");
+        disciplineService.failNext = true;
+
+        assertThatThrownBy(() -> service.commit(token, new CommitImportPreviewDTO(List.of("IMD0030"))))
+                .isInstanceOf(BadRequestException.class);
+
+        // o estudante ajusta a seleção e confirma com o mesmo token
+        assertThat(service.commit(token, new CommitImportPreviewDTO(List.of("DIM0120"))).createdCount()).isEqualTo(1);
+        assertThatThrownBy(() -> service.commit(token, null)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void discardInvalidatesTheToken() {
+        UUID token = previewOf("IMD0030");
+
+        service.discard(token);
+
+        assertThatThrownBy(() -> service.commit(token, null)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    private UUID previewOf(String... codes) {
+        List<ExtractedDisciplineDTO> rows = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            rows.add(discipline(codes[i], "DISCIPLINA " + i, (i + 2) + "M12"));
+        }
+        extracts(rows.toArray(ExtractedDisciplineDTO[]::new));
+        return service.preview(pdf()).token();
+    }
+
+    private void extracts(ExtractedDisciplineDTO... rows) {
+        when(pdfImportService.extractDisciplines(eq(SPOOLED), eq("hash"), eq(STUDENT), any()))
+                .thenReturn(List.of(rows));
+    }
+
+    private static ExtractedDisciplineDTO discipline(String code, String name, String schedule) {
+        return new ExtractedDisciplineDTO(name, code, schedule, null, null);
+    }
+
+    private static MockMultipartFile pdf() {
+        return new MockMultipartFile("file", "comprovante.pdf", "application/pdf", "%PDF-1.7".getBytes());
+    }
+
+    private static void authenticate(int studentId) {
+        Student student = Student.builder().id(studentId).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(student, null, List.of()));
+    }
+
+    /** Registra os lotes confirmados; {@code failNext} simula um lote em que nada pôde ser criado. */
+    private static class FakeDisciplineService extends DisciplineService {
+
+        final List<List<ExtractedDisciplineDTO>> batches = new ArrayList<>();
+        boolean failNext;
+
+        FakeDisciplineService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public BatchCreateReportDTO createBatchFromExtractedWithReport(Integer studentId, List<ExtractedDisciplineDTO> dtos) {
+            assertThat(studentId).isEqualTo(STUDENT);
+            if (failNext) {
+                failNext = false;
+                throw new BadRequestException("Nenhuma disciplina pôde ser importada");
+            }
+            batches.add(dtos);
+            List<DisciplineDTO> created = dtos.stream()
+                    .map(dto -> new DisciplineDTO(null, studentId, dto.name(), dto.code(), dto.scheduleCode(),
+                            null, null, null, null, true, null, null))
+                    .toList();
+            return new BatchCreateReportDTO(created, List.of());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.grimore.service.pdf;
+
+import com.grimore.dto.request.ExtractedDisciplineDTO;
+import com.grimore.enums.WorkloadHours;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class EnrollmentPdfRuleExtractorTest {
+
+    private final EnrollmentPdfRuleExtractor extractor = new EnrollmentPdfRuleExtractor(1.0);
+
+    @Test
+    void parsesTheSigaaClassTable() {
+        String text = """
+                UNIVERSIDADE FEDERAL DO RIO GRANDE DO NORTE
+                Comprovante de Matrícula
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I   01   MATRICULADO   24M34
+                Local: A308 - Setor de Aulas IV
+                DIM0120 - CALCULO II 02 MATRICULADO 35T12 60h
+                Local: B102
+                """;
+
+        EnrollmentPdfRuleExtractor.RuleExtraction result = extractor.extract(text);
+
+        assertThat(result.disciplines()).containsExactly(
+                new ExtractedDisciplineDTO("LINGUAGEM DE PROGRAMACAO I", "IMD0030", "24M34", "A308 - Setor de Aulas IV", null),
+                new ExtractedDisciplineDTO("CALCULO II", "DIM0120", "35T12", "B102", WorkloadHours.H60));
+        assertThat(result.confidence()).isEqualTo(1.0);
+        assertThat(result.confident()).isTrue();
+    }
+
+    @Test
+    void acceptsNumberedRowsSpacedCodesAndTheOldAfternoonLetter() {
+        String text = """
+                1 IMD 0040 - BANCO DE DADOS T01 MATRICULADO 246V12
+                2 ECT 1203: VETORES E GEOMETRIA ANALITICA 03 MATRICULADO 35M12 A205
+                """;
+
+        EnrollmentPdfRuleExtractor.RuleExtraction result = extractor.extract(text);
+
+        assertThat(result.disciplines()).containsExactly(
+                new ExtractedDisciplineDTO("BANCO DE DADOS", "IMD0040", "246T12", null, null),
+                // sem "Local:", o que vem depois do horário é a sala
+                new ExtractedDisciplineDTO("VETORES E GEOMETRIA ANALITICA", "ECT1203", "35M12", "A205", null));
+        assertThat(result.confident()).isTrue();
+    }
+
+    @Test
+    void joinsWrappedNamesUntilTheScheduleAndReadsTheLocalLine() {
+        String text = """
+                IMD0050 - ESTRUTURAS DE DADOS BASICAS
+                E AVANCADAS T01 MATRICULADO 246N12
+                Local: Setor de Aulas II
+                   sala 3
+                IMD0060 - CALCULO NUMERICO 01 MATRICULADO 35T34
+                """;
+
+        EnrollmentPdfRuleExtractor.RuleExtraction result = extractor.extract(text);
+
+        assertThat(result.disciplines()).extracting(ExtractedDisciplineDTO::name, ExtractedDisciplineDTO::location)
+                .containsExactly(
+                        tuple("ESTRUTURAS DE DADOS BASICAS E AVANCADAS", "Setor de Aulas II"),
+                        tuple("CALCULO NUMERICO", null));
+        assertThat(result.disciplines()).extracting(ExtractedDisciplineDTO::scheduleCode)
+                .containsExactly("246N12", "35T34");
+    }
+
+    @Test
+    void rowWithoutScheduleLowersConfidenceAndSendsTheDocumentToTheLlm() {
+        String text = """
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34
+                IMD0070 - TOPICOS ESPECIAIS 01 MATRICULADO
+                Local: A101
+                """;
+
+        EnrollmentPdfRuleExtractor.RuleExtraction strict = extractor.extract(text);
+        EnrollmentPdfRuleExtractor.RuleExtraction lenient = new EnrollmentPdfRuleExtractor(0.5).extract(text);
+
+        assertThat(strict.disciplines()).extracting(ExtractedDisciplineDTO::code).containsExactly("IMD0030");
+        assertThat(strict.confidence()).isEqualTo(0.5);
+        assertThat(strict.confident()).isFalse();
+        assertThat(lenient.confident()).isTrue();
+    }
+
+    @Test
+    void codesOutsideARowCountAsMissedDisciplines() {
+        String text = """
+                IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34
+                Observação: equivalente a ECT1203
+                """;
+
+        EnrollmentPdfRuleExtractor.RuleExtraction result = extractor.extract(text);
+
+        assertThat(result.disciplines()).hasSize(1);
+        assertThat(result.confidence()).isEqualTo(0.5);
+        assertThat(result.confident()).isFalse();
+    }
+
+    @Test
+    void isNeverConfidentWithoutDisciplines() {
+        assertThat(extractor.extract("").confident()).isFalse();
+        assertThat(extractor.extract(null).confidence()).isZero();
+        assertThat(new EnrollmentPdfRuleExtractor(0.0).extract("Declaração de vínculo\nSem turmas").confident()).isFalse();
+    }
+}
@@ -0,0 +1,277 @@
+package com.grimore.service.pdf;
+
+import com.github.luben.zstd.Zstd;
+import com.grimore.dto.response.PdfBlobDTO;
+import com.grimore.exception.resource.ResourceNotFoundException;
+import com.grimore.exception.server.InternalServerErrorException;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.repository.PdfBlobRepository;
+import com.grimore.service.imports.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfBlobStoreTest {
+
+    private static final int STUDENT = 42;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PdfUploadStorage uploadStorage = new PdfUploadStorage(new ImportMetrics(meterRegistry));
+    private final FakePdfBlobRepository repository = new FakePdfBlobRepository();
+    private final List<Path> restored = new ArrayList<>();
+    private Path root;
+    private PdfBlobStore store;
+
+    @BeforeEach
+    void setUp() {
+        root = tempDir.resolve("blobs");
+        store = new PdfBlobStore(repository, uploadStorage, meterRegistry, true, root, 3, 2, true, 30);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+        restored.forEach(uploadStorage::discard);
+    }
+
+    @Test
+    void storesTheContentCompressedAndRestoresTheSameBytes() throws Exception {
+        byte[] content = pdfBytes("IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 MATRICULADO 24M34\n");
+        Path pdf = write("comprovante.pdf", content);
+        String sha256 = uploadStorage.sha256(pdf);
+
+        store.storeInBackground(pdf, sha256, STUDENT);
+        // o upload pode ser descartado logo depois do agendamento
+        Files.delete(pdf);
+        awaitUploads(1);
+
+        Path blob = blobFile(sha256);
+        assertThat(blob).exists();
+        assertThat(Files.size(blob)).isLessThan(content.length);
+        assertThat(Zstd.decompress(Files.readAllBytes(blob), content.length)).isEqualTo(content);
+        assertThat(repository.blobs.get(sha256).storedBytes()).isEqualTo(Files.size(blob));
+
+        assertThat(Files.readAllBytes(restore(sha256))).isEqualTo(content);
+        assertThat(uploads("stored")).isEqualTo(1);
+    }
+
+    @Test
+    void sameContentIsWrittenOnceAndEveryUploadIsRecorded() throws Exception {
+        byte[] content = pdfBytes("DIM0120 - CALCULO II 02 MATRICULADO 35T12\n");
+        Path first = write("primeiro.pdf", content);
+        String sha256 = uploadStorage.sha256(first);
+
+        store.storeInBackground(first, sha256, STUDENT);
+        awaitUploads(1);
+        FileTime written = Files.getLastModifiedTime(blobFile(sha256));
+
+        store.storeInBackground(write("segundo.pdf", content), sha256, STUDENT + 1);
+        awaitUploads(2);
+
+        assertThat(repository.blobs.get(sha256).uploads()).containsExactly(STUDENT, STUDENT + 1);
+        assertThat(Files.getLastModifiedTime(blobFile(sha256))).isEqualTo(written);
+        assertThat(uploads("stored")).isEqualTo(1);
+        assertThat(uploads("deduplicated")).isEqualTo(1);
+        // nenhum temporário de gravação ficou para trás
+        try (Stream<Path> files = Files.walk(root)) {
+            assertThat(files.filter(Files::isRegularFile)).containsExactly(blobFile(sha256));
+        }
+    }
+
+    @Test
+    void restoreChecksTheHashOfTheDecompressedContent() throws Exception {
+        Path pdf = write("comprovante.pdf", pdfBytes("ECT1203 - VETORES 03 MATRICULADO 35M12\n"));
+        String sha256 = uploadStorage.sha256(pdf);
+        store.storeInBackground(pdf, sha256, STUDENT);
+        awaitUploads(1);
+
+        // blob íntegro para o zstd, mas com outro conteúdo
+        Files.write(blobFile(sha256), Zstd.compress(pdfBytes("ADULTERADO\n")));
+
+        assertThatThrownBy(() -> store.restore(sha256))
+                .isInstanceOf(InternalServerErrorException.class)
+                .hasMessage("Falha ao ler o PDF armazenado");
+    }
+
+    @Test
+    void restoreRejectsInvalidAndUnknownHashes() throws Exception {
+        String unindexed = "ab".repeat(32);
+        Files.createDirectories(blobFile(unindexed).getParent());
+        Files.write(blobFile(unindexed), Zstd.compress(pdfBytes("sem índice\n")));
+
+        assertThatThrownBy(() -> store.restore("../../etc/passwd")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> store.restore("cd".repeat(32))).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> store.restore(unindexed)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void sweepRemovesExpiredOrphanAndUnindexedBlobs() throws Exception {
+        String live = storeBlob("live");
+        String expired = storeBlob("expired");
+        String orphan = storeBlob("orphan");
+        repository.age(expired, Duration.ofDays(31));
+        repository.blobs.get(orphan).uploads().clear();
+
+        String unindexedOld = "0a".repeat(32);
+        String unindexedRecent = "0b".repeat(32);
+        Path oldFile = plantFile(blobFile(unindexedOld), Duration.ofHours(2));
+        Path recentFile = plantFile(blobFile(unindexedRecent), Duration.ZERO);
+        Path abandonedTemp = plantFile(root.resolve("0c").resolve("0c").resolve("x.pdf.zst.1234.tmp"), Duration.ofHours(2));
+
+        store.sweep();
+
+        assertThat(repository.blobs.keySet()).containsExactly(live);
+        assertThat(blobFile(live)).exists();
+        assertThat(blobFile(expired)).doesNotExist();
+        assertThat(blobFile(orphan)).doesNotExist();
+        assertThat(oldFile).doesNotExist();
+        assertThat(abandonedTemp).doesNotExist();
+        // dentro da carência: pode ser um envio que ainda vai ser registrado
+        assertThat(recentFile).exists();
+        assertThat(meterRegistry.counter("grimore.pdf.blobs.deleted").count()).isEqualTo(4);
+    }
+
+    @Test
+    void disabledStoreDoesNothing() throws Exception {
+        PdfBlobStore disabled = new PdfBlobStore(repository, uploadStorage, meterRegistry, false, root, 3, 1, true, 30);
+        Path pdf = write("comprovante.pdf", pdfBytes("IMD0030\n"));
+
+        disabled.storeInBackground(pdf, uploadStorage.sha256(pdf), STUDENT);
+        disabled.shutdown();
+
+        assertThat(root).doesNotExist();
+        assertThat(repository.blobs).isEmpty();
+    }
+
+    private String storeBlob(String marker) throws IOException, InterruptedException {
+        Path pdf = write(marker + ".pdf", pdfBytes(marker + "\n"));
+        String sha256 = uploadStorage.sha256(pdf);
+        int before = repository.uploadCount();
+        store.storeInBackground(pdf, sha256, STUDENT);
+        awaitUploads(before + 1);
+        return sha256;
+    }
+
+    private Path restore(String sha256) {
+        Path path = store.restore(sha256);
+        restored.add(path);
+        return path;
+    }
+
+    private Path plantFile(Path file, Duration age) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, Zstd.compress(pdfBytes("plantado\n")));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+
+    private Path blobFile(String sha256) {
+        return root.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256 + ".pdf.zst");
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content);
+    }
+
+    /** Conteúdo repetitivo como o de um comprovante, que o zstd reduz bem. */
+    private static byte[] pdfBytes(String row) {
+        return ("%PDF-1.7\n" + row.repeat(200) + "%%EOF\n").getBytes();
+    }
+
+    private void awaitUploads(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (repository.uploadCount() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(repository.uploadCount()).isEqualTo(expected);
+    }
+
+    private double uploads(String result) {
+        return meterRegistry.counter("grimore.pdf.blobs.uploads", "result", result).count();
+    }
+
+    /** Índice em memória com as mesmas regras do SQL do {@link PdfBlobRepository}. */
+    private static class FakePdfBlobRepository extends PdfBlobRepository {
+
+        record Blob(long sizeBytes, long storedBytes, LocalDateTime lastUploadedAt, List<Integer> uploads) {}
+
+        final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+
+        FakePdfBlobRepository() {
+            super(null);
+        }
+
+        @Override
+        public synchronized void recordUpload(String sha256, long sizeBytes, long storedBytes, Integer studentId) {
+            Blob blob = blobs.get(sha256);
+            List<Integer> uploads = blob != null ? blob.uploads() : new ArrayList<>();
+            uploads.add(studentId);
+            blobs.put(sha256, new Blob(blob != null ? blob.sizeBytes() : sizeBytes,
+                    blob != null ? blob.storedBytes() : storedBytes, LocalDateTime.now(), uploads));
+        }
+
+        @Override
+        public boolean exists(String sha256) {
+            return blobs.containsKey(sha256);
+        }
+
+        @Override
+        public synchronized List<String> deleteExpired(LocalDateTime cutoff, int limit) {
+            List<String> deleted = blobs.entrySet().stream()
+                    .filter(entry -> entry.getValue().lastUploadedAt().isBefore(cutoff)
+                            || entry.getValue().uploads().isEmpty())
+                    .map(Map.Entry::getKey)
+                    .limit(limit)
+                    .toList();
+            deleted.forEach(blobs::remove);
+            return deleted;
+        }
+
+        @Override
+        public Set<String> findExisting(Collection<String> sha256s) {
+            Set<String> existing = new HashSet<>(sha256s);
+            existing.retainAll(blobs.keySet());
+            return existing;
+        }
+
+        @Override
+        public List<PdfBlobDTO> findByStudent(Integer studentId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        synchronized int uploadCount() {
+            return blobs.values().stream().mapToInt(blob -> blob.uploads().size()).sum();
+        }
+
+        synchronized void age(String sha256, Duration age) {
+            Blob blob = blobs.get(sha256);
+            blobs.put(sha256, new Blob(blob.sizeBytes(), blob.storedBytes(),
+                    LocalDateTime.now().minus(age), blob.uploads()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.grimore.service.pdf;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PdfTextNormalizerTest {
+
+    @Test
+    void collapsesSpacesTabsAndNonBreakingSpaces() {
+        assertThat(PdfTextNormalizer.normalize("IMD0030\u00A0\t  -\u00A0\u00A0LP I")).isEqualTo("IMD0030 - LP I");
+    }
+
+    @Test
+    void keepsAtMostOneBlankLineBetweenBlocks() {
+        assertThat(PdfTextNormalizer.normalize("a\nb\n\nc\n\n\n\nd")).isEqualTo("a\nb\n\nc\n\nd");
+    }
+
+    @Test
+    void trimsAndHandlesEmptyInput() {
+        assertThat(PdfTextNormalizer.normalize("  \n\n texto \n\n  ")).isEqualTo("texto");
+        assertThat(PdfTextNormalizer.normalize("")).isEmpty();
+        assertThat(PdfTextNormalizer.normalize(null)).isEmpty();
+    }
+
+    @Test
+    void matchesTheRegexPipelineItReplaces() {
+        String[] samples = {
+                "Comprovante de Matrícula\n\n\n\nIMD0030\t-\u00A0LP I  01  24M34\n\n\n",
+                "\t\ta  b\n\n\n\n\n\nc  \n\n\n d ",
+                "linha\r\n\r\n\r\n\r\noutra",
+                " \n \n \n x"
+        };
+
+        for (String sample : samples) {
+            String expected = sample.replace("\u00A0", " ")
+                    .replaceAll("[ \\t]+", " ")
+                    .replaceAll("\\n{3,}", "\n\n")
+                    .trim();
+            assertThat(PdfTextNormalizer.normalize(sample)).as(sample).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.grimore.service.pdf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfTriageTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PdfTriage triage = new PdfTriage(meterRegistry, true, 1);
+
+    @Test
+    void recognizesEnrollmentMarkersIgnoringAccentsAndCase() {
+        assertThat(PdfTriage.looksLikeEnrollment("Comprovante de Matrícula\nAluno: Fulano")).isTrue();
+        assertThat(PdfTriage.looksLikeEnrollment("sigaa - Sistema Integrado")).isTrue();
+    }
+
+    @Test
+    void acceptsACroppedClassTableWithoutHeader() {
+        assertThat(PdfTriage.looksLikeEnrollment("IMD0030 - LINGUAGEM DE PROGRAMACAO I 01 24M34")).isTrue();
+        assertThat(PdfTriage.looksLikeEnrollment("DIM 0120 CALCULO II 02 MATRICULADO 35T12 246N12")).isTrue();
+    }
+
+    @Test
+    void rejectsCodesWithoutScheduleOnTheSameLine() {
+        assertThat(PdfTriage.looksLikeEnrollment("Nota fiscal IMD0030\nTotal 24M34")).isFalse();
+        assertThat(PdfTriage.looksLikeEnrollment("Pedido ABC1234 entregue em 24M34X")).isFalse();
+    }
+
+    @Test
+    void rejectsTextlessPagesByWhetherTheyHoldImages() throws Exception {
+        try (PDDocument empty = new PDDocument(); PDDocument scanned = scannedDocument()) {
+            empty.addPage(new PDPage());
+
+            assertThatThrownBy(() -> triage.inspect(empty, 1, " \n "))
+                    .isInstanceOfSatisfying(PdfTriage.Rejection.class,
+                            rejection -> assertThat(rejection.getOutcome()).isEqualTo(PdfTriage.Outcome.NO_TEXT));
+            assertThatThrownBy(() -> triage.inspect(scanned, 1, ""))
+                    .isInstanceOfSatisfying(PdfTriage.Rejection.class,
+                            rejection -> assertThat(rejection.getOutcome()).isEqualTo(PdfTriage.Outcome.IMAGE_ONLY));
+        }
+
+        assertThat(outcome("no_text")).isEqualTo(1);
+        assertThat(outcome("image_only")).isEqualTo(1);
+    }
+
+    @Test
+    void countsAcceptedAndUnrelatedDocuments() throws Exception {
+        try (PDDocument doc = new PDDocument()) {
+            doc.addPage(new PDPage());
+
+            assertThatCode(() -> triage.inspect(doc, 1, "UFRN - Comprovante de Matrícula")).doesNotThrowAnyException();
+            assertThatThrownBy(() -> triage.inspect(doc, 1, "Boleto bancário"))
+                    .isInstanceOfSatisfying(PdfTriage.Rejection.class,
+                            rejection -> assertThat(rejection.getOutcome()).isEqualTo(PdfTriage.Outcome.NOT_ENROLLMENT));
+        }
+
+        assertThat(outcome("accepted")).isEqualTo(1);
+        assertThat(outcome("not_enrollment")).isEqualTo(1);
+    }
+
+    @Test
+    void skipsEverythingWhenDisabled() {
+        PdfTriage disabled = new PdfTriage(meterRegistry, false, 1);
+
+        assertThatCode(() -> disabled.inspect(null, 1, "")).doesNotThrowAnyException();
+        assertThat(outcome("accepted")).isZero();
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.counter("grimore.pdf.triage", "outcome", outcome).count();
+    }
+
+    private static PDDocument scannedDocument() throws Exception {
+        PDDocument doc = new PDDocument();
+        PDPage page = new PDPage();
+        doc.addPage(page);
+
+        PDImageXObject image = LosslessFactory.createFromImage(doc, new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+        try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+            content.drawImage(image, 0, 0);
+        }
+        return doc;
+    }
+}
@@ -0,0 +1,164 @@
+package com.grimore.service.pdf;
+
+import com.grimore.bench.SyntheticEnrollmentPdfs;
+import com.grimore.exception.validation.BadRequestException;
+import com.grimore.service.imports.ImportMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Sobe JVMs worker de verdade a partir do classpath dos testes (o ramo sem jar do Boot de {@code command()}).
+ *
+ * Para prender um worker no meio do parse sem depender da velocidade da máquina, o "PDF" é um
+ * FIFO sem escritor: o worker fica bloqueado na abertura do arquivo até ser morto.
+ */
+class PdfWorkerPoolTest {
+
+    private static final long STARTUP_TIMEOUT_MS = 30_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PdfWorkerPool pool;
+    private Path pdf;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pdf = SyntheticEnrollmentPdfs.create(tempDir, 1, 6, 42);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parsesInAWorkerAndRecyclesItAfterMaxDocuments() throws Exception {
+        pool = start(1, 30_000, 2, STARTUP_TIMEOUT_MS);
+        List<Long> first = workerPids();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(pool.extract(pdf)).get().asString().contains("COMPROVANTE DE MATRICULA");
+        }
+
+        assertThat(first).hasSize(1);
+        assertThat(counter("grimore.pdf.workers.recycled")).isEqualTo(1);
+        assertThat(counter("grimore.pdf.workers.fallbacks")).isZero();
+        // o reciclado sai sozinho quando o pool fecha a conexão
+        ProcessHandle.of(first.getFirst()).ifPresent(process -> process.onExit().join());
+        assertThat(workerPids()).hasSize(1).doesNotContainAnyElementsOf(first);
+    }
+
+    @Test
+    void killsAWorkerThatExceedsTheTimeoutAndReplacesIt() throws Exception {
+        pool = start(1, 500, 100, STARTUP_TIMEOUT_MS);
+        Path stuck = fifo();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> pool.extract(stuck))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("demorou demais");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(10_000);
+        assertThat(meterRegistry.counter("grimore.pdf.workers.failures", "reason", "timeout").count()).isEqualTo(1);
+        // o substituto sobe em segundo plano (um parse nele, a frio, estouraria os 500 ms)
+        awaitGauge("grimore.pdf.workers.idle", 1);
+        assertThat(meterRegistry.get("grimore.pdf.workers.alive").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void workerCrashWhileParsingRejectsTheDocumentAndIsReplaced() throws Exception {
+        pool = start(1, 60_000, 100, STARTUP_TIMEOUT_MS);
+        Path stuck = fifo();
+
+        CompletableFuture<Optional<String>> parse = CompletableFuture.supplyAsync(() -> pool.extract(stuck));
+        // o worker saiu da fila de ociosos: está com o documento
+        awaitGauge("grimore.pdf.workers.idle", 0);
+        workerPids().forEach(pid -> ProcessHandle.of(pid).ifPresent(ProcessHandle::destroyForcibly));
+
+        assertThatThrownBy(() -> parse.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Não foi possível processar o PDF");
+        assertThat(meterRegistry.counter("grimore.pdf.workers.failures", "reason", "crash").count()).isEqualTo(1);
+        assertThat(pool.extract(pdf)).isPresent();
+    }
+
+    @Test
+    void workerThatDiesWhileIdleIsReplacedBeforeTheNextDocument() throws Exception {
+        pool = start(1, 30_000, 100, STARTUP_TIMEOUT_MS);
+        for (long pid : workerPids()) {
+            ProcessHandle process = ProcessHandle.of(pid).orElseThrow();
+            process.destroyForcibly();
+            process.onExit().get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(pool.extract(pdf)).isPresent();
+        assertThat(meterRegistry.counter("grimore.pdf.workers.failures", "reason", "crash").count()).isEqualTo(1);
+    }
+
+    @Test
+    void fallsBackToInProcessParsingWhenNoWorkerStarts() throws Exception {
+        // nenhuma JVM sobe em 1 ms
+        pool = start(2, 30_000, 100, 1);
+
+        assertThat(pool.extract(pdf)).isEmpty();
+        assertThat(counter("grimore.pdf.workers.fallbacks")).isEqualTo(1);
+        assertThat(meterRegistry.get("grimore.pdf.workers.alive").gauge().value()).isZero();
+    }
+
+    private PdfWorkerPool start(int count, long timeoutMs, int maxDocuments, long startupTimeoutMs) throws Exception {
+        PdfWorkerPool started = new PdfWorkerPool(meterRegistry, new PdfTriage(meterRegistry, false, 2),
+                new ImportMetrics(meterRegistry), true, count, 128, timeoutMs, maxDocuments, startupTimeoutMs,
+                30_000, 20, 16);
+        started.start();
+        return started;
+    }
+
+    private Path fifo() throws Exception {
+        Path fifo = tempDir.resolve("travado.pdf");
+        Process mkfifo = new ProcessBuilder("mkfifo", fifo.toString()).inheritIO().start();
+        assertThat(mkfifo.waitFor()).isZero();
+        return fifo;
+    }
+
+    /** Os únicos processos Java filhos da JVM de teste são os workers. */
+    private static List<Long> workerPids() {
+        return ProcessHandle.current().children()
+                .filter(ProcessHandle::isAlive)
+                .filter(process -> process.info().command()
+                        .map(command -> Path.of(command).getFileName().toString().equals("java"))
+                        .orElse(false))
+                .map(ProcessHandle::pid)
+                .toList();
+    }
+
+    private void awaitGauge(String name, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (meterRegistry.get(name).gauge().value() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get(name).gauge().value()).isEqualTo(expected);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.counter(name).count();
+    }
+}
@@ -0,0 +1,74 @@
+package com.grimore.support;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+/**
+ * Postgres real para os testes de repositório, com o schema das migrations do Flyway.
+ *
+ * Por padrão sobe um container ({@code postgres:16-alpine}) uma vez por JVM. Sem Docker, aponte
+ * {@code -Dtest.postgres.url} (e {@code test.postgres.username}/{@code test.postgres.password})
+ * para um banco DESCARTÁVEL: o schema é apagado e recriado no início. Sem nenhum dos dois, os testes
+ * anotados com {@code @EnabledIf("com.grimore.support.PostgresTestDatabase#isAvailable")} são pulados.
+ */
+public final class PostgresTestDatabase {
+
+    private static final String URL_PROPERTY = "test.postgres.url";
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private PostgresTestDatabase() {
+    }
+
+    public static boolean isAvailable() {
+        if (System.getProperty(URL_PROPERTY) != null) {
+            return true;
+        }
+        try {
+            return DockerClientFactory.instance().isDockerAvailable();
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    public static synchronized JdbcTemplate jdbcTemplate() {
+        if (jdbcTemplate == null) {
+            DataSource dataSource = System.getProperty(URL_PROPERTY) != null ? external() : container();
+            Flyway flyway = Flyway.configure()
+                    .dataSource(dataSource)
+                    .locations("classpath:db/migration")
+                    .cleanDisabled(false)
+                    .load();
+            flyway.clean();
+            flyway.migrate();
+            jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+        return jdbcTemplate;
+    }
+
+    /** Cria um estudante para satisfazer as chaves estrangeiras e devolve o id. */
+    public static int insertStudent(String email) {
+        return jdbcTemplate().queryForObject(
+                "INSERT INTO students (full_name, email, password) VALUES ('Estudante de Teste', ?, 'x') RETURNING id",
+                Integer.class, email);
+    }
+
+    private static DataSource external() {
+        return new DriverManagerDataSource(
+                System.getProperty(URL_PROPERTY),
+                System.getProperty("test.postgres.username", "postgres"),
+                System.getProperty("test.postgres.password", ""));
+    }
+
+    private static DataSource container() {
+        // parado pelo Ryuk do Testcontainers quando a JVM termina
+        PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        return new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
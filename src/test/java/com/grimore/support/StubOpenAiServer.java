@@ -0,0 +1,199 @@
+package com.grimore.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Servidor local que imita {@code POST /v1/chat/completions} da OpenAI, com resposta,
+ * latência e status configuráveis. Suporta respostas normais e em streaming (SSE).
+ *
+ * A resposta pode ser fixa ({@link #respondWith(String)}) ou calculada a partir da última
+ * mensagem do usuário ({@link #respondWith(Function)}), para simular um modelo que "lê" o texto.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile Function<String, String> responder = prompt -> "{\"disciplines\": []}";
+    private volatile long latencyMs;
+    private volatile int status = 200;
+    private volatile int streamChunkChars = 16;
+
+    public StubOpenAiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public StubOpenAiServer respondWith(String content) {
+        this.responder = prompt -> content;
+        return this;
+    }
+
+    public StubOpenAiServer respondWith(Function<String, String> responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    public StubOpenAiServer latency(long latencyMs) {
+        this.latencyMs = latencyMs;
+        return this;
+    }
+
+    public StubOpenAiServer status(int status) {
+        this.status = status;
+        return this;
+    }
+
+    public StubOpenAiServer streamChunkChars(int streamChunkChars) {
+        this.streamChunkChars = streamChunkChars;
+        return this;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+
+        try (exchange) {
+            Map<?, ?> request = JSON.readValue(exchange.getRequestBody(), Map.class);
+            boolean stream = Boolean.TRUE.equals(request.get("stream"));
+            boolean streamUsage = request.get("stream_options") instanceof Map<?, ?> options
+                    && Boolean.TRUE.equals(options.get("include_usage"));
+            String model = String.valueOf(request.get("model"));
+            String content = responder.apply(lastUserMessage(request));
+
+            sleep(latencyMs);
+
+            if (status != 200) {
+                byte[] body = "{\"error\": {\"message\": \"stub failure\", \"type\": \"server_error\"}}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+
+            if (stream) {
+                writeStream(exchange, model, content, streamUsage);
+            } else {
+                writeCompletion(exchange, model, content);
+            }
+        }
+    }
+
+    private static String lastUserMessage(Map<?, ?> request) {
+        String last = "";
+        if (request.get("messages") instanceof List<?> messages) {
+            for (Object message : messages) {
+                if (message instanceof Map<?, ?> m && "user".equals(m.get("role")) && m.get("content") instanceof String text) {
+                    last = text;
+                }
+            }
+        }
+        return last;
+    }
+
+    private void writeCompletion(HttpExchange exchange, String model, String content) throws IOException {
+        Map<String, Object> body = Map.of(
+                "id", "chatcmpl-stub",
+                "object", "chat.completion",
+                "created", System.currentTimeMillis() / 1000,
+                "model", model,
+                "choices", List.of(Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", content),
+                        "finish_reason", "stop")),
+                "usage", usage());
+
+        byte[] bytes = JSON.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void writeStream(HttpExchange exchange, String model, String content, boolean includeUsage) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+
+        for (int i = 0; i < content.length(); i += streamChunkChars) {
+            String piece = content.substring(i, Math.min(content.length(), i + streamChunkChars));
+            writeEvent(out, chunk(model, Map.of("content", piece), null));
+        }
+        writeEvent(out, chunk(model, Map.of(), "stop"));
+        if (includeUsage) {
+            // como a OpenAI: um último evento sem choices, só com o uso de tokens
+            writeEvent(out, Map.of(
+                    "id", "chatcmpl-stub",
+                    "object", "chat.completion.chunk",
+                    "created", System.currentTimeMillis() / 1000,
+                    "model", model,
+                    "choices", List.of(),
+                    "usage", usage()));
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private Map<String, Object> chunk(String model, Map<String, Object> delta, String finishReason) {
+        Map<String, Object> choice = new HashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", finishReason);
+
+        return Map.of(
+                "id", "chatcmpl-stub",
+                "object", "chat.completion.chunk",
+                "created", System.currentTimeMillis() / 1000,
+                "model", model,
+                "choices", List.of(choice));
+    }
+
+    private static void writeEvent(OutputStream out, Object payload) throws IOException {
+        out.write(("data: " + JSON.writeValueAsString(payload) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private Map<String, Object> usage() {
+        return Map.of("prompt_tokens", 100, "completion_tokens", 50, "total_tokens", 150);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}